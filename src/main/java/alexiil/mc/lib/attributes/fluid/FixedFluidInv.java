@@ -116,6 +116,19 @@ public interface FixedFluidInv extends FixedFluidInvView {
         }
     }
 
+    /** @return True if {@link #extractFluid(int, FluidFilter, FluidVolume, FluidAmount, Simulation) extractFluid} will
+     *         always extract exactly the requested amount (or everything in the tank, if that is less) from every tank.
+     *         If this returns true then the {@link #getExtractable() extractable} of this inventory returns
+     *         {@link FluidExtractionTransaction}s that {@link FluidExtractionTransaction#allowsPartialCommit() allow
+     *         partial commits}, which makes moving fluid out of this inventory faster.
+     *         <p>
+     *         The default implementation returns false, so only inventories that opt in are trusted. Subclasses of an
+     *         inventory that returns true must override this to return false if they restrict extraction in any
+     *         way. */
+    default boolean allowsPartialExtraction() {
+        return false;
+    }
+
     @Override
     default SingleFluidTank getTank(int tank) {
         return new SingleFluidTank(this, tank);
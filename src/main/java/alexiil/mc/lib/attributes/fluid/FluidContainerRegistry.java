@@ -7,14 +7,16 @@
  */
 package alexiil.mc.lib.attributes.fluid;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import javax.annotation.Nullable;
+
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.registry.Registries;
@@ -31,6 +33,7 @@ import alexiil.mc.lib.attributes.fluid.filter.ConstantFluidFilter;
 import alexiil.mc.lib.attributes.fluid.filter.ExactFluidFilter;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeyCollections;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 import alexiil.mc.lib.attributes.fluid.FluidContainerRegistry.FluidFillHandler.StackReturnFunc;
 import alexiil.mc.lib.attributes.misc.AbstractItemBasedAttribute;
@@ -50,13 +53,14 @@ public final class FluidContainerRegistry {
     // (We can't really expose registerFillHandler usefully, as it's heavily dependent on classes)
 
     private static final Map<Item, ItemContainerState> containerStates = new IdentityHashMap<>();
-    private static final Map<FluidKey, Set<Item>> fullContainers = new HashMap<>();
+    private static final Map<FluidKey, Set<Item>> fullContainers = FluidKeyCollections.map();
     private static final Set<Item> emptyItems = new HashSet<>();
     private static final Set<Item> fullItems = new HashSet<>();
 
-    private static final Map<FluidKey, Set<Item>> fullContainersUn = new HashMap<>();
-    private static final Set<Item> emptyItemsUn = Collections.unmodifiableSet(emptyItems);
-    private static final Set<Item> fullItemsUn = Collections.unmodifiableSet(fullItems);
+    /** Immutable copies of the above collections, returned by the getters. This is built on the first call to any of
+     * the getters after registration, and is thrown away whenever something new is registered. */
+    @Nullable
+    private static volatile Lookup lookup;
 
     // #############
     //
@@ -94,6 +98,7 @@ public final class FluidContainerRegistry {
         fullContainers.computeIfAbsent(fluid.fluidKey, k -> new HashSet<>()).add(full);
         emptyItems.add(empty);
         fullItems.add(full);
+        lookup = null;
     }
 
     /** Registers a custom fill handler for the given empty item, which always creates filled {@link ItemStack}s with
@@ -193,6 +198,7 @@ public final class FluidContainerRegistry {
 
         StateEmpty state = ((StateEmpty) forEmpty);
         registor.accept(state);
+        state.clearResolvedHandlers();
         state.minimum = state.minimum == null ? handler.minimum : state.minimum.min(handler.minimum);
 
         if (putEmpty) {
@@ -200,6 +206,7 @@ public final class FluidContainerRegistry {
             forEmpty.addItemAttributes();
         }
         emptyItems.add(empty);
+        lookup = null;
     }
 
     // #########
@@ -211,39 +218,30 @@ public final class FluidContainerRegistry {
     /** Retrieves every {@link Item} that has been registered with {@link #mapContainer(Item, Item, FluidVolume)} as a
      * direct container that is full of the specified fluid.
      * 
-     * @return An unmodifiable view of the set of {@link Item}s which contain the given {@link FluidKey}. (Which also
-     *         updates as new entries are registered). */
+     * @return An immutable set of {@link Item}s which contain the given {@link FluidKey}. This is a snapshot, so it
+     *         won't contain items that are registered after this is called. */
     public static Set<Item> getFullContainersFor(FluidKey fluid) {
-        Set<Item> set = fullContainersUn.get(fluid);
-        if (set == null) {
-            Set<Item> internal = fullContainers.get(fluid);
-            if (internal == null) {
-                internal = new HashSet<>();
-                fullContainers.put(fluid, internal);
-            }
-            set = Collections.unmodifiableSet(internal);
-            fullContainersUn.put(fluid, set);
-        }
-        return set;
+        Set<Item> set = lookup().fullContainers.get(fluid);
+        return set != null ? set : Collections.emptySet();
     }
 
     /** Retrieves every {@link Item} that has been registered as an empty container with mapContainer or any of the
      * "register*" methods. (In other words a set of every item that is guaranteed to have a {@link GroupedFluidInv} as
      * one of it's attributes).
      * 
-     * @return An unmodifiable view of the set of every {@link Item} which can have fluid filled into them, but are
-     *         currently empty. (Which also updates as new entries are registered). */
+     * @return An immutable set of every {@link Item} which can have fluid filled into them, but are currently empty.
+     *         This is a snapshot, so it won't contain items that are registered after this is called. */
     public static Set<Item> getEmptyContainers() {
-        return emptyItemsUn;
+        return lookup().emptyItems;
     }
 
     /** Retrieves every {@link Item} that has been registered with {@link #mapContainer(Item, Item, FluidVolume)} as a
      * direct container that is full.
      * 
-     * @return An unmodifiable view of the set of every {@link Item} which contain fluid. (Which also updates as new
-     *         entries are registered). */
+     * @return An immutable set of every {@link Item} which contain fluid. This is a snapshot, so it won't contain
+     *         items that are registered after this is called. */
     public static Set<Item> getFullContainers() {
-        return fullItemsUn;
+        return lookup().fullItems;
     }
 
     /** Retrieves the {@link FluidVolume} contained by the given {@link Item}, if the item has been registered directly
@@ -335,6 +333,34 @@ public final class FluidContainerRegistry {
         FluidAttributes.ensureClassLoaded();
     }
 
+    private static Lookup lookup() {
+        Lookup l = lookup;
+        if (l == null) {
+            synchronized (FluidContainerRegistry.class) {
+                l = lookup;
+                if (l == null) {
+                    lookup = l = new Lookup();
+                }
+            }
+        }
+        return l;
+    }
+
+    /** Immutable copies of every registered container, which can be returned directly from the getters. */
+    static final class Lookup {
+        final Map<FluidKey, Set<Item>> fullContainers = FluidKeyCollections.map();
+        final Set<Item> emptyItems;
+        final Set<Item> fullItems;
+
+        Lookup() {
+            for (Map.Entry<FluidKey, Set<Item>> entry : FluidContainerRegistry.fullContainers.entrySet()) {
+                fullContainers.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<>(entry.getValue())));
+            }
+            emptyItems = Collections.unmodifiableSet(new HashSet<>(FluidContainerRegistry.emptyItems));
+            fullItems = Collections.unmodifiableSet(new HashSet<>(FluidContainerRegistry.fullItems));
+        }
+    }
+
     static final class NullFluidFillHandler extends FluidFillHandler {
         static final NullFluidFillHandler INSTANCE = new NullFluidFillHandler();
 
@@ -440,6 +466,12 @@ public final class FluidContainerRegistry {
 
         FluidAmount minimum;
 
+        /** Every {@link FluidFillHandler} that has been looked up in {@link #variants}, indexed by
+         * {@link FluidKey#getRuntimeId()}. Null entries (or ids past the end of the array) haven't been looked up yet,
+         * and {@link NullFluidFillHandler#INSTANCE} is used for fluids without a handler. This is only ever grown (or
+         * replaced) while synchronised on this state, so it can be read without locking. */
+        private volatile FluidFillHandler[] resolvedHandlers = new FluidFillHandler[0];
+
         StateEmpty(Item item) {
             super(item);
 
@@ -486,6 +518,7 @@ public final class FluidContainerRegistry {
             containerStates.put(fullItem, state);
             FluidFillHandler handler = new SimpleDirectFillHandler(fluid.amount(), fullItem);
             variants.putExact(AttributeSourceType.INSTANCE, fluid.fluidKey, handler);
+            clearResolvedHandlers();
             state.addItemAttributes();
 
             if (minimum == null) {
@@ -495,6 +528,39 @@ public final class FluidContainerRegistry {
             }
         }
 
+        /** @return The {@link FluidFillHandler} to use for the given fluid, or null if there isn't one. */
+        @Nullable
+        FluidFillHandler getHandler(FluidKey fluid) {
+            FluidFillHandler[] table = resolvedHandlers;
+            int id = fluid.getRuntimeId();
+            FluidFillHandler handler = id < table.length ? table[id] : null;
+            if (handler == null) {
+                handler = resolveHandler(fluid);
+            }
+            return handler == NullFluidFillHandler.INSTANCE ? null : handler;
+        }
+
+        private synchronized FluidFillHandler resolveHandler(FluidKey fluid) {
+            FluidFillHandler handler = variants.get(fluid, fluid.getClass());
+            if (handler == null) {
+                handler = NullFluidFillHandler.INSTANCE;
+            }
+            FluidFillHandler[] table = resolvedHandlers;
+            int id = fluid.getRuntimeId();
+            if (id >= table.length) {
+                table = Arrays.copyOf(table, Math.max(id + 1, FluidKey.getRuntimeIdCount()));
+                table[id] = handler;
+                resolvedHandlers = table;
+            } else {
+                table[id] = handler;
+            }
+            return handler;
+        }
+
+        synchronized void clearResolvedHandlers() {
+            resolvedHandlers = new FluidFillHandler[0];
+        }
+
         @Override
         void addItemAttributes() {
             FluidAttributes.forEachGroupedInv(attribute -> setupItemAdder(attribute));
@@ -541,7 +607,7 @@ public final class FluidContainerRegistry {
 
                 if (filter instanceof ExactFluidFilter) {
                     FluidKey fluid = ((ExactFluidFilter) filter).fluid;
-                    FluidFillHandler handler = variants.get(fluid, fluid.getClass());
+                    FluidFillHandler handler = getHandler(fluid);
                     if (handler == null) {
                         return getIBucketStatistics(stack, filter);
                     }
@@ -568,7 +634,7 @@ public final class FluidContainerRegistry {
                     return fluid;
                 }
 
-                FluidFillHandler handler = variants.get(fluid.fluidKey, fluid.fluidKey.getClass());
+                FluidFillHandler handler = getHandler(fluid.fluidKey);
 
                 if (handler == null) {
                     return attemptIBucketInsertion(stack, fluid, simulation);
@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.fluid.GroupedFluidInvView.FluidInvStatistic;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmountAccumulator;
+import alexiil.mc.lib.attributes.fluid.filter.ConstantFluidFilter;
+import alexiil.mc.lib.attributes.fluid.filter.ExactFluidFilter;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+/** Moves fluid from a single {@link FluidExtractable} to many {@link FluidInsertable}s at once, either split evenly
+ * (with {@link FluidAmount#splitBalanced(int)}) or by a fixed set of weights (with
+ * {@link FluidAmount#splitRatio(FluidAmount[])}).
+ * <p>
+ * This is intended to be created once for a network (for example a set of pipes with a single source), and then
+ * {@link #distribute(FluidExtractable, FluidFilter, FluidAmount, Simulation) distributed} once per tick. Unlike calling
+ * {@link FluidVolumeUtil#move(FluidExtractable, FluidInsertable, FluidFilter, FluidAmount, Simulation)} once for every
+ * target this only extracts from the source once, and gives every target a fair share of the fluid (rather than
+ * filling up the first target before moving on to the next one).
+ * <p>
+ * The capacity of each target is read from {@link GroupedFluidInvView#getStatistics(FluidFilter)} when the target is a
+ * {@link GroupedFluidInvView}, and otherwise from a single simulated insertion. Instances of this reuse their internal
+ * arrays, so they must not be used from more than one thread at once. */
+public final class FluidDistributor {
+
+    private final FluidInsertable[] targets;
+
+    @Nullable
+    private final FluidAmount[] weights;
+
+    private final FluidAmount[] capacities;
+    private final FluidAmount[] minimums;
+    private final FluidAmount[] allocation;
+    private final int[] active;
+    private final FluidAmountAccumulator accumulator = new FluidAmountAccumulator();
+
+    /** Creates a {@link FluidDistributor} that splits fluid evenly between all of the given targets. */
+    public FluidDistributor(List<? extends FluidInsertable> targets) {
+        this(targets, null);
+    }
+
+    /** Creates a {@link FluidDistributor} that splits fluid between all of the given targets according to the given
+     * weights.
+     *
+     * @param weights The (non-negative) weight of each target, or null to split evenly.
+     * @throws IllegalArgumentException if the weights array isn't the same length as the list of targets, or if any
+     *             weight is negative. */
+    public FluidDistributor(List<? extends FluidInsertable> targets, @Nullable FluidAmount[] weights) {
+        int count = targets.size();
+        if (weights != null) {
+            if (weights.length != count) {
+                throw new IllegalArgumentException(
+                    "Expected " + count + " weights, but got " + weights.length + "! (" + Arrays.toString(weights) + ")"
+                );
+            }
+            for (FluidAmount weight : weights) {
+                if (weight.isNegative()) {
+                    throw new IllegalArgumentException("Weights cannot be negative! (" + Arrays.toString(weights) + ")");
+                }
+            }
+            weights = weights.clone();
+        }
+        this.targets = targets.toArray(new FluidInsertable[count]);
+        this.weights = weights;
+        this.capacities = new FluidAmount[count];
+        this.minimums = new FluidAmount[count];
+        this.allocation = new FluidAmount[count];
+        this.active = new int[count];
+    }
+
+    /** Extracts a single fluid from the given {@link FluidExtractable}, and splits it between every target that can
+     * accept it.
+     *
+     * @param filter The filter to use for extracting, or null to extract anything that any target might accept.
+     * @param maximum The maximum amount of fluid to move in total, or null to move as much as possible.
+     * @return A copy of everything that was moved. */
+    public FluidVolume distribute(
+        FluidExtractable from, @Nullable FluidFilter filter, @Nullable FluidAmount maximum, Simulation simulation
+    ) {
+        if (targets.length == 0) {
+            return FluidVolumeUtil.EMPTY;
+        }
+
+        FluidFilter insertionFilter = ConstantFluidFilter.NOTHING;
+        for (FluidInsertable to : targets) {
+            insertionFilter = insertionFilter.or(to.getInsertionFilter());
+        }
+        if (filter != null && filter != ConstantFluidFilter.ANYTHING) {
+            insertionFilter = insertionFilter.and(filter);
+        }
+        if (insertionFilter == ConstantFluidFilter.NOTHING) {
+            return FluidVolumeUtil.EMPTY;
+        }
+        if (maximum == null) {
+            maximum = FluidAmount.MAX_BUCKETS;
+        }
+
+        FluidExtractionTransaction extraction = from.beginExtraction(insertionFilter, maximum);
+        FluidVolume offered = extraction.getFluid();
+        if (offered.isEmpty()) {
+            return FluidVolumeUtil.EMPTY;
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+            gatherCapacity(i, offered);
+        }
+        allocate(offered.getAmount_F(), capacities, minimums, weights, allocation, active);
+
+        if (extraction.allowsPartialCommit()) {
+            return distributePartial(from, extraction, offered, simulation);
+        } else {
+            return distributeExact(from, extraction, offered, simulation);
+        }
+    }
+
+    private void gatherCapacity(int index, FluidVolume offered) {
+        FluidInsertable to = targets[index];
+        FluidKey key = offered.fluidKey;
+        minimums[index] = to.getMinimumAcceptedAmount();
+
+        if (!to.getInsertionFilter().matches(key)) {
+            capacities[index] = FluidAmount.ZERO;
+            return;
+        }
+
+        if (to instanceof GroupedFluidInvView) {
+            FluidInvStatistic stats = ((GroupedFluidInvView) to).getStatistics(key.exactFilter);
+            if (!stats.spaceTotal_F.isNegative()) {
+                capacities[index] = stats.spaceAddable_F.saturatedAdd(stats.spaceTotal_F);
+                return;
+            }
+        }
+
+        FluidVolume leftover = to.attemptInsertion(offered, Simulation.SIMULATE);
+        capacities[index] = offered.getAmount_F().roundedSub(leftover.getAmount_F());
+    }
+
+    /** Checks how much of every allocation will be accepted, and then commits the extraction of that total before
+     * inserting everything for real. */
+    private FluidVolume distributePartial(
+        FluidExtractable from, FluidExtractionTransaction extraction, FluidVolume offered, Simulation simulation
+    ) {
+        FluidAmount inserted = simulateAllocations(offered);
+        if (!inserted.isPositive()) {
+            return FluidVolumeUtil.EMPTY;
+        }
+        if (simulation == Simulation.SIMULATE) {
+            return offered.withAmount(inserted);
+        }
+        FluidVolume reallyExtracted = extraction.commit(inserted);
+        if (reallyExtracted.isEmpty()) {
+            return FluidVolumeUtil.EMPTY;
+        }
+        FluidAmount extractedAmount = reallyExtracted.getAmount_F();
+        if (reallyExtracted.fluidKey != offered.fluidKey || extractedAmount.isGreaterThan(inserted)) {
+            throw FluidVolumeUtil.throwBadImplException(
+                "A fluid extraction transaction (offering A) extracted C rather than the accepted amount (B) from the fluid extractable D!",
+                new String[] { "offered A", "accepted B", "extracted C", "from D", "transaction E" },
+                new Object[] { offered, inserted, reallyExtracted, from, extraction }
+            );
+        }
+        // If less was extracted than expected then the last targets just get less
+        return insertAllocations(from, reallyExtracted);
+    }
+
+    /** Checks that every allocation will be accepted, and that the total can be extracted, before extracting and then
+     * inserting everything for real. */
+    private FluidVolume distributeExact(
+        FluidExtractable from, FluidExtractionTransaction extraction, FluidVolume offered, Simulation simulation
+    ) {
+        FluidAmount total = simulateAllocations(offered);
+        if (!total.isPositive()) {
+            return FluidVolumeUtil.EMPTY;
+        }
+
+        ExactFluidFilter keyFilter = offered.fluidKey.exactFilter;
+        FluidVolume exactExtracted = offered;
+        if (!total.equals(offered.getAmount_F())) {
+            exactExtracted = from.attemptExtraction(keyFilter, total, Simulation.SIMULATE);
+            if (!exactExtracted.getAmount_F().equals(total)) {
+                return FluidVolumeUtil.EMPTY;
+            }
+        }
+        if (simulation == Simulation.SIMULATE) {
+            return exactExtracted;
+        }
+
+        FluidVolume reallyExtracted = extraction.commit(total);
+        if (!reallyExtracted.equals(exactExtracted)) {
+            throw FluidVolumeUtil.throwBadImplException(
+                "A simulated extraction (returning A) didn't match the real extraction (returning B) from the fluid extractable C!",
+                new String[] { "fluid A", "fluid B", "from C" },
+                new Object[] { exactExtracted, reallyExtracted, from }
+            );
+        }
+
+        return insertAllocations(from, reallyExtracted);
+    }
+
+    /** Simulates inserting the exact share that each target was allocated, and reduces each allocation to the amount
+     * that was accepted. The capacities from {@link #gatherCapacity(int, FluidVolume)} are only an estimate: targets
+     * might only accept fixed amounts (so the whole offer might fit when a smaller share doesn't), and statistics don't
+     * have to be exact.
+     * <p>
+     * Note that simulations can't see each other, so two targets that wrap the same inventory can still be allocated
+     * more than that inventory can take in total. {@link #insertAllocations(FluidExtractable, FluidVolume)} handles
+     * that case without losing any fluid.
+     *
+     * @return The total amount that will be accepted. */
+    private FluidAmount simulateAllocations(FluidVolume offered) {
+        accumulator.reset();
+        for (int i = 0; i < targets.length; i++) {
+            FluidAmount amount = allocation[i];
+            if (amount.isZero()) {
+                continue;
+            }
+            FluidVolume leftover = targets[i].attemptInsertion(offered.withAmount(amount), Simulation.SIMULATE);
+            amount = amount.roundedSub(leftover.getAmount_F());
+            allocation[i] = amount;
+            accumulator.add(amount);
+        }
+        return accumulator.toAmount();
+    }
+
+    /** Splits the given fluid between every target, in the amounts given by {@link #allocation}. Anything that a
+     * target doesn't accept (even though it accepted it when simulating) is offered to the later targets, then to every
+     * other target, and finally put back into the extractable if it's also a {@link FluidInsertable}.
+     *
+     * @return The fluid that was moved into the targets (so excluding anything that was put back). */
+    private FluidVolume insertAllocations(FluidExtractable from, FluidVolume extracted) {
+        FluidVolume remaining = extracted.copy();
+        FluidVolume excess = FluidVolumeUtil.EMPTY;
+        for (int i = 0; i < targets.length; i++) {
+            if (allocation[i].isZero()) {
+                continue;
+            }
+            FluidVolume share = mergeInto(remaining.split(allocation[i]), excess);
+            if (share.isEmpty()) {
+                break;
+            }
+            excess = targets[i].attemptInsertion(share, Simulation.ACTION);
+        }
+        remaining = mergeInto(remaining, excess);
+        if (remaining.isEmpty()) {
+            return extracted;
+        }
+
+        for (int i = 0; i < targets.length && !remaining.isEmpty(); i++) {
+            if (!allocation[i].isZero()) {
+                remaining = targets[i].attemptInsertion(remaining, Simulation.ACTION);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return extracted;
+        }
+        FluidAmount returned = remaining.getAmount_F();
+        if (from instanceof FluidInsertable) {
+            remaining = ((FluidInsertable) from).attemptInsertion(remaining, Simulation.ACTION);
+        }
+        if (!remaining.isEmpty()) {
+            throw FluidVolumeUtil.throwBadImplException(
+                "Fluid (A) that was extracted from B couldn't be inserted into any of the targets C, even though they accepted it when simulating!",
+                new String[] { "fluid A", "from B", "targets C" },
+                new Object[] { remaining, from, Arrays.asList(targets) }
+            );
+        }
+        FluidVolume moved = extracted.copy();
+        moved.split(returned);
+        return moved;
+    }
+
+    /** Moves the given fluid between all of the given tanks until they all contain the same amount of it (or as close
+     * to that as they can, if some of the tanks are too small).
+     * <p>
+     * The amount in each tank is read from {@link GroupedFluidInvView#getStatistics(FluidFilter)} once, and each tank
+     * is only extracted from or inserted into at most once.
+     *
+     * @return The total amount of fluid that was moved between tanks. */
+    public static FluidAmount equalize(List<? extends GroupedFluidInv> tanks, FluidKey fluid, Simulation simulation) {
+        int count = tanks.size();
+        if (count < 2 || fluid.isEmpty()) {
+            return FluidAmount.ZERO;
+        }
+
+        ExactFluidFilter filter = fluid.exactFilter;
+        FluidAmount[] amounts = new FluidAmount[count];
+        FluidAmount[] capacities = new FluidAmount[count];
+        FluidAmountAccumulator total = new FluidAmountAccumulator();
+        for (int i = 0; i < count; i++) {
+            GroupedFluidInv tank = tanks.get(i);
+            FluidInvStatistic stats = tank.getStatistics(filter);
+            FluidAmount space = FluidAmount.ZERO;
+            if (tank.getInsertionFilter().matches(fluid)) {
+                space = stats.spaceAddable_F;
+                if (!stats.spaceTotal_F.isNegative()) {
+                    space = space.saturatedAdd(stats.spaceTotal_F);
+                }
+            }
+            amounts[i] = stats.amount_F;
+            capacities[i] = stats.amount_F.saturatedAdd(space);
+            total.add(stats.amount_F);
+        }
+
+        FluidAmount[] targets = new FluidAmount[count];
+        allocate(total.toAmount(), capacities, null, null, targets, new int[count]);
+
+        FluidAmountAccumulator surplus = new FluidAmountAccumulator();
+        for (int i = 0; i < count; i++) {
+            if (amounts[i].isGreaterThan(targets[i])) {
+                surplus.add(amounts[i]).sub(targets[i]);
+            }
+        }
+        if (simulation == Simulation.SIMULATE || !surplus.isPositive()) {
+            return surplus.toAmount();
+        }
+
+        FluidVolume pool = FluidVolumeUtil.EMPTY;
+        for (int i = 0; i < count; i++) {
+            if (amounts[i].isGreaterThan(targets[i])) {
+                FluidAmount excess = amounts[i].roundedSub(targets[i]);
+                FluidVolume extracted = tanks.get(i).attemptExtraction(filter, excess, Simulation.ACTION);
+                pool = mergeInto(pool, extracted);
+            }
+        }
+
+        FluidAmountAccumulator moved = new FluidAmountAccumulator();
+        for (int i = 0; i < count; i++) {
+            if (pool.isEmpty()) {
+                break;
+            }
+            if (amounts[i].isLessThan(targets[i])) {
+                FluidVolume share = pool.split(targets[i].roundedSub(amounts[i]));
+                FluidVolume leftover = tanks.get(i).attemptInsertion(share, Simulation.ACTION);
+                moved.add(share.getAmount_F()).sub(leftover.getAmount_F());
+                pool = mergeInto(pool, leftover);
+            }
+        }
+
+        // Anything that didn't fit goes back to where it came from
+        for (int i = 0; i < count && !pool.isEmpty(); i++) {
+            if (amounts[i].isGreaterThan(targets[i])) {
+                pool = tanks.get(i).attemptInsertion(pool, Simulation.ACTION);
+            }
+        }
+        if (!pool.isEmpty()) {
+            throw FluidVolumeUtil.throwBadImplException(
+                "Failed to put fluid (A) back into the tanks (B) that it was extracted from!",
+                new String[] { "fluid A", "tanks B" },
+                new Object[] { pool, tanks }
+            );
+        }
+        return moved.toAmount();
+    }
+
+    private static FluidVolume mergeInto(FluidVolume pool, FluidVolume with) {
+        FluidVolume merged = FluidVolume.merge(pool, with);
+        if (merged == null) {
+            throw new IllegalStateException("Unable to merge " + with + " into " + pool);
+        }
+        return merged;
+    }
+
+    /** Splits the given total between every entry, either evenly or by the given weights, without going over the
+     * capacity of any entry or giving an entry less than its minimum (unless that entry gets nothing).
+     *
+     * @param dest The array to put the allocation into.
+     * @param active Scratch space, with the same length as the capacities.
+     * @return The total amount that was allocated. */
+    static FluidAmount allocate(
+        FluidAmount total, FluidAmount[] capacities, @Nullable FluidAmount[] minimums, @Nullable FluidAmount[] weights,
+        FluidAmount[] dest, int[] active
+    ) {
+        int count = capacities.length;
+        int activeCount = 0;
+        Arrays.fill(dest, FluidAmount.ZERO);
+        for (int i = 0; i < count; i++) {
+            if (capacities[i].isPositive() && (weights == null || weights[i].isPositive())) {
+                active[activeCount++] = i;
+            }
+        }
+
+        FluidAmount remaining = total;
+        FluidAmount[] activeWeights = weights == null ? null : new FluidAmount[activeCount];
+        while (activeCount > 0 && remaining.isPositive()) {
+            FluidAmount[] shares;
+            if (activeWeights == null) {
+                shares = remaining.splitBalanced(activeCount);
+            } else {
+                if (activeWeights.length != activeCount) {
+                    activeWeights = new FluidAmount[activeCount];
+                }
+                for (int k = 0; k < activeCount; k++) {
+                    activeWeights[k] = weights[active[k]];
+                }
+                shares = remaining.splitRatio(activeWeights);
+            }
+
+            // Fill up every entry whose share won't fit, and then split whatever is left between the others
+            int kept = 0;
+            for (int k = 0; k < activeCount; k++) {
+                int i = active[k];
+                if (shares[k].isGreaterThanOrEqual(capacities[i])) {
+                    dest[i] = capacities[i];
+                    remaining = remaining.roundedSub(capacities[i]);
+                } else {
+                    active[kept] = i;
+                    shares[kept] = shares[k];
+                    kept++;
+                }
+            }
+            if (kept != activeCount) {
+                activeCount = kept;
+                continue;
+            }
+
+            // Drop every entry that would get less than its minimum
+            if (minimums != null) {
+                kept = 0;
+                for (int k = 0; k < activeCount; k++) {
+                    int i = active[k];
+                    FluidAmount min = minimums[i];
+                    if (min == null || !shares[k].isLessThan(min)) {
+                        active[kept] = i;
+                        shares[kept] = shares[k];
+                        kept++;
+                    }
+                }
+                if (kept != activeCount) {
+                    activeCount = kept;
+                    continue;
+                }
+            }
+
+            for (int k = 0; k < activeCount; k++) {
+                dest[active[k]] = shares[k];
+            }
+            remaining = FluidAmount.ZERO;
+        }
+        return total.roundedSub(remaining);
+    }
+}
@@ -19,6 +19,7 @@ import alexiil.mc.lib.attributes.fluid.filter.ConstantFluidFilter;
 import alexiil.mc.lib.attributes.fluid.filter.ExactFluidFilter;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
 import alexiil.mc.lib.attributes.fluid.impl.FilteredFluidExtractable;
+import alexiil.mc.lib.attributes.fluid.impl.SimulatedFluidExtraction;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 import alexiil.mc.lib.attributes.item.ItemStackUtil;
@@ -191,6 +192,23 @@ public interface FluidExtractable {
         return attemptExtraction(ConstantFluidFilter.ANYTHING, maxAmount, Simulation.ACTION);
     }
 
+    /** Begins a transactional extraction of any fluid that matches the given filter, up to the given maximum amount.
+     * Nothing is extracted until {@link FluidExtractionTransaction#commit(FluidAmount)} is called on the returned
+     * transaction.
+     * <p>
+     * The default implementation simulates the extraction, and then performs the real extraction when it's committed
+     * (without allowing partial commits). Implementations that can always extract any smaller amount of the same fluid
+     * should override this to {@link FluidExtractionTransaction#allowsPartialCommit() allow partial commits}, as that
+     * lets {@link FluidVolumeUtil#move(FluidExtractable, FluidInsertable, FluidFilter, FluidAmount, Simulation)} move
+     * fluid without any further simulation.
+     * 
+     * @param maxAmount The maximum amount of fluid that can be extracted. Negative numbers throw an exception.
+     * @return A transaction for the extraction, or {@link FluidExtractionTransaction#EMPTY} if nothing could be
+     *         extracted. */
+    default FluidExtractionTransaction beginExtraction(FluidFilter filter, FluidAmount maxAmount) {
+        return SimulatedFluidExtraction.begin(this, filter, maxAmount, false);
+    }
+
     /** @return True if {@link #attemptAnyExtraction(FluidAmount, Simulation) attemptAnyExtraction}(FluidAmount.ONE,
      *         SIMULATE) returns a non-empty {@link FluidVolume}. */
     default boolean couldExtractAnything() {
@@ -248,6 +266,11 @@ public interface FluidExtractable {
             public FluidVolume attemptAnyExtraction(FluidAmount maxAmount, Simulation simulation) {
                 return delegate.attemptAnyExtraction(maxAmount, simulation);
             }
+
+            @Override
+            public FluidExtractionTransaction beginExtraction(FluidFilter filter, FluidAmount maxAmount) {
+                return delegate.beginExtraction(filter, maxAmount);
+            }
         };
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid;
+
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+/** A pending extraction from a {@link FluidExtractable}, returned by
+ * {@link FluidExtractable#beginExtraction(FluidFilter, FluidAmount)}.
+ * <p>
+ * Nothing is actually extracted until {@link #commit(FluidAmount)} is called, so a transaction that is never committed
+ * can just be dropped. The extractable must not be modified between beginning the transaction and committing it. */
+public interface FluidExtractionTransaction {
+
+    /** A transaction with nothing to extract. */
+    public static final FluidExtractionTransaction EMPTY = new FluidExtractionTransaction() {
+        @Override
+        public FluidVolume getFluid() {
+            return FluidVolumeUtil.EMPTY;
+        }
+
+        @Override
+        public boolean allowsPartialCommit() {
+            return true;
+        }
+
+        @Override
+        public FluidVolume commit(FluidAmount amount) {
+            return FluidVolumeUtil.EMPTY;
+        }
+
+        @Override
+        public String toString() {
+            return "FluidExtractionTransaction.EMPTY";
+        }
+    };
+
+    /** @return The fluid that is available to be extracted. This must not be modified! */
+    FluidVolume getFluid();
+
+    /** @return True if {@link #commit(FluidAmount)} will extract exactly the given amount for every amount between 0
+     *         and the amount of {@link #getFluid()}. If this returns false then only committing the full amount is
+     *         guaranteed to succeed, and callers must check smaller amounts with a simulated extraction first. */
+    boolean allowsPartialCommit();
+
+    /** Actually extracts the given amount of {@link #getFluid()} from the extractable.
+     *
+     * @param amount The amount to extract. Must not be greater than the amount of {@link #getFluid()}.
+     * @return A new, independent {@link FluidVolume} that was extracted. */
+    FluidVolume commit(FluidAmount amount);
+}
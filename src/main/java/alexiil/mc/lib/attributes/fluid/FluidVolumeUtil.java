@@ -35,6 +35,14 @@ public final class FluidVolumeUtil {
 
     public static final FluidVolume EMPTY = FluidKeys.EMPTY.withAmount(FluidAmount.ZERO);
 
+    /** The last filters combined by
+     * {@link #move(FluidExtractable, FluidInsertable, FluidFilter, FluidAmount, Simulation) move}, per thread. Pipes
+     * and machines generally move fluid between the same pair of objects with the same filter every tick, so this
+     * avoids creating a new {@link AggregateFluidFilter} every time. Only the last pair is kept, so this never keeps
+     * more than a single pair of filters alive per thread. */
+    private static final ThreadLocal<CombinedFilterCache> COMBINED_FILTERS
+        = ThreadLocal.withInitial(CombinedFilterCache::new);
+
     /** Attempts to move as much fluid as possible from the {@link FluidExtractable} to the {@link FluidInsertable}.
      * 
      * @return A copy of the fluid moved.
@@ -130,16 +138,61 @@ public final class FluidVolumeUtil {
     ) {
         FluidFilter insertionFilter = to.getInsertionFilter();
         if (filter != null && filter != ConstantFluidFilter.ANYTHING) {
-            insertionFilter = AggregateFluidFilter.and(insertionFilter, filter);
+            insertionFilter = COMBINED_FILTERS.get().and(insertionFilter, filter);
         }
         if (maximum == null) {
             maximum = FluidAmount.MAX_BUCKETS;
         }
 
-        // 5 steps:
-        // 1: (Simulate) Try to extract as much as possible, to find out the maximum amount of fluid available
+        // Step 1: Find out the maximum amount of fluid available
+        FluidExtractionTransaction extraction = from.beginExtraction(insertionFilter, maximum);
+        FluidVolume extracted = extraction.getFluid();
+        if (extracted.isEmpty()) {
+            return EMPTY;
+        }
+        ExactFluidFilter keyFilter = extracted.fluidKey.exactFilter;
+
+        if (extraction.allowsPartialCommit()) {
+            // The extractable can give us any amount up to what it offered, so we don't need to simulate extracting
+            // the amount that will be accepted:
+            // 2: (Simulate) Try to insert as much of the extracted as possible
+            // 3: Commit the extraction of exactly the amount that was accepted
+            // 4: Insert the fluid that was really extracted
+            FluidVolume leftover = to.attemptInsertion(extracted, Simulation.SIMULATE);
+            FluidAmount inserted = extracted.getAmount_F().roundedSub(leftover.getAmount_F());
+            if (!inserted.isPositive()) {
+                return EMPTY;
+            }
+            if (simulation == Simulation.SIMULATE) {
+                return extracted.withAmount(inserted);
+            }
+            FluidVolume reallyExtracted = extraction.commit(inserted);
+            if (reallyExtracted.isEmpty()) {
+                return EMPTY;
+            }
+            FluidAmount extractedAmount = reallyExtracted.getAmount_F();
+            if (reallyExtracted.fluidKey != extracted.fluidKey || extractedAmount.isGreaterThan(inserted)) {
+                throw throwBadImplException(
+                    "A fluid extraction transaction (offering A) extracted C rather than the accepted amount (B) from the fluid extractable D!",
+                    new String[] { "offered A", "accepted B", "extracted C", "from D", "transaction E" },
+                    new Object[] { extracted, inserted, reallyExtracted, from, extraction }
+                );
+            }
+            // Less than the accepted amount will always fit
+            FluidVolume realLeftover = to.attemptInsertion(reallyExtracted, Simulation.ACTION);
+            if (realLeftover.isEmpty()) {
+                return reallyExtracted;
+            }
+            throw throwBadImplException(
+                "A simulated insertion (of A returning B) didn't match the real insertion (of C returning D) into the fluid insertable E!",
+                new String[] { "inserted A", "result B", "inserted C", "result D", "insertable E" },
+                new Object[] { extracted, leftover, reallyExtracted, realLeftover, to }
+            );
+        }
+
+        // Otherwise we have to check everything first:
         // 2: (Simulate) Try to insert as much of the extracted as possible
-        // 3: (Simulate) Try to extract the exact amount that was actually inserted
+        // 3: (Simulate) If only part of it was accepted then try to extract that exact amount
         /* We don't need to simulate inserting the exact amount because it should always be safe to insert the amount
          * minus the result. */
         // If all of the above steps provide an exact amount > 0:
@@ -147,12 +200,6 @@ public final class FluidVolumeUtil {
         // 5: Insert the exact fluid.
         // and assert that there is no result.
 
-        // Step 1:
-        FluidVolume extracted = from.attemptExtraction(insertionFilter, maximum, Simulation.SIMULATE);
-        if (extracted.isEmpty()) {
-            return EMPTY;
-        }
-
         // Step 2:
         FluidVolume firstLeftover = to.attemptInsertion(extracted, Simulation.SIMULATE);
         FluidAmount firstInserted = extracted.getAmount_F().roundedSub(firstLeftover.getAmount_F());
@@ -161,14 +208,17 @@ public final class FluidVolumeUtil {
         }
 
         // Step 3:
-        ExactFluidFilter keyFilter = extracted.fluidKey.exactFilter;
-        FluidVolume exactExtracted = from.attemptExtraction(keyFilter, firstInserted, Simulation.SIMULATE);
-        if (!exactExtracted.getAmount_F().equals(firstInserted)) {
-            return EMPTY;
+        FluidVolume exactExtracted = extracted;
+        if (!firstLeftover.isEmpty()) {
+            exactExtracted = from.attemptExtraction(keyFilter, firstInserted, Simulation.SIMULATE);
+            if (!exactExtracted.getAmount_F().equals(firstInserted)) {
+                return EMPTY;
+            }
         }
 
         // Step 4:
-        FluidVolume reallyExtracted = from.attemptExtraction(keyFilter, firstInserted, simulation);
+        FluidVolume reallyExtracted = simulation == Simulation.ACTION ? extraction.commit(firstInserted)
+            : from.attemptExtraction(keyFilter, firstInserted, simulation);
         if (!reallyExtracted.equals(exactExtracted)) {
             throw throwBadImplException(
                 "A simulated extraction (returning A) didn't match the real extraction (returning B) from the fluid extractable C!",
@@ -590,7 +640,7 @@ public final class FluidVolumeUtil {
     // Private Util
     // #######################
 
-    private static IllegalStateException throwBadImplException(String reason, String[] names, Object[] objs) {
+    static IllegalStateException throwBadImplException(String reason, String[] names, Object[] objs) {
         String detail = "\n";
         int max = Math.max(names.length, objs.length);
         for (int i = 0; i < max; i++) {
@@ -601,4 +651,25 @@ public final class FluidVolumeUtil {
         }
         throw new IllegalStateException(reason + detail);
     }
+
+    private static final class CombinedFilterCache {
+        FluidFilter insertionFilter;
+        FluidFilter filter;
+        FluidFilter combined;
+
+        FluidFilter and(FluidFilter insertionFilter, FluidFilter filter) {
+            if (insertionFilter == this.insertionFilter && filter == this.filter) {
+                return combined;
+            }
+            FluidFilter result = AggregateFluidFilter.and(insertionFilter, filter);
+            // Anything else was either free to compute, or came from testing one filter against the other (which
+            // might not give the same answer next time)
+            if (result instanceof AggregateFluidFilter) {
+                this.insertionFilter = insertionFilter;
+                this.filter = filter;
+                this.combined = result;
+            }
+            return result;
+        }
+    }
 }
@@ -45,6 +45,10 @@ public final class LbaFluidsConfig {
     /** If true then we put the fluid name in the middle of the text, false to put the fluid name at the top. */
     public static final boolean TOOLTIP_JOIN_NAME_AMOUNT;
 
+    /** The maximum number of different values that a single WeightedFluidVolume will keep track of before it starts
+     * folding the smallest weights together. Always between 1 and 255. */
+    public static final int WEIGHTED_FLUID_MAX_VALUES;
+
     static {
         FabricLoader fabric = FabricLoader.getInstance();
         final Path cfgDir;
@@ -108,6 +112,9 @@ public final class LbaFluidsConfig {
         hasAll &= props.containsKey("tooltip_join_name_amount");
         TOOLTIP_JOIN_NAME_AMOUNT = "true".equalsIgnoreCase(props.getProperty("tooltip_join_name_amount", "false"));
 
+        hasAll &= props.containsKey("weighted_fluid_max_values");
+        WEIGHTED_FLUID_MAX_VALUES = parseInt(props.getProperty("weighted_fluid_max_values"), 16, 1, 255);
+
         if (!hasAll) {
             try (
                 Writer fw = Files.newBufferedWriter(
@@ -157,9 +164,27 @@ public final class LbaFluidsConfig {
                     fw.append("tooltip_join_name_amount=false\n\n");
                 }
 
+                if (!props.containsKey("weighted_fluid_max_values")) {
+                    fw.append("# The maximum number of sources (like biomes) that a weighted fluid will remember.\n");
+                    fw.append("# When more are added the smallest ones are folded together. (Between 1 and 255)\n");
+                    fw.append("weighted_fluid_max_values=16\n\n");
+                }
+
             } catch (IOException e) {
                 LibBlockAttributes.LOGGER.warn("[config] Failed to write the config file!", e);
             }
         }
     }
+
+    private static int parseInt(String value, int def, int min, int max) {
+        if (value == null) {
+            return def;
+        }
+        try {
+            return Math.max(min, Math.min(max, Integer.parseInt(value.trim())));
+        } catch (NumberFormatException e) {
+            LibBlockAttributes.LOGGER.warn("[config] Expected an integer, but got '" + value + "'");
+            return def;
+        }
+    }
 }
@@ -13,8 +13,13 @@ import java.util.Arrays;
 
 import javax.annotation.Nullable;
 
+import com.google.common.math.LongMath;
+
 /** Exact version of {@link FluidAmount}. This is generally intended for calculations if the end result should fit into
- * a {@link FluidAmount}, but the intermediate steps might not. */
+ * a {@link FluidAmount}, but the intermediate steps might not.
+ * <p>
+ * Values that fit into a {@link FluidAmount} are also stored inline as long's, so arithmetic between them can skip
+ * {@link BigInteger} maths entirely. */
 // Currently this isn't exposed through the API - one alternative might be to create
 // "interface IFluidAmount", and then make this extend that.
 // (And that interface would have the standard methods for add/sub/mul/div/etc)
@@ -29,22 +34,112 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
     public static final BigFluidAmount BUCKET = ONE;
     public static final BigFluidAmount BOTTLE = FluidAmount.BOTTLE.asBigInt();
 
-    public final BigInteger whole;
-    public final BigInteger numerator;
+    /** The {@link BigInteger} form of this value. These are only created when they are first needed if this is
+     * {@link #small}, so they must only be read through {@link #whole()}, {@link #numerator()} and
+     * {@link #denominator()} unless this is known to be big. (It's safe for multiple threads to create these at the
+     * same time, as every thread will create an equal value). */
+    private BigInteger bigWhole, bigNumerator, bigDenominator;
+
+    /** True if this fits into a {@link FluidAmount}, in which case the "small" fields hold the exact value, in the
+     * same (reduced) form as FluidAmount. */
+    private final boolean small;
+    private final long smallWhole;
+    private final long smallNumerator;
+    private final long smallDenominator;
+
+    /** Only use this if the given values don't all fit into long's. */
+    private BigFluidAmount(BigInteger whole, BigInteger numerator, BigInteger denominator) {
+        this.bigWhole = whole;
+        this.bigNumerator = numerator;
+        this.bigDenominator = denominator;
+        this.small = false;
+        this.smallWhole = 0;
+        this.smallNumerator = 0;
+        this.smallDenominator = 1;
+    }
+
+    /** The values must already be in their reduced form. */
+    private BigFluidAmount(long whole, long numerator, long denominator) {
+        this.small = true;
+        this.smallWhole = whole;
+        this.smallNumerator = numerator;
+        this.smallDenominator = denominator;
+    }
 
-    /** Always greater than 0. */
-    public final BigInteger denominator;
+    public BigFluidAmount(FluidAmount from) {
+        this(from.whole, from.numerator, from.denominator);
+    }
 
-    /* package-private */ BigFluidAmount(BigInteger whole, BigInteger numerator, BigInteger denominator) {
-        this.whole = whole;
-        this.numerator = numerator;
-        this.denominator = denominator;
+    /** @return The whole part of this amount. */
+    public BigInteger whole() {
+        BigInteger value = bigWhole;
+        if (value == null) {
+            bigWhole = value = BigInteger.valueOf(smallWhole);
+        }
+        return value;
     }
 
-    public BigFluidAmount(FluidAmount from) {
-        this.whole = from._bigWhole();
-        this.numerator = from._bigNumerator();
-        this.denominator = from._bigDenominator();
+    /** @return The numerator of the fractional part of this amount. */
+    public BigInteger numerator() {
+        BigInteger value = bigNumerator;
+        if (value == null) {
+            bigNumerator = value = BigInteger.valueOf(smallNumerator);
+        }
+        return value;
+    }
+
+    /** @return The denominator of the fractional part of this amount. Always positive. */
+    public BigInteger denominator() {
+        BigInteger value = bigDenominator;
+        if (value == null) {
+            bigDenominator = value = BigInteger.valueOf(smallDenominator);
+        }
+        return value;
+    }
+
+    /** Creates a {@link BigFluidAmount} from already-reduced values, storing them inline if they fit. */
+    private static BigFluidAmount create(BigInteger whole, BigInteger numerator, BigInteger denominator) {
+        if (whole.bitLength() < 64 && numerator.bitLength() < 64 && denominator.bitLength() < 64) {
+            return new BigFluidAmount(whole.longValue(), numerator.longValue(), denominator.longValue());
+        }
+        return new BigFluidAmount(whole, numerator, denominator);
+    }
+
+    /** Long-only equivalent of {@link #of(BigInteger, BigInteger, BigInteger)}, for internal callers that have already
+     * checked their values for overflow.
+     *
+     * @return The reduced value, or null if the whole value would overflow while rebalancing. */
+    @Nullable
+    static BigFluidAmount tryOfSmall(long whole, long numerator, long denominator) {
+        if (Math.abs(numerator) >= denominator) {
+            whole = LongMath.saturatedAdd(whole, numerator / denominator);
+            if (whole == Long.MIN_VALUE || whole == Long.MAX_VALUE) {
+                return null;
+            }
+            numerator %= denominator;
+        }
+
+        if (whole < 0 && numerator > 0) {
+            whole++;
+            numerator = numerator - denominator;
+        } else if (whole > 0 && numerator < 0) {
+            whole--;
+            numerator = denominator + numerator;
+        }
+
+        if (numerator < 0) {
+            long gcd = LongMath.gcd(-numerator, denominator);
+            numerator /= gcd;
+            denominator /= gcd;
+        } else if (numerator > 0) {
+            long gcd = LongMath.gcd(numerator, denominator);
+            numerator /= gcd;
+            denominator /= gcd;
+        } else /* numerator == 0 */ {
+            denominator = 1;
+        }
+
+        return new BigFluidAmount(whole, numerator, denominator);
     }
 
     // Construction
@@ -65,6 +160,12 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
             throw new IllegalArgumentException("The denominator (" + denominator + ") must be positive!");
         }
 
+        if (numerator.abs().compareTo(denominator) >= 0) {
+            BigInteger[] divRem = numerator.divideAndRemainder(denominator);
+            whole = whole.add(divRem[0]);
+            numerator = divRem[1];
+        }
+
         if (whole.signum() < 0 && numerator.signum() > 0) {
             whole = whole.add(BigInteger.valueOf(1));
             numerator = numerator.subtract(denominator);
@@ -73,12 +174,6 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
             numerator = denominator.add(numerator);
         }
 
-        if (numerator.abs().compareTo(denominator) >= 0) {
-            BigInteger[] divRem = numerator.divideAndRemainder(denominator);
-            whole = whole.add(divRem[0]);
-            numerator = divRem[1];
-        }
-
         if (numerator.signum() < 0) {
             BigInteger gcd = numerator.negate().gcd(denominator);
             numerator = numerator.divide(gcd);
@@ -91,42 +186,50 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
             denominator = BigInteger.ONE;
         }
 
-        return new BigFluidAmount(whole, numerator, denominator);
+        return create(whole, numerator, denominator);
     }
 
     // Properties
 
     @Override
     public boolean isZero() {
-        return whole.equals(BigInteger.ZERO) && numerator.equals(BigInteger.ZERO);
+        if (small) {
+            return smallWhole == 0 && smallNumerator == 0;
+        }
+        return whole().signum() == 0 && numerator().signum() == 0;
     }
 
     @Override
     public boolean isNegative() {
-        return whole.signum() < 0 || numerator.signum() < 0;
+        return sign() < 0;
     }
 
     @Override
     public boolean isPositive() {
-        return whole.signum() > 0 || numerator.signum() > 0;
+        return sign() > 0;
     }
 
     /** @return The sign: Either -1 if this is negative, +1 if this is positive, or 0 if this is zero. */
     @Override
     public int sign() {
-        if (whole.signum() != 0) {
-            return whole.signum();
+        if (small) {
+            if (smallWhole != 0) {
+                return Long.signum(smallWhole);
+            }
+            return Long.signum(smallNumerator);
+        }
+        if (whole().signum() != 0) {
+            return whole().signum();
         }
-        return numerator.signum();
+        return numerator().signum();
     }
 
     @Override
     public BigFluidAmount getDivisor() {
-        if (denominator.equals(BigInteger.ONE)) {
-            return ONE;
-        } else {
-            return new BigFluidAmount(BigInteger.ZERO, BigInteger.ONE, denominator);
+        if (small) {
+            return smallDenominator == 1 ? ONE : new BigFluidAmount(0, 1, smallDenominator);
         }
+        return new BigFluidAmount(BigInteger.ZERO, BigInteger.ONE, denominator());
     }
 
     @Override
@@ -138,7 +241,13 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
 
     @Override
     public BigFluidAmount negate() {
-        return new BigFluidAmount(whole.negate(), numerator.negate(), denominator);
+        if (small) {
+            if (smallWhole != Long.MIN_VALUE) {
+                return new BigFluidAmount(-smallWhole, -smallNumerator, smallDenominator);
+            }
+            // Negating MIN_VALUE overflows, so it has to be promoted
+        }
+        return create(whole().negate(), numerator().negate(), denominator());
     }
 
     @Override
@@ -149,14 +258,16 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
     /** @throws ArithmeticException if the given values don't fit in a {@link FluidAmount} */
     @Override
     public FluidAmount asLongIntExact() {
-        return _toSmall(whole, numerator, denominator);
+        if (small) {
+            return FluidAmount.createDirect(smallWhole, smallNumerator, smallDenominator);
+        }
+        return _toSmall(whole(), numerator(), denominator());
     }
 
     /** @return True if {@link #asLongIntExact()} will not throw an arithmetic exception. */
     public boolean fitsInLongInt() {
-        // I *think* this is ok?
-        // as BigInteger checks mag.length as well, but I think that's just an optimisation?
-        return whole.bitLength() < 64 && numerator.bitLength() < 64 && denominator.bitLength() < 64;
+        // Every value that fits is stored inline
+        return small;
     }
 
     /** Converts this into a normal long-based {@link FluidAmount}. If this is too big to fit then this returns either
@@ -200,11 +311,11 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
             );
         }
 
-        if (whole.bitLength() >= 64) {
+        if (whole().bitLength() >= 64) {
             return isNegative() ? FluidAmount.MIN_BUCKETS : FluidAmount.MAX_BUCKETS;
         }
 
-        long w = whole.longValue();
+        long w = whole().longValue();
 
         // Okay, so:
         // We need to round N1/D1 (this) to N2/D2, where D2 < Long.MAX_VALUE
@@ -215,10 +326,10 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
         // ...for now we'll just divide the divisor by 2 to the power of whatever is necessary
 
         // TODO: Use the rounding mode!
-        int bits = denominator.bitLength();
+        int bits = denominator().bitLength();
         assert bits > 63;
-        BigInteger shiftedD = denominator.shiftRight(bits - 63);
-        BigInteger shiftedN = numerator.shiftRight(bits - 63);
+        BigInteger shiftedD = denominator().shiftRight(bits - 63);
+        BigInteger shiftedN = numerator().shiftRight(bits - 63);
         assert shiftedD.bitLength() <= 63;
         assert shiftedN.bitLength() <= 63;
         return FluidAmount.of(w, shiftedN.longValue(), shiftedD.longValue());
@@ -233,7 +344,21 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
         if (by == 0) {
             return this;
         }
-        return of(whole.add(BigInteger.valueOf(by)), numerator, denominator);
+        if (small) {
+            long w = LongMath.saturatedAdd(smallWhole, by);
+            if (w != Long.MIN_VALUE && w != Long.MAX_VALUE) {
+                if (smallNumerator == 0 || (w < 0) == (smallNumerator < 0) && w != 0) {
+                    // Already normalised
+                    return new BigFluidAmount(w, smallNumerator, smallDenominator);
+                }
+                // The whole value changed sign (or became zero), so the numerator needs rebalancing
+                BigFluidAmount value = tryOfSmall(w, smallNumerator, smallDenominator);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return of(whole().add(BigInteger.valueOf(by)), numerator(), denominator());
     }
 
     public BigFluidAmount add(@Nullable BigFluidAmount by) {
@@ -367,12 +492,15 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(new BigInteger[] { whole, numerator, denominator });
+        if (small) {
+            return Arrays.hashCode(new long[] { smallWhole, smallNumerator, smallDenominator });
+        }
+        return Arrays.hashCode(new BigInteger[] { whole(), numerator(), denominator() });
     }
 
     @Override
     public String toString() {
-        return "{BigFluidAmount " + whole + " + " + numerator + "/" + denominator + "}";
+        return "{BigFluidAmount " + whole() + " + " + numerator() + "/" + denominator() + "}";
     }
 
     // Comparison
@@ -380,7 +508,13 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
     /** @return True if the number that this {@link FluidAmount} represents is equal to the number that the given
      *         {@link FluidAmount} represents. */
     public boolean equals(BigFluidAmount other) {
-        return whole.equals(other.whole) && numerator.equals(other.numerator) && denominator.equals(other.denominator);
+        if (small) {
+            // Values that fit are always inline, so a big value can never be equal to a small one
+            return other.small && smallWhole == other.smallWhole
+                && smallNumerator == other.smallNumerator && smallDenominator == other.smallDenominator;
+        }
+        return !other.small && bigWhole.equals(other.bigWhole)
+            && bigNumerator.equals(other.bigNumerator) && bigDenominator.equals(other.bigDenominator);
     }
 
     @Override
@@ -388,37 +522,67 @@ public final class BigFluidAmount extends FluidAmountBase<BigFluidAmount> {
         if (o == null) {
             return sign();
         }
-        if (!whole.equals(o.whole)) {
-            return whole.compareTo(o.whole);
+        if (small && o.small) {
+            return _compareSmall(
+                smallWhole, smallNumerator, smallDenominator, o.smallWhole, o.smallNumerator, o.smallDenominator
+            );
+        }
+        BigInteger oWhole = o.whole();
+        if (!whole().equals(oWhole)) {
+            return whole().compareTo(oWhole);
         }
-        if (denominator.equals(o.denominator)) {
-            return numerator.compareTo(o.numerator);
+        BigInteger oDenominator = o.denominator();
+        if (denominator().equals(oDenominator)) {
+            return numerator().compareTo(o.numerator());
         }
-        BigInteger a = numerator.multiply(o.denominator);
-        BigInteger b = o.numerator.multiply(denominator);
+        BigInteger a = numerator().multiply(oDenominator);
+        BigInteger b = o.numerator().multiply(denominator());
         return a.compareTo(b);
     }
 
     @Override
     public double asInexactDouble() {
-        return whole.doubleValue() + numerator.doubleValue() / denominator.doubleValue();
+        if (small) {
+            return smallWhole + smallNumerator / (double) smallDenominator;
+        }
+        return whole().doubleValue() + numerator().doubleValue() / denominator().doubleValue();
     }
 
     // Internal
 
     @Override
     BigInteger _bigWhole() {
-        return whole;
+        return whole();
     }
 
     @Override
     BigInteger _bigNumerator() {
-        return numerator;
+        return numerator();
     }
 
     @Override
     BigInteger _bigDenominator() {
-        return denominator;
+        return denominator();
+    }
+
+    @Override
+    boolean _isSmall() {
+        return small;
+    }
+
+    @Override
+    long _smallWhole() {
+        return smallWhole;
+    }
+
+    @Override
+    long _smallNumerator() {
+        return smallNumerator;
+    }
+
+    @Override
+    long _smallDenominator() {
+        return smallDenominator;
     }
 
     @Override
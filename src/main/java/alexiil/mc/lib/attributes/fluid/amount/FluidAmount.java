@@ -21,7 +21,11 @@ import com.google.gson.JsonSyntaxException;
 
 import io.netty.buffer.ByteBuf;
 
+import net.minecraft.nbt.AbstractNbtNumber;
 import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtLong;
+import net.minecraft.nbt.NbtLongArray;
 import net.minecraft.network.PacketByteBuf;
 
 /** A simple mixed fraction. The value represented by this can be calculated with this: "{@link #whole} +
@@ -34,6 +38,26 @@ import net.minecraft.network.PacketByteBuf;
 /* openjdk.jep.390.@ValueBased */
 public final class FluidAmount extends FluidAmountBase<FluidAmount> {
 
+    // Interning caches
+    // These must be declared before every constant, as they are used by createDirect.
+
+    /** The largest whole amount (in buckets) that will be interned by {@link #createDirect(long, long, long)}. */
+    private static final int INTERNED_WHOLE_MAX = 1024;
+
+    /** The denominator used by the fractional interning cache. Every fraction between 0 and 1 whose (reduced)
+     * denominator divides this is interned: as 81000 = 2^3 * 3^4 * 5^3 this includes bottles (1/3), 1000ths, 1620ths,
+     * and 81000ths. */
+    private static final long INTERNED_FRACTION_BASE = 81000;
+
+    /** Lazily populated cache of every whole amount between 0 and {@link #INTERNED_WHOLE_MAX} (inclusive). As
+     * {@link FluidAmount} is immutable (and all of it's fields are final) it's safe for other threads to race on
+     * this. */
+    private static final FluidAmount[] INTERNED_WHOLES = new FluidAmount[INTERNED_WHOLE_MAX + 1];
+
+    /** Lazily populated cache of every "k/{@link #INTERNED_FRACTION_BASE}" (where k is between 1 and base-1), indexed
+     * by k. */
+    private static final FluidAmount[] INTERNED_FRACTIONS = new FluidAmount[(int) INTERNED_FRACTION_BASE];
+
     public static final FluidAmount ZERO = ofWhole(0);
     public static final FluidAmount ONE = ofWhole(1);
     public static final FluidAmount NEGATIVE_ONE = ofWhole(-1);
@@ -127,6 +151,14 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
             throw new IllegalArgumentException("The denominator (" + denominator + ") must be positive!");
         }
 
+        // The numerator must be brought within range before fixing the signs,
+        // otherwise (for example) "2 - 5/2" would end up as "1 - 3/2"
+        if (Math.abs(numerator) >= denominator) {
+            long val = numerator / denominator;
+            whole += val;
+            numerator %= denominator;
+        }
+
         if (whole < 0 && numerator > 0) {
             whole++;
             numerator = numerator - denominator;
@@ -135,12 +167,6 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
             numerator = denominator + numerator;
         }
 
-        if (Math.abs(numerator) >= denominator) {
-            long val = numerator / denominator;
-            whole += val;
-            numerator %= denominator;
-        }
-
         if (numerator < 0) {
             long gcd = LongMath.gcd(-numerator, denominator);
             numerator /= gcd;
@@ -575,7 +601,28 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
         }
     }
 
+    /** Creates a {@link FluidAmount} from values that are already in their simplest form. Common small amounts (every
+     * whole amount up to {@link #INTERNED_WHOLE_MAX} buckets, and any fraction of a bucket that's a multiple of
+     * 1/{@link #INTERNED_FRACTION_BASE}) are interned, so this won't allocate a new object for those. */
     /* package-private */ static FluidAmount createDirect(long whole, long numerator, long denominator) {
+        if (numerator == 0) {
+            if (whole >= 0 && whole <= INTERNED_WHOLE_MAX) {
+                FluidAmount amount = INTERNED_WHOLES[(int) whole];
+                if (amount == null) {
+                    amount = new FluidAmount(whole, 0, 1);
+                    INTERNED_WHOLES[(int) whole] = amount;
+                }
+                return amount;
+            }
+        } else if (whole == 0 && numerator > 0 && INTERNED_FRACTION_BASE % denominator == 0) {
+            int index = (int) (numerator * (INTERNED_FRACTION_BASE / denominator));
+            FluidAmount amount = INTERNED_FRACTIONS[index];
+            if (amount == null) {
+                amount = new FluidAmount(0, numerator, denominator);
+                INTERNED_FRACTIONS[index] = amount;
+            }
+            return amount;
+        }
         return new FluidAmount(whole, numerator, denominator);
     }
 
@@ -602,6 +649,35 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
         return tag;
     }
 
+    /** Reads a {@link FluidAmount} that was written by either {@link #toNbt()} or {@link #toCompactNbt()}.
+     *
+     * @param tag The tag to read from. If this is null (or an unknown type of tag) then this returns {@link #ZERO}. */
+    public static FluidAmount fromNbt(@Nullable NbtElement tag) {
+        if (tag instanceof NbtCompound) {
+            return fromNbt((NbtCompound) tag);
+        } else if (tag instanceof AbstractNbtNumber) {
+            return ofWhole(((AbstractNbtNumber) tag).longValue());
+        } else if (tag instanceof NbtLongArray) {
+            long[] array = ((NbtLongArray) tag).getLongArray();
+            if (array.length == 3) {
+                return of(array[0], array[1], Math.max(1, array[2]));
+            } else if (array.length == 1) {
+                return ofWhole(array[0]);
+            }
+        }
+        return ZERO;
+    }
+
+    /** Writes this {@link FluidAmount} to a smaller form than {@link #toNbt()}: whole amounts are written as a single
+     * {@link NbtLong}, and fractions are written as a {@link NbtLongArray} of the whole, numerator, and denominator.
+     * This can only be read back with {@link #fromNbt(NbtElement)}. */
+    public NbtElement toCompactNbt() {
+        if (numerator == 0) {
+            return NbtLong.of(whole);
+        }
+        return new NbtLongArray(new long[] { whole, numerator, denominator });
+    }
+
     /** Reads a {@link FluidAmount} from a standard netty {@link ByteBuf}, using 3 {@link ByteBuf#readLong() longs}. */
     public static FluidAmount fromStdBuffer(ByteBuf buffer) {
         long w = buffer.readLong();
@@ -635,6 +711,57 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
         buffer.writeVarLong(denominator);
     }
 
+    /** Reads a {@link FluidAmount} that was written by {@link #toCompactBuffer(ByteBuf)}. */
+    public static FluidAmount fromCompactBuffer(ByteBuf buffer) {
+        long d = Math.max(1, readVarLong(buffer));
+        long w = decodeZigZag(readVarLong(buffer));
+        long n = d == 1 ? 0 : decodeZigZag(readVarLong(buffer));
+        return of(w, n, d);
+    }
+
+    /** Writes this {@link FluidAmount} to a {@link ByteBuf} (or a minecraft {@link PacketByteBuf}) in a variable-length
+     * form, that can be read back with {@link #fromCompactBuffer(ByteBuf)}. The denominator is written first, followed
+     * by the whole value, and then the numerator only if this isn't a whole amount. Small whole amounts only take 2
+     * bytes.
+     * <p>
+     * This isn't compatible with {@link #toMcBuffer(PacketByteBuf)}, so fluid volume packets don't use it: it's only
+     * for callers that control both ends of their own packet format. */
+    public void toCompactBuffer(ByteBuf buffer) {
+        writeVarLong(buffer, denominator);
+        writeVarLong(buffer, encodeZigZag(whole));
+        if (denominator != 1) {
+            writeVarLong(buffer, encodeZigZag(numerator));
+        }
+    }
+
+    private static long encodeZigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteBuf buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuf buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("VarLong too big!");
+    }
+
     public static FluidAmount fromJson(JsonElement json) throws JsonSyntaxException {
         if (json.isJsonPrimitive()) {
             JsonPrimitive primitive = json.getAsJsonPrimitive();
@@ -894,23 +1021,7 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
         if (o == null) {
             return sign();
         }
-        if (whole != o.whole) {
-            return Long.compare(whole, o.whole);
-        }
-        if (denominator == o.denominator) {
-            return Long.compare(numerator, o.numerator);
-        }
-        normal: {
-            long a = LongMath.saturatedMultiply(numerator, o.denominator);
-            long b = LongMath.saturatedMultiply(o.numerator, denominator);
-            if (didOverflow(a) || didOverflow(b)) {
-                break normal;
-            }
-            return Long.compare(a, b);
-        }
-        BigInteger a = _bigNumerator().multiply(o._bigDenominator());
-        BigInteger b = o._bigNumerator().multiply(_bigDenominator());
-        return a.compareTo(b);
+        return _compareSmall(whole, numerator, denominator, o.whole, o.numerator, o.denominator);
     }
 
     // TODO: Are these public?
@@ -1080,6 +1191,31 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
             }
             return w > 0 ? MAX_BUCKETS : MIN_BUCKETS;
         }
+        sameDenominator: {
+            // Almost every amount in use shares a denominator (or at least one of the denominators is a multiple of
+            // the other), so we can skip the cross multiplication
+            final long d, n1, n2;
+            if (denominator == by.denominator) {
+                d = denominator;
+                n1 = numerator;
+                n2 = by.numerator;
+            } else if (by.denominator % denominator == 0) {
+                d = by.denominator;
+                n1 = LongMath.saturatedMultiply(numerator, by.denominator / denominator);
+                if (didOverflow(n1)) break sameDenominator;
+                n2 = by.numerator;
+            } else if (denominator % by.denominator == 0) {
+                d = denominator;
+                n1 = numerator;
+                n2 = LongMath.saturatedMultiply(by.numerator, denominator / by.denominator);
+                if (didOverflow(n2)) break sameDenominator;
+            } else {
+                break sameDenominator;
+            }
+            long n = LongMath.saturatedAdd(n1, n2);
+            if (didOverflow(n)) break sameDenominator;
+            return of(w, n, d);
+        }
         normal: {
             long d = LongMath.saturatedMultiply(denominator, by.denominator);
             if (didOverflow(d)) break normal;
@@ -1088,7 +1224,7 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
             long n2d1 = LongMath.saturatedMultiply(by.numerator, denominator);
             if (didOverflow(n2d1)) break normal;
             long n = LongMath.saturatedAdd(n1d2, n2d1);
-            if (didOverflow(n2d1)) break normal;
+            if (didOverflow(n)) break normal;
             return of(w, n, d);
         }
         BigFluidAmount bigResult = _bigAdd(by);
@@ -1840,20 +1976,133 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
         }
     }
 
-    // /** Splits this {@link FluidAmount} up according to the ratios given, but not letting the denominator exceed the
-    // * default value (2000). If the denominator is bigger than the default then some of the entries might be
-    // * {@link FluidAmount#ZERO}.
-    // *
-    // * @param ratios An array with the same length as the ratios array.
-    // * @return An array that's the same size as the ratio array containing the split fluids. May contain duplicates.
-    // */
-    // public FluidAmount[] splitRatio(FluidAmount[] ratios) {
-    // return splitRatio(ratios, 2000);
-    // }
-    //
-    // public FluidAmount[] splitRatio(FluidAmount[] ratios, long maxDenominator) {
-    //
-    // }
+    /** Splits this {@link FluidAmount} up according to the ratios given, but not letting the denominator exceed the
+     * default value (2000). If the denominator is bigger than the default then some of the entries might be
+     * {@link FluidAmount#ZERO}.
+     *
+     * @param ratios The (non-negative) ratios to split this into.
+     * @return An array that's the same size as the ratio array containing the split fluids. May contain duplicates.
+     * @throws IllegalArgumentException if any of the ratios are negative, or if they add up to zero and this is not
+     *             {@link #isZero()}. */
+    public FluidAmount[] splitRatio(FluidAmount[] ratios) {
+        return splitRatio(ratios, 2000);
+    }
+
+    /** Splits this {@link FluidAmount} up according to the ratios given, but not letting the denominator exceed the
+     * given value. If the denominator is bigger than the default then some of the entries might be
+     * {@link FluidAmount#ZERO}.
+     * <p>
+     * If the exact split can't be represented with the given denominator then every entry is rounded down, and the
+     * remainder is given out (one unit at a time) to the entries that were rounded down the most. The returned amounts
+     * will always add up to exactly this amount.
+     *
+     * @param ratios The (non-negative) ratios to split this into.
+     * @return An array that's the same size as the ratio array containing the split fluids. May contain duplicates.
+     * @throws IllegalArgumentException if any of the ratios are negative, or if they add up to zero and this is not
+     *             {@link #isZero()}. */
+    public FluidAmount[] splitRatio(FluidAmount[] ratios, long maxDenominator) {
+        FluidAmount[] ret = splitRatio0(ratios, maxDenominator);
+
+        boolean validate = false;
+        assert validate = true;
+        if (validate) {
+            assert ret.length == ratios.length : "ret.length != ratios.length";
+            FluidAmount total = ZERO;
+            for (FluidAmount in : ret) {
+                total = total.checkedAdd(in);
+            }
+            assert equals(total) : "this " + this + " != total " + total + " for " + Arrays.toString(ret);
+        }
+
+        return ret;
+    }
+
+    private FluidAmount[] splitRatio0(FluidAmount[] ratios, long maxDenominator) {
+        int count = ratios.length;
+        FluidAmount[] dest = new FluidAmount[count];
+
+        FluidAmount totalRatio = ZERO;
+        for (FluidAmount ratio : ratios) {
+            if (ratio.isNegative()) {
+                throw new IllegalArgumentException("Cannot split by a negative ratio! (" + Arrays.toString(ratios) + ")");
+            }
+            totalRatio = totalRatio.checkedAdd(ratio);
+        }
+
+        if (isZero()) {
+            Arrays.fill(dest, ZERO);
+            return dest;
+        } else if (totalRatio.isZero()) {
+            throw new IllegalArgumentException(
+                "Cannot split a FluidAmount by ratios that add up to zero! (" + Arrays.toString(ratios) + ")"
+            );
+        } else if (isNegative()) {
+            FluidAmount[] positive = negate().splitRatio0(ratios, maxDenominator);
+            for (int i = 0; i < count; i++) {
+                dest[i] = positive[i].negate();
+            }
+            return dest;
+        }
+
+        BigFluidAmount[] exact = new BigFluidAmount[count];
+        BigFluidAmount bigThis = asBigInt();
+        boolean fits = true;
+        for (int i = 0; i < count; i++) {
+            BigFluidAmount share = bigThis.mul(ratios[i]).div(totalRatio);
+            exact[i] = share;
+            if (fits) {
+                FluidAmount small = share.fitsInLongInt() ? share.asLongIntExact() : null;
+                if (small != null && small.denominator <= maxDenominator) {
+                    dest[i] = small;
+                } else {
+                    fits = false;
+                }
+            }
+        }
+
+        if (fits) {
+            // Every share can be represented exactly
+            return dest;
+        }
+
+        // Otherwise round everything down to the nearest unit of 1/base
+        long base = denominator >= maxDenominator ? denominator : maxDenominator / denominator * denominator;
+        long units = asLong(base, RoundingMode.UNNECESSARY);
+        if (units == Long.MAX_VALUE) {
+            base = denominator;
+            units = asLong(base, RoundingMode.UNNECESSARY);
+            if (units == Long.MAX_VALUE) {
+                throw new ArithmeticException("Cannot split " + this + " as it's too big!");
+            }
+        }
+
+        long[] parts = new long[count];
+        BigFluidAmount[] remainders = new BigFluidAmount[count];
+        long leftover = units;
+        for (int i = 0; i < count; i++) {
+            BigFluidAmount share = exact[i].mul(base);
+            parts[i] = share.whole().longValue();
+            remainders[i] = BigFluidAmount.of(share.numerator(), share.denominator());
+            leftover -= parts[i];
+        }
+
+        if (leftover > 0) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            // Stable, so earlier entries win ties
+            Arrays.sort(order, (a, b) -> remainders[b].compareTo(remainders[a]));
+            for (int i = 0; i < leftover; i++) {
+                parts[order[i]]++;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            dest[i] = of(parts[i], base);
+        }
+        return dest;
+    }
 
     // Internal
 
@@ -1872,6 +2121,26 @@ public final class FluidAmount extends FluidAmountBase<FluidAmount> {
         return BigInteger.valueOf(denominator);
     }
 
+    @Override
+    boolean _isSmall() {
+        return true;
+    }
+
+    @Override
+    long _smallWhole() {
+        return whole;
+    }
+
+    @Override
+    long _smallNumerator() {
+        return numerator;
+    }
+
+    @Override
+    long _smallDenominator() {
+        return denominator;
+    }
+
     @Override
     FluidAmount _this() {
         return this;
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.amount;
+
+import java.math.RoundingMode;
+
+import javax.annotation.Nullable;
+
+import com.google.common.math.LongMath;
+
+/** A mutable version of {@link FluidAmount}, intended for summing up lots of amounts without allocating a new
+ * {@link FluidAmount} for every intermediate value. Every operation has exactly the same result (including saturation
+ * and rounding) as the equivalent {@link FluidAmount} method would, so the following two loops will always return equal
+ * values:
+ *
+ * <pre>
+ * FluidAmount total = FluidAmount.ZERO;
+ * for (FluidAmount amount : amounts) {
+ *     total = total.roundedAdd(amount);
+ * }
+ * return total;
+ *
+ * FluidAmountAccumulator total = new FluidAmountAccumulator();
+ * for (FluidAmount amount : amounts) {
+ *     total.add(amount);
+ * }
+ * return total.toAmount();
+ * </pre>
+ *
+ * This is not thread safe. */
+public final class FluidAmountAccumulator {
+
+    // Always in the same (reduced) form as FluidAmount
+    private long whole;
+    private long numerator;
+    private long denominator = 1;
+
+    public FluidAmountAccumulator() {}
+
+    public FluidAmountAccumulator(FluidAmount initial) {
+        set(initial);
+    }
+
+    /** Sets this to the given amount. */
+    public FluidAmountAccumulator set(FluidAmount amount) {
+        whole = amount.whole;
+        numerator = amount.numerator;
+        denominator = amount.denominator;
+        return this;
+    }
+
+    /** Sets this to zero. */
+    public FluidAmountAccumulator reset() {
+        whole = 0;
+        numerator = 0;
+        denominator = 1;
+        return this;
+    }
+
+    /** @return The current value, as an immutable {@link FluidAmount}. */
+    public FluidAmount toAmount() {
+        return FluidAmount.createDirect(whole, numerator, denominator);
+    }
+
+    // Properties
+
+    public boolean isZero() {
+        return whole == 0 && numerator == 0;
+    }
+
+    public boolean isNegative() {
+        return whole < 0 || numerator < 0;
+    }
+
+    public boolean isPositive() {
+        return whole > 0 || numerator > 0;
+    }
+
+    /** @return The sign: Either -1 if this is negative, +1 if this is positive, or 0 if this is zero. */
+    public int sign() {
+        if (whole != 0) {
+            return whole < 0 ? -1 : +1;
+        }
+        if (numerator != 0) {
+            return numerator < 0 ? -1 : +1;
+        }
+        return 0;
+    }
+
+    /** Identical to {@link FluidAmount#compareTo(FluidAmount)}, but for the current value of this accumulator. */
+    public int compareTo(@Nullable FluidAmount o) {
+        if (o == null) {
+            return sign();
+        }
+        return FluidAmountBase._compareSmall(whole, numerator, denominator, o.whole, o.numerator, o.denominator);
+    }
+
+    // Addition
+
+    /** Adds the given amount to this, using {@link FluidAmount#roundedAdd(FluidAmount)} semantics.
+     *
+     * @param by The amount to add. Null is treated as zero. */
+    public FluidAmountAccumulator add(@Nullable FluidAmount by) {
+        return add(by, RoundingMode.HALF_EVEN);
+    }
+
+    /** Adds the given amount to this, using {@link FluidAmount#roundedAdd(FluidAmount, RoundingMode)} semantics.
+     *
+     * @param by The amount to add. Null is treated as zero.
+     * @throws ArithmeticException if the result is out of range and the rounding mode is
+     *             {@link RoundingMode#UNNECESSARY}. */
+    public FluidAmountAccumulator add(@Nullable FluidAmount by, RoundingMode rounding) {
+        if (by == null) {
+            return this;
+        }
+        return add0(by.whole, by.numerator, by.denominator, rounding);
+    }
+
+    /** Adds the fraction "numerator / denominator" to this, which is identical to (but doesn't allocate like)
+     * <code>add(FluidAmount.of(numerator, denominator))</code>. */
+    public FluidAmountAccumulator add(long numerator, long denominator) {
+        if (denominator <= 0) {
+            throw new IllegalArgumentException("The denominator (" + denominator + ") must be positive!");
+        }
+        // Split out the whole part first, so we overflow in the same way that FluidAmount.of(n, d) would
+        return add0(numerator / denominator, numerator % denominator, denominator, RoundingMode.HALF_EVEN);
+    }
+
+    /** Adds the given accumulator's current value to this. */
+    public FluidAmountAccumulator add(FluidAmountAccumulator by) {
+        return add0(by.whole, by.numerator, by.denominator, RoundingMode.HALF_EVEN);
+    }
+
+    /** Subtracts the given amount from this, using {@link FluidAmount#roundedSub(FluidAmount)} semantics.
+     *
+     * @param by The amount to subtract. Null is treated as zero. */
+    public FluidAmountAccumulator sub(@Nullable FluidAmount by) {
+        return sub(by, RoundingMode.HALF_EVEN);
+    }
+
+    /** Subtracts the given amount from this, using {@link FluidAmount#roundedSub(FluidAmount, RoundingMode)}
+     * semantics.
+     *
+     * @param by The amount to subtract. Null is treated as zero. */
+    public FluidAmountAccumulator sub(@Nullable FluidAmount by, RoundingMode rounding) {
+        if (by == null) {
+            return this;
+        }
+        return add0(-by.whole, -by.numerator, by.denominator, rounding);
+    }
+
+    /** @param n2 Can have the opposite sign to the whole value, but must be smaller than the denominator. */
+    private FluidAmountAccumulator add0(long w2, long n2, long d2, RoundingMode rounding) {
+        if (w2 == 0 && n2 == 0) {
+            return this;
+        }
+        if (rounding == null) {
+            rounding = RoundingMode.HALF_EVEN;
+        }
+
+        long w = LongMath.saturatedAdd(whole, w2);
+        if (didOverflow(w)) {
+            if (rounding == RoundingMode.UNNECESSARY) {
+                throw new ArithmeticException(
+                    "Cannot add the values " + whole + " and " + w2
+                        + " as they overflow, and the RoundingMode is UNNECESSARY!"
+                );
+            }
+            return set(w > 0 ? FluidAmount.MAX_BUCKETS : FluidAmount.MIN_BUCKETS);
+        }
+
+        final long d, n1s, n2s;
+        if (denominator == d2) {
+            d = d2;
+            n1s = numerator;
+            n2s = n2;
+        } else if (d2 % denominator == 0) {
+            d = d2;
+            n1s = LongMath.saturatedMultiply(numerator, d2 / denominator);
+            n2s = n2;
+        } else if (denominator % d2 == 0) {
+            d = denominator;
+            n1s = numerator;
+            n2s = LongMath.saturatedMultiply(n2, denominator / d2);
+        } else {
+            d = LongMath.saturatedMultiply(denominator, d2);
+            n1s = LongMath.saturatedMultiply(numerator, d2);
+            n2s = LongMath.saturatedMultiply(n2, denominator);
+        }
+        long n = LongMath.saturatedAdd(n1s, n2s);
+        if (didOverflow(d) || didOverflow(n1s) || didOverflow(n2s) || didOverflow(n)) {
+            // Rare: let FluidAmount deal with the BigFluidAmount fallback
+            return set(toAmount().roundedAdd(FluidAmount.of(w2, n2, d2), rounding));
+        }
+        return setReduced(w, n, d);
+    }
+
+    /** Equivalent to {@link FluidAmount#of(long, long, long)}, but stores the result in this rather than allocating a
+     * new object. */
+    private FluidAmountAccumulator setReduced(long w, long n, long d) {
+        if (Math.abs(n) >= d) {
+            w += n / d;
+            n %= d;
+        }
+
+        if (w < 0 && n > 0) {
+            w++;
+            n = n - d;
+        } else if (w > 0 && n < 0) {
+            w--;
+            n = d + n;
+        }
+
+        if (n < 0) {
+            long gcd = LongMath.gcd(-n, d);
+            n /= gcd;
+            d /= gcd;
+        } else if (n > 0) {
+            long gcd = LongMath.gcd(n, d);
+            n /= gcd;
+            d /= gcd;
+        } else /* n == 0 */ {
+            d = 1;
+        }
+
+        whole = w;
+        numerator = n;
+        denominator = d;
+        return this;
+    }
+
+    private static boolean didOverflow(long value) {
+        return value == Long.MIN_VALUE || value == Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "{FluidAmountAccumulator " + whole + " + " + numerator + "/" + denominator + "}";
+    }
+}
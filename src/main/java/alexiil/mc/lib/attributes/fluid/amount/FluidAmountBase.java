@@ -11,6 +11,8 @@ import java.math.BigInteger;
 
 import javax.annotation.Nullable;
 
+import com.google.common.math.LongMath;
+
 /** Base class for {@link FluidAmount} and {@link BigFluidAmount}.
  * <p>
  * All names are nonstandard to ensure that we don't expose them unnecessarily to consumers. */
@@ -72,6 +74,17 @@ import javax.annotation.Nullable;
 
     abstract BigInteger _bigDenominator();
 
+    /** @return True if this value fits into a {@link FluidAmount}, and so {@link #_smallWhole()},
+     *         {@link #_smallNumerator()}, and {@link #_smallDenominator()} can be used instead of the BigInteger
+     *         versions. */
+    abstract boolean _isSmall();
+
+    abstract long _smallWhole();
+
+    abstract long _smallNumerator();
+
+    abstract long _smallDenominator();
+
     /** @return this, casted to T. */
     abstract T _this();
 
@@ -166,7 +179,47 @@ import javax.annotation.Nullable;
         return this._bigDiv(gcd)._bigMul(by);
     }
 
+    /** Compares two reduced fractions without allocating, using 128-bit products for the numerators. */
+    static int _compareSmall(long w1, long n1, long d1, long w2, long n2, long d2) {
+        if (w1 != w2) {
+            return Long.compare(w1, w2);
+        }
+        if (d1 == d2) {
+            return Long.compare(n1, n2);
+        }
+        long aHigh = Math.multiplyHigh(n1, d2);
+        long bHigh = Math.multiplyHigh(n2, d1);
+        if (aHigh != bHigh) {
+            return Long.compare(aHigh, bHigh);
+        }
+        return Long.compareUnsigned(n1 * d2, n2 * d1);
+    }
+
+    private static boolean didOverflow(long value) {
+        return value == Long.MIN_VALUE || value == Long.MAX_VALUE;
+    }
+
     BigFluidAmount _bigAdd(FluidAmountBase<?> by) {
+        if (_isSmall() && by._isSmall()) {
+            small: {
+                long w = LongMath.saturatedAdd(_smallWhole(), by._smallWhole());
+                if (didOverflow(w)) break small;
+                long d1 = _smallDenominator();
+                long d2 = by._smallDenominator();
+                long d = LongMath.saturatedMultiply(d1, d2);
+                if (didOverflow(d)) break small;
+                long n1d2 = LongMath.saturatedMultiply(_smallNumerator(), d2);
+                if (didOverflow(n1d2)) break small;
+                long n2d1 = LongMath.saturatedMultiply(by._smallNumerator(), d1);
+                if (didOverflow(n2d1)) break small;
+                long n = LongMath.saturatedAdd(n1d2, n2d1);
+                if (didOverflow(n)) break small;
+                BigFluidAmount result = BigFluidAmount.tryOfSmall(w, n, d);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
         BigInteger w1 = _bigWhole();
         BigInteger w2 = by._bigWhole();
         BigInteger n1 = _bigNumerator();
@@ -185,6 +238,44 @@ import javax.annotation.Nullable;
 
     BigFluidAmount _bigMul(FluidAmountBase<?> other) {
 
+        if (_isSmall() && other._isSmall()) {
+            small: {
+                // Same as below, but only if everything fits into long's
+                long w1 = _smallWhole();
+                long w2 = other._smallWhole();
+                long n1 = _smallNumerator();
+                long n2 = other._smallNumerator();
+                long d1 = _smallDenominator();
+                long d2 = other._smallDenominator();
+
+                long w3 = LongMath.saturatedMultiply(w1, w2);
+                if (didOverflow(w3)) break small;
+                long d3 = LongMath.saturatedMultiply(d1, d2);
+                if (didOverflow(d3)) break small;
+
+                long w1n2 = LongMath.saturatedMultiply(w1, n2);
+                if (didOverflow(w1n2)) break small;
+                long w1n2d1 = LongMath.saturatedMultiply(w1n2, d1);
+                if (didOverflow(w1n2d1)) break small;
+                long w2n1 = LongMath.saturatedMultiply(w2, n1);
+                if (didOverflow(w2n1)) break small;
+                long w2n1d2 = LongMath.saturatedMultiply(w2n1, d2);
+                if (didOverflow(w2n1d2)) break small;
+                long n1n2 = LongMath.saturatedMultiply(n1, n2);
+                if (didOverflow(n1n2)) break small;
+
+                long n3 = LongMath.saturatedAdd(w1n2d1, w2n1d2);
+                if (didOverflow(n3)) break small;
+                n3 = LongMath.saturatedAdd(n3, n1n2);
+                if (didOverflow(n3)) break small;
+
+                BigFluidAmount result = BigFluidAmount.tryOfSmall(w3, n3, d3);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+
         BigInteger w1 = this._bigWhole();
         BigInteger w2 = other._bigWhole();
         BigInteger w3 = w1.multiply(w2);
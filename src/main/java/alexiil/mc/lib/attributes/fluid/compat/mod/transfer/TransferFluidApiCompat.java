@@ -8,7 +8,6 @@
 package alexiil.mc.lib.attributes.fluid.compat.mod.transfer;
 
 import java.math.RoundingMode;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -30,9 +29,11 @@ import alexiil.mc.lib.attributes.fluid.FluidAttributes;
 import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
 import alexiil.mc.lib.attributes.fluid.GroupedFluidInv;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmountAccumulator;
 import alexiil.mc.lib.attributes.fluid.filter.ExactFluidFilter;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeyCollections;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 
@@ -83,7 +84,7 @@ final class TransferFluidApiCompat {
 
         @Override
         public Set<FluidKey> getStoredFluids() {
-            Set<FluidKey> set = new HashSet<>();
+            Set<FluidKey> set = FluidKeyCollections.set();
             try (Transaction t = beginTransaction()) {
                 for (StorageView<FluidVariant> entry : from) {
                     FluidVariant res = entry.getResource();
@@ -97,19 +98,19 @@ final class TransferFluidApiCompat {
 
         @Override
         public FluidAmount getTotalCapacity_F() {
-            FluidAmount capacity = FluidAmount.ZERO;
+            FluidAmountAccumulator capacity = new FluidAmountAccumulator();
             try (Transaction t = beginTransaction()) {
                 for (StorageView<FluidVariant> entry : from) {
-                    capacity = capacity.saturatedAdd(FluidAmount.of(entry.getAmount(), BUCKET_VALUE));
+                    capacity.add(entry.getCapacity(), BUCKET_VALUE);
                 }
             }
-            return capacity;
+            return capacity.toAmount();
         }
 
         @Override
         public FluidInvStatistic getStatistics(FluidFilter filter) {
-            FluidAmount amount = FluidAmount.ZERO;
-            FluidAmount spaceAddable = FluidAmount.ZERO;
+            FluidAmountAccumulator amount = new FluidAmountAccumulator();
+            FluidAmountAccumulator spaceAddable = new FluidAmountAccumulator();
             try (Transaction t = beginTransaction()) {
                 for (StorageView<FluidVariant> entry : from) {
                     FluidVariant res = entry.getResource();
@@ -117,13 +118,14 @@ final class TransferFluidApiCompat {
                     if (res.isBlank()) {
                         continue;
                     } else if (filter.matches(FluidKeys.get(res.getFluid()))) {
-                        amount = amount.saturatedAdd(FluidAmount.of(entry.getAmount(), BUCKET_VALUE));
-                        spaceAddable = spaceAddable
-                            .saturatedAdd(FluidAmount.of(entry.getCapacity() - entry.getAmount(), BUCKET_VALUE));
+                        amount.add(entry.getAmount(), BUCKET_VALUE);
+                        spaceAddable.add(entry.getCapacity() - entry.getAmount(), BUCKET_VALUE);
                     }
                 }
             }
-            return new FluidInvStatistic(filter, amount, spaceAddable, FluidAmount.NEGATIVE_ONE);
+            return new FluidInvStatistic(
+                filter, amount.toAmount(), spaceAddable.toAmount(), FluidAmount.NEGATIVE_ONE
+            );
         }
 
         @Override
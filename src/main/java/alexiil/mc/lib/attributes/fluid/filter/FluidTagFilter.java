@@ -7,22 +7,107 @@
  */
 package alexiil.mc.lib.attributes.fluid.filter;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.fluid.Fluid;
+import net.minecraft.potion.Potion;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.misc.TagReloadTracker;
 
-/** A {@link FluidFilter} that operates on tags of LBA's {@link FluidKey}'s.
+/** A {@link FluidFilter} that matches the {@link FluidKey}s of every {@link Fluid} in a {@link TagKey}, and/or every
+ * {@link Potion} in a {@link TagKey}.
  * <p>
- * Note that this <strong>has not been implemented yet!</strong> Instead you'll have to use the
- * {@link RawFluidTagFilter} to use tags (but only for raw vanilla minecraft fluids) */
+ * Unlike {@link RawFluidTagFilter} this matches against the {@link FluidKey} registered in {@link FluidKeys}, and the
+ * tags are resolved into a {@link FluidSetFilter} once, and then only resolved again after the tags have been reloaded
+ * (see {@link TagReloadTracker}). */
 public final class FluidTagFilter implements ResolvableFluidFilter {
-    private FluidTagFilter() {}
+
+    @Nullable
+    public final TagKey<Fluid> fluidTag;
+
+    @Nullable
+    public final TagKey<Potion> potionTag;
+
+    private volatile Resolved resolved;
+
+    public FluidTagFilter(TagKey<Fluid> fluidTag) {
+        this(fluidTag, null);
+    }
+
+    public FluidTagFilter(@Nullable TagKey<Fluid> fluidTag, @Nullable TagKey<Potion> potionTag) {
+        if (fluidTag == null && potionTag == null) {
+            throw new IllegalArgumentException("At least one of the tags must be non-null!");
+        }
+        this.fluidTag = fluidTag;
+        this.potionTag = potionTag;
+    }
+
+    public static FluidTagFilter ofPotions(TagKey<Potion> potionTag) {
+        return new FluidTagFilter(null, potionTag);
+    }
 
     @Override
     public boolean matches(FluidKey fluidKey) {
-        return false;
+        return getResolved().matches(fluidKey);
     }
 
     @Override
     public ReadableFluidFilter resolve() {
-        return ConstantFluidFilter.NOTHING;
+        return getResolved().filter;
+    }
+
+    private Resolved getResolved() {
+        Resolved r = resolved;
+        int generation = TagReloadTracker.getGeneration();
+        if (r == null || r.generation != generation) {
+            Set<FluidKey> set = new HashSet<>();
+            if (fluidTag != null) {
+                for (RegistryEntry<Fluid> entry : Registries.FLUID.iterateEntries(fluidTag)) {
+                    set.add(FluidKeys.get(entry.value()));
+                }
+            }
+            if (potionTag != null) {
+                for (RegistryEntry<Potion> entry : Registries.POTION.iterateEntries(potionTag)) {
+                    set.add(FluidKeys.get(entry.value()));
+                }
+            }
+            resolved = r = new Resolved(generation, set);
+        }
+        return r;
+    }
+
+    @Override
+    public String toString() {
+        return "FluidTagFilter{fluids = " + fluidTag + ", potions = " + potionTag + "}";
+    }
+
+    private static final class Resolved {
+        final int generation;
+        final Set<FluidKey> fluids;
+        final ReadableFluidFilter filter;
+
+        Resolved(int generation, Set<FluidKey> fluids) {
+            this.generation = generation;
+            this.fluids = fluids;
+            if (fluids.isEmpty()) {
+                filter = ConstantFluidFilter.NOTHING;
+            } else if (fluids.size() == 1) {
+                filter = fluids.iterator().next().exactFilter;
+            } else {
+                filter = new FluidSetFilter(fluids);
+            }
+        }
+
+        boolean matches(FluidKey fluidKey) {
+            return fluids.contains(fluidKey);
+        }
     }
 }
@@ -8,7 +8,6 @@
 package alexiil.mc.lib.attributes.fluid.impl;
 
 import java.math.RoundingMode;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -17,8 +16,10 @@ import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.fluid.FluidInvAmountChangeListener_F;
 import alexiil.mc.lib.attributes.fluid.GroupedFluidInvView;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmountAccumulator;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeyCollections;
 import alexiil.mc.lib.attributes.misc.AbstractCombined;
 
 public class CombinedGroupedFluidInvView extends AbstractCombined<GroupedFluidInvView> implements GroupedFluidInvView {
@@ -32,25 +33,25 @@ public class CombinedGroupedFluidInvView extends AbstractCombined<GroupedFluidIn
 
     @Override
     public FluidInvStatistic getStatistics(FluidFilter filter) {
-        FluidAmount amount = FluidAmount.ZERO;
-        FluidAmount spaceAddable = FluidAmount.ZERO;
-        FluidAmount spaceTotal = FluidAmount.ZERO;
+        FluidAmountAccumulator amount = new FluidAmountAccumulator();
+        FluidAmountAccumulator spaceAddable = new FluidAmountAccumulator();
+        FluidAmountAccumulator spaceTotal = new FluidAmountAccumulator();
         for (GroupedFluidInvView stats : inventories) {
             FluidInvStatistic stat = stats.getStatistics(filter);
-            amount = amount.roundedAdd(stat.amount_F);
-            spaceAddable = spaceAddable.roundedAdd(stat.spaceAddable_F);
+            amount.add(stat.amount_F);
+            spaceAddable.add(stat.spaceAddable_F);
             if (stat.spaceTotal_F.equals(FluidAmount.NEGATIVE_ONE)) {
-                spaceTotal = FluidAmount.NEGATIVE_ONE;
+                spaceTotal.set(FluidAmount.NEGATIVE_ONE);
             } else {
-                spaceTotal = spaceTotal.roundedAdd(stat.spaceTotal_F);
+                spaceTotal.add(stat.spaceTotal_F);
             }
         }
-        return new FluidInvStatistic(filter, amount, spaceAddable, spaceTotal);
+        return new FluidInvStatistic(filter, amount.toAmount(), spaceAddable.toAmount(), spaceTotal.toAmount());
     }
 
     @Override
     public Set<FluidKey> getStoredFluids() {
-        Set<FluidKey> set = new HashSet<>();
+        Set<FluidKey> set = FluidKeyCollections.set();
         for (GroupedFluidInvView stats : inventories) {
             set.addAll(stats.getStoredFluids());
         }
@@ -59,11 +60,11 @@ public class CombinedGroupedFluidInvView extends AbstractCombined<GroupedFluidIn
 
     @Override
     public FluidAmount getTotalCapacity_F() {
-        FluidAmount total = FluidAmount.ZERO;
+        FluidAmountAccumulator total = new FluidAmountAccumulator();
         for (GroupedFluidInvView inv : inventories) {
-            total = total.roundedAdd(inv.getTotalCapacity_F(), RoundingMode.DOWN);
+            total.add(inv.getTotalCapacity_F(), RoundingMode.DOWN);
         }
-        return total;
+        return total.toAmount();
     }
 
     @Override
@@ -9,6 +9,7 @@ package alexiil.mc.lib.attributes.fluid.impl;
 
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FluidExtractable;
+import alexiil.mc.lib.attributes.fluid.FluidExtractionTransaction;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
@@ -28,6 +29,11 @@ public final class FilteredFluidExtractable implements FluidExtractable {
         return real.attemptExtraction(realFilter, maxAmount, simulation);
     }
 
+    @Override
+    public FluidExtractionTransaction beginExtraction(FluidFilter filter, FluidAmount maxAmount) {
+        return real.beginExtraction(this.filter.and(filter), maxAmount);
+    }
+
     @Override
     public FluidExtractable filtered(FluidFilter filter) {
         return new FilteredFluidExtractable(real, this.filter.and(filter));
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.impl;
+
+import java.util.Map;
+
+import net.minecraft.util.Util;
+
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.FluidInvTankChangeListener;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenCustomHashMap;
+
+/** The listeners of a single {@link FixedFluidInv}, as used by {@link SimpleFixedFluidInv} and
+ * {@link PrimitiveFixedFluidInv}. */
+/* package-private */ final class FluidInvListenerList {
+
+    private static final FluidInvTankChangeListener[] NO_LISTENERS = new FluidInvTankChangeListener[0];
+
+    /** Sentinel value used during {@link #invalidate()}. */
+    private static final FluidInvTankChangeListener[] INVALIDATING_LISTENERS = new FluidInvTankChangeListener[0];
+
+    private final FixedFluidInv inv;
+
+    private FluidInvTankChangeListener ownerListener;
+
+    private final Map<FluidInvTankChangeListener, ListenerRemovalToken> listeners
+        = new Object2ObjectLinkedOpenCustomHashMap<>(Util.identityHashStrategy());
+
+    // Should this use WeakReference instead of storing them directly?
+    private FluidInvTankChangeListener[] bakedListeners = NO_LISTENERS;
+
+    FluidInvListenerList(FixedFluidInv inv) {
+        this.inv = inv;
+    }
+
+    ListenerToken add(FluidInvTankChangeListener listener, ListenerRemovalToken removalToken) {
+        if (bakedListeners == INVALIDATING_LISTENERS) {
+            // It doesn't really make sense to add listeners while we are invalidating them
+            return null;
+        }
+        ListenerRemovalToken previous = listeners.put(listener, removalToken);
+        if (previous == null) {
+            bakeListeners();
+        } else {
+            assert previous == removalToken : "The same listener object must be registered with the same removal token";
+        }
+        return () -> {
+            ListenerRemovalToken token = listeners.remove(listener);
+            if (token != null) {
+                assert token == removalToken;
+                bakeListeners();
+                removalToken.onListenerRemoved();
+            }
+        };
+    }
+
+    void setOwnerListener(FluidInvTankChangeListener ownerListener) {
+        this.ownerListener = ownerListener;
+    }
+
+    /** @return True if {@link #fire(int, FluidVolume, FluidVolume)} would call at least one listener. */
+    boolean hasListeners() {
+        return ownerListener != null || bakedListeners.length > 0;
+    }
+
+    private void bakeListeners() {
+        bakedListeners = listeners.keySet().toArray(new FluidInvTankChangeListener[0]);
+    }
+
+    /** Removes every listener apart from the owner listener. */
+    void invalidate() {
+        bakedListeners = INVALIDATING_LISTENERS;
+        ListenerRemovalToken[] removalTokens = listeners.values().toArray(new ListenerRemovalToken[0]);
+        listeners.clear();
+        for (ListenerRemovalToken token : removalTokens) {
+            token.onListenerRemoved();
+        }
+        bakedListeners = NO_LISTENERS;
+    }
+
+    void fire(int tank, FluidVolume previous, FluidVolume current) {
+        if (ownerListener != null) {
+            ownerListener.onChange(inv, tank, previous, current);
+        }
+        // Iterate over the previous array in case the listeners array is changed while we are iterating
+        final FluidInvTankChangeListener[] baked = bakedListeners;
+        for (FluidInvTankChangeListener listener : baked) {
+            listener.onChange(inv, tank, previous, current);
+        }
+    }
+}
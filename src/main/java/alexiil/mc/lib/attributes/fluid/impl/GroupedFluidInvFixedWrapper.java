@@ -14,6 +14,7 @@ import java.util.List;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
 import alexiil.mc.lib.attributes.fluid.FixedFluidInvView;
+import alexiil.mc.lib.attributes.fluid.FluidExtractionTransaction;
 import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
 import alexiil.mc.lib.attributes.fluid.GroupedFluidInv;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
@@ -70,4 +71,9 @@ public class GroupedFluidInvFixedWrapper extends GroupedFluidInvViewFixedWrapper
         }
         return fluid;
     }
+
+    @Override
+    public FluidExtractionTransaction beginExtraction(FluidFilter filter, FluidAmount maxAmount) {
+        return SimulatedFluidExtraction.begin(this, filter, maxAmount, inv().allowsPartialExtraction());
+    }
 }
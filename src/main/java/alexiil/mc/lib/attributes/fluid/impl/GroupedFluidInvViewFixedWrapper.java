@@ -7,7 +7,6 @@
  */
 package alexiil.mc.lib.attributes.fluid.impl;
 
-import java.util.HashSet;
 import java.util.Set;
 
 import alexiil.mc.lib.attributes.ListenerRemovalToken;
@@ -16,9 +15,11 @@ import alexiil.mc.lib.attributes.fluid.FixedFluidInvView;
 import alexiil.mc.lib.attributes.fluid.FluidInvAmountChangeListener_F;
 import alexiil.mc.lib.attributes.fluid.GroupedFluidInvView;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmountAccumulator;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilterUtil;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeyCollections;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 import alexiil.mc.lib.attributes.misc.OpenWrapper;
 
@@ -41,30 +42,33 @@ public class GroupedFluidInvViewFixedWrapper implements GroupedFluidInvView, Ope
 
     @Override
     public FluidInvStatistic getStatistics(FluidFilter filter) {
-        FluidAmount amount = FluidAmount.ZERO;
-        FluidAmount space = FluidAmount.ZERO;
-        FluidAmount totalSpace = FluidAmount.ZERO;
+        FluidAmountAccumulator amount = new FluidAmountAccumulator();
+        FluidAmountAccumulator space = new FluidAmountAccumulator();
+        FluidAmountAccumulator totalSpace = new FluidAmountAccumulator();
         boolean totalSpaceValid = true;
         for (int t = 0; t < inv.getTankCount(); t++) {
             FluidAmount max = inv.getMaxAmount_F(t);
             FluidVolume fluid = inv.getInvFluid(t);
             if (!fluid.isEmpty()) {
                 if (filter.matches(fluid.fluidKey)) {
-                    amount = amount.roundedAdd(fluid.getAmount_F());
-                    space = space.roundedAdd(max.roundedSub(fluid.getAmount_F()));
+                    amount.add(fluid.getAmount_F());
+                    space.add(max.roundedSub(fluid.getAmount_F()));
                 }
                 continue;
             }
             if (FluidFilterUtil.hasIntersection(filter, inv.getFilterForTank(t))) {
-                totalSpace = totalSpace.roundedAdd(max);
+                totalSpace.add(max);
             }
         }
-        return new FluidInvStatistic(filter, amount, space, totalSpaceValid ? totalSpace : FluidAmount.NEGATIVE_ONE);
+        return new FluidInvStatistic(
+            filter, amount.toAmount(), space.toAmount(),
+            totalSpaceValid ? totalSpace.toAmount() : FluidAmount.NEGATIVE_ONE
+        );
     }
 
     @Override
     public Set<FluidKey> getStoredFluids() {
-        Set<FluidKey> set = new HashSet<>();
+        Set<FluidKey> set = FluidKeyCollections.set();
         for (int s = 0; s < inv.getTankCount(); s++) {
             FluidVolume fluid = inv.getInvFluid(s);
             if (!fluid.isEmpty()) {
@@ -76,11 +80,11 @@ public class GroupedFluidInvViewFixedWrapper implements GroupedFluidInvView, Ope
 
     @Override
     public FluidAmount getTotalCapacity_F() {
-        FluidAmount total = FluidAmount.ZERO;
+        FluidAmountAccumulator total = new FluidAmountAccumulator();
         for (int t = 0; t < inv.getTankCount(); t++) {
-            total = total.roundedAdd(inv.getMaxAmount_F(t));
+            total.add(inv.getMaxAmount_F(t));
         }
-        return total;
+        return total.toAmount();
     }
 
     @Override
@@ -7,25 +7,225 @@
  */
 package alexiil.mc.lib.attributes.fluid.impl;
 
+import java.math.RoundingMode;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.minecraft.nbt.NbtCompound;
+
+import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FluidExtractable;
 import alexiil.mc.lib.attributes.fluid.FluidInsertable;
+import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
+import alexiil.mc.lib.attributes.fluid.GroupedFluidInv;
 import alexiil.mc.lib.attributes.fluid.GroupedFluidInvView;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmountAccumulator;
+import alexiil.mc.lib.attributes.fluid.filter.ExactFluidFilter;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilterUtil;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeyCollections;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 
 /** A {@link SimpleFixedFluidInv} with a few optimisations to make the {@link FluidInsertable},
  * {@link FluidExtractable}, and {@link GroupedFluidInvView} implementations much faster than a simple inventory search
- * for larger inventories. */
+ * for larger inventories.
+ * <p>
+ * This keeps an index of which tanks contain each {@link FluidKey} (and the total amount of each), and which tanks are
+ * empty. The index is updated whenever {@link #fireTankChange(int, FluidVolume, FluidVolume)} is called, so subclasses
+ * that modify {@link #tanks} directly must call that afterwards. */
 public class JumboFixedFluidInv extends SimpleFixedFluidInv {
 
+    private final Map<FluidKey, FluidIndex> index = FluidKeyCollections.map();
+    private final BitSet emptyTanks = new BitSet();
+    private final GroupedFluidInv groupedVersion = new JumboGroupedFluidInv();
+
     /** @deprecated Replaced by {@link #JumboFixedFluidInv(int, FluidAmount)}. */
     @Deprecated(since = "0.6.0", forRemoval = true)
     public JumboFixedFluidInv(int invSize, int tankCapacity) {
         super(invSize, tankCapacity);
+        emptyTanks.set(0, invSize);
     }
 
     public JumboFixedFluidInv(int invSize, FluidAmount tankCapacity) {
         super(invSize, tankCapacity);
+        emptyTanks.set(0, invSize);
+    }
+
+    static final class FluidIndex {
+        final BitSet tanks = new BitSet();
+        FluidAmount total = FluidAmount.ZERO;
+    }
+
+    @Override
+    /* package-private */ void onTankChange(int tank, FluidVolume previous, FluidVolume current) {
+        removeFromIndex(tank, previous);
+        addToIndex(tank, current);
     }
 
-    // TODO: Optimisations!
+    private void addToIndex(int tank, FluidVolume volume) {
+        if (volume.isEmpty()) {
+            emptyTanks.set(tank);
+            return;
+        }
+        emptyTanks.clear(tank);
+        FluidIndex entry = index.computeIfAbsent(volume.fluidKey, k -> new FluidIndex());
+        entry.tanks.set(tank);
+        entry.total = entry.total.roundedAdd(volume.amount());
+    }
+
+    private void removeFromIndex(int tank, FluidVolume volume) {
+        if (volume.isEmpty()) {
+            return;
+        }
+        FluidIndex entry = index.get(volume.fluidKey);
+        if (entry == null) {
+            return;
+        }
+        entry.tanks.clear(tank);
+        if (entry.tanks.isEmpty()) {
+            index.remove(volume.fluidKey);
+        } else {
+            entry.total = entry.total.roundedSub(volume.amount());
+        }
+    }
+
+    private void rebuildIndex() {
+        index.clear();
+        emptyTanks.clear();
+        for (int t = 0; t < tanks.size(); t++) {
+            addToIndex(t, tanks.get(t));
+        }
+    }
+
+    @Override
+    public void fromTag(NbtCompound tag) {
+        super.fromTag(tag);
+        rebuildIndex();
+    }
+
+    @Override
+    public GroupedFluidInv getGroupedInv() {
+        return groupedVersion;
+    }
+
+    final class JumboGroupedFluidInv extends GroupedFluidInvFixedWrapper {
+
+        JumboGroupedFluidInv() {
+            super(JumboFixedFluidInv.this);
+        }
+
+        @Override
+        public FluidVolume attemptInsertion(FluidVolume fluid, Simulation simulation) {
+            if (fluid.isEmpty()) {
+                return FluidVolumeUtil.EMPTY;
+            }
+            fluid = fluid.copy();
+
+            // Fill up the tanks that already contain this fluid first, and only then move on to the empty ones
+            FluidIndex entry = index.get(fluid.fluidKey);
+            if (entry != null) {
+                for (int t = entry.tanks.nextSetBit(0); t >= 0; t = entry.tanks.nextSetBit(t + 1)) {
+                    fluid = insertFluid(t, fluid, simulation);
+                    if (fluid.isEmpty()) {
+                        return FluidVolumeUtil.EMPTY;
+                    }
+                }
+            }
+            for (int t = emptyTanks.nextSetBit(0); t >= 0; t = emptyTanks.nextSetBit(t + 1)) {
+                fluid = insertFluid(t, fluid, simulation);
+                if (fluid.isEmpty()) {
+                    return FluidVolumeUtil.EMPTY;
+                }
+            }
+            return fluid;
+        }
+
+        @Override
+        public FluidVolume attemptExtraction(FluidFilter filter, FluidAmount maxAmount, Simulation simulation) {
+            if (maxAmount.isNegative()) {
+                throw new IllegalArgumentException("maxAmount cannot be negative! (was " + maxAmount + ")");
+            }
+            FluidVolume fluid = FluidVolumeUtil.EMPTY;
+            if (maxAmount.isZero()) {
+                return fluid;
+            }
+            FluidIndex entry = findExtractable(filter);
+            if (entry == null) {
+                return fluid;
+            }
+            BitSet from = (BitSet) entry.tanks.clone();
+            for (int t = from.nextSetBit(0); t >= 0; t = from.nextSetBit(t + 1)) {
+                FluidAmount thisMax = maxAmount.roundedSub(fluid.getAmount_F(), RoundingMode.DOWN);
+                fluid = extractFluid(t, filter, fluid, thisMax, simulation);
+                if (!fluid.getAmount_F().isLessThan(maxAmount)) {
+                    return fluid;
+                }
+            }
+            return fluid;
+        }
+
+        /** @return The index entry that the naive implementation would extract from: the one with the first tank
+         *         that matches the filter. */
+        private FluidIndex findExtractable(FluidFilter filter) {
+            if (filter instanceof ExactFluidFilter) {
+                return index.get(((ExactFluidFilter) filter).fluid);
+            }
+            FluidIndex best = null;
+            int bestTank = Integer.MAX_VALUE;
+            for (Map.Entry<FluidKey, FluidIndex> e : index.entrySet()) {
+                int first = e.getValue().tanks.nextSetBit(0);
+                if (first < bestTank && filter.matches(e.getKey())) {
+                    best = e.getValue();
+                    bestTank = first;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        public FluidInvStatistic getStatistics(FluidFilter filter) {
+            FluidAmountAccumulator amount = new FluidAmountAccumulator();
+            FluidAmountAccumulator space = new FluidAmountAccumulator();
+            FluidAmountAccumulator totalSpace = new FluidAmountAccumulator();
+            if (filter instanceof ExactFluidFilter) {
+                FluidIndex entry = index.get(((ExactFluidFilter) filter).fluid);
+                if (entry != null) {
+                    addStatistics(entry, amount, space);
+                }
+            } else {
+                for (Map.Entry<FluidKey, FluidIndex> e : index.entrySet()) {
+                    if (filter.matches(e.getKey())) {
+                        addStatistics(e.getValue(), amount, space);
+                    }
+                }
+            }
+            for (int t = emptyTanks.nextSetBit(0); t >= 0; t = emptyTanks.nextSetBit(t + 1)) {
+                if (FluidFilterUtil.hasIntersection(filter, getFilterForTank(t))) {
+                    totalSpace.add(getMaxAmount_F(t));
+                }
+            }
+            return new FluidInvStatistic(filter, amount.toAmount(), space.toAmount(), totalSpace.toAmount());
+        }
+
+        private void addStatistics(FluidIndex entry, FluidAmountAccumulator amount, FluidAmountAccumulator space) {
+            amount.add(entry.total);
+            for (int t = entry.tanks.nextSetBit(0); t >= 0; t = entry.tanks.nextSetBit(t + 1)) {
+                space.add(getMaxAmount_F(t).roundedSub(tanks.get(t).getAmount_F()));
+            }
+        }
+
+        @Override
+        public FluidAmount getAmount_F(FluidKey fluid) {
+            FluidIndex entry = index.get(fluid);
+            return entry == null ? FluidAmount.ZERO : entry.total;
+        }
+
+        @Override
+        public Set<FluidKey> getStoredFluids() {
+            return FluidKeyCollections.set(index.keySet());
+        }
+    }
 }
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.impl;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.FluidInvTankChangeListener;
+import alexiil.mc.lib.attributes.fluid.FluidTransferable;
+import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
+import alexiil.mc.lib.attributes.fluid.GroupedFluidInv;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.filter.ConstantFluidFilter;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.misc.Saveable;
+
+import com.google.common.math.LongMath;
+
+/** A fixed size fluid inventory that stores every tank as a {@link FluidKey} and a long amount (in units of
+ * 1/{@link #denominator} of a bucket), rather than as a {@link FluidVolume}. Insertion and extraction modify the tanks
+ * in-place, so this is a lot cheaper than {@link SimpleFixedFluidInv} for tanks that change every tick (like pipe
+ * networks).
+ * <p>
+ * {@link FluidVolume}s are only created when they are requested (from {@link #getInvFluid(int)}, when extracting, or
+ * when firing listeners). As such any extra data that a {@link FluidVolume} might store (like
+ * {@link alexiil.mc.lib.attributes.fluid.volume.FluidProperty properties}, or the biome that water came from) is
+ * discarded when it is inserted - every volume returned by this is created with {@link FluidKey#withAmount(FluidAmount)}.
+ * <p>
+ * Amounts that can't be represented exactly in the {@link #denominator} are rounded down when inserting and extracting,
+ * so any remainder is left in the inserted volume, or in this inventory.
+ * <p>
+ * The tanks can be accessed directly with {@link #getTankKey(int)} and {@link #getTankAmount(int)}. */
+public class PrimitiveFixedFluidInv implements FixedFluidInv, FluidTransferable, Saveable {
+
+    /** The default {@link #denominator}, which is the same base unit that minecraft's fluid blocks use. */
+    public static final long DEFAULT_DENOMINATOR = 81000;
+
+    /** The number of units that make up a single bucket. */
+    public final long denominator;
+
+    public final FluidAmount tankCapacity_F;
+
+    /** {@link #tankCapacity_F}, in units of 1/{@link #denominator}. */
+    public final long tankCapacity;
+
+    private final FluidKey[] keys;
+    private final long[] amounts;
+
+    /** The last {@link FluidVolume} returned by {@link #getInvFluid(int)} for each tank, or null if it's been changed
+     * since then. */
+    private final FluidVolume[] volumeCache;
+
+    private final GroupedFluidInv groupedVersion = new GroupedFluidInvFixedWrapper(this);
+
+    private final FluidInvListenerList listeners = new FluidInvListenerList(this);
+
+    public PrimitiveFixedFluidInv(int invSize, FluidAmount tankCapacity) {
+        this(invSize, tankCapacity, DEFAULT_DENOMINATOR);
+    }
+
+    /** @param denominator The number of units that make up a single bucket. The tank capacity is rounded down to a
+     *            multiple of this. */
+    public PrimitiveFixedFluidInv(int invSize, FluidAmount tankCapacity, long denominator) {
+        if (denominator < 1) {
+            throw new IllegalArgumentException("The denominator (" + denominator + ") must be positive!");
+        }
+        if (tankCapacity.isNegative()) {
+            throw new IllegalArgumentException("The tank capacity (" + tankCapacity + ") must not be negative!");
+        }
+        this.denominator = denominator;
+        this.tankCapacity = tankCapacity.asLong(denominator, RoundingMode.DOWN);
+        this.tankCapacity_F = FluidAmount.of(this.tankCapacity, denominator);
+        this.keys = new FluidKey[invSize];
+        this.amounts = new long[invSize];
+        this.volumeCache = new FluidVolume[invSize];
+        Arrays.fill(keys, FluidKeys.EMPTY);
+    }
+
+    // Direct access
+
+    /** @return The {@link FluidKey} stored in the given tank, or {@link FluidKeys#EMPTY} if the tank is empty. */
+    public final FluidKey getTankKey(int tank) {
+        return keys[tank];
+    }
+
+    /** @return The amount stored in the given tank, in units of 1/{@link #denominator}. */
+    public final long getTankAmount(int tank) {
+        return amounts[tank];
+    }
+
+    // FixedFluidInv
+
+    @Override
+    public final int getTankCount() {
+        return keys.length;
+    }
+
+    @Override
+    public FluidAmount getMaxAmount_F(int tank) {
+        return tankCapacity_F;
+    }
+
+    @Override
+    public FluidVolume getInvFluid(int tank) {
+        FluidVolume volume = volumeCache[tank];
+        if (volume == null) {
+            volume = createVolume(keys[tank], amounts[tank]);
+            volumeCache[tank] = volume;
+        }
+        return volume;
+    }
+
+    @Override
+    public boolean isFluidValidForTank(int tank, FluidKey fluid) {
+        return true;
+    }
+
+    @Override
+    public FluidFilter getFilterForTank(int tank) {
+        return ConstantFluidFilter.ANYTHING;
+    }
+
+    @Override
+    public boolean setInvFluid(int tank, FluidVolume to, Simulation simulation) {
+        if (to.isEmpty()) {
+            if (simulation == Simulation.ACTION) {
+                setTank(tank, FluidKeys.EMPTY, 0);
+            }
+            return true;
+        }
+        if (!isFluidValidForTank(tank, to.fluidKey)) {
+            return false;
+        }
+        FluidAmount amount = to.amount();
+        long units = toUnits(amount);
+        if (units > tankCapacity || !FluidAmount.of(units, denominator).equals(amount)) {
+            // Either too big, or it can't be represented exactly
+            return false;
+        }
+        if (simulation == Simulation.ACTION) {
+            setTank(tank, to.fluidKey, units);
+        }
+        return true;
+    }
+
+    @Override
+    public FluidVolume insertFluid(int tank, FluidVolume volume, Simulation simulation) {
+        if (volume.isEmpty()) {
+            return volume;
+        }
+        FluidKey current = keys[tank];
+        FluidKey key = volume.fluidKey;
+        if (current != FluidKeys.EMPTY && current != key) {
+            return volume;
+        }
+        if (!isFluidValidForTank(tank, key)) {
+            return volume;
+        }
+        FluidAmount offered = volume.amount();
+        long offeredUnits = toUnits(offered);
+        long moved = Math.min(offeredUnits, tankCapacity - amounts[tank]);
+        if (moved <= 0) {
+            return volume;
+        }
+        if (simulation == Simulation.ACTION) {
+            setTank(tank, key, amounts[tank] + moved);
+        }
+        if (moved == offeredUnits && offered.denominator == denominator) {
+            // Common case: everything fitted, and there's no remainder
+            return FluidVolumeUtil.EMPTY;
+        }
+        FluidAmount excess = offered.roundedSub(FluidAmount.of(moved, denominator), RoundingMode.DOWN);
+        return excess.isZero() ? FluidVolumeUtil.EMPTY : volume.withAmount(excess);
+    }
+
+    @Override
+    public FluidVolume extractFluid(
+        int tank, @Nullable FluidFilter filter, FluidVolume mergeWith, FluidAmount maxAmount, Simulation simulation
+    ) {
+        if (mergeWith == null) {
+            mergeWith = FluidVolumeUtil.EMPTY;
+        }
+        long stored = amounts[tank];
+        if (stored == 0) {
+            return mergeWith;
+        }
+        FluidKey key = keys[tank];
+        if (!mergeWith.isEmpty() && mergeWith.fluidKey != key) {
+            return mergeWith;
+        }
+        if (filter != null && !filter.matches(key)) {
+            return mergeWith;
+        }
+        long moved = Math.min(stored, toUnits(maxAmount));
+        if (moved <= 0) {
+            return mergeWith;
+        }
+        if (simulation == Simulation.ACTION) {
+            long left = stored - moved;
+            setTank(tank, left == 0 ? FluidKeys.EMPTY : key, left);
+        }
+        FluidAmount extracted = FluidAmount.of(moved, denominator);
+        if (mergeWith.isEmpty()) {
+            return key.withAmount(extracted);
+        }
+        return mergeWith.withAmount(mergeWith.amount().roundedAdd(extracted));
+    }
+
+    /** Changes the given tank, firing listeners if it actually changed. */
+    private void setTank(int tank, FluidKey key, long amount) {
+        if (amount == 0) {
+            key = FluidKeys.EMPTY;
+        }
+        if (keys[tank] == key && amounts[tank] == amount) {
+            return;
+        }
+        boolean hasListeners = listeners.hasListeners();
+        FluidVolume previous = hasListeners ? getInvFluid(tank) : null;
+        keys[tank] = key;
+        amounts[tank] = amount;
+        volumeCache[tank] = null;
+        if (hasListeners) {
+            fireTankChange(tank, previous, getInvFluid(tank));
+        }
+    }
+
+    private FluidVolume createVolume(FluidKey key, long amount) {
+        if (amount == 0) {
+            return FluidVolumeUtil.EMPTY;
+        }
+        return key.withAmount(FluidAmount.of(amount, denominator));
+    }
+
+    /** @return The given (non-negative) amount in units of 1/{@link #denominator}, rounded down. */
+    private long toUnits(FluidAmount amount) {
+        long w = LongMath.saturatedMultiply(amount.whole, denominator);
+        final long n;
+        if (amount.denominator == denominator) {
+            n = amount.numerator;
+        } else if (denominator % amount.denominator == 0) {
+            n = LongMath.saturatedMultiply(amount.numerator, denominator / amount.denominator);
+        } else {
+            long mul = LongMath.saturatedMultiply(amount.numerator, denominator);
+            if (mul == Long.MAX_VALUE) {
+                return amount.asLong(denominator, RoundingMode.DOWN);
+            }
+            n = mul / amount.denominator;
+        }
+        return LongMath.saturatedAdd(w, n);
+    }
+
+    // Others
+
+    @Override
+    public GroupedFluidInv getGroupedInv() {
+        return this.groupedVersion;
+    }
+
+    @Override
+    public ListenerToken addListener(FluidInvTankChangeListener listener, ListenerRemovalToken removalToken) {
+        return listeners.add(listener, removalToken);
+    }
+
+    /** Sets the owner listener callback, which is never removed from the listener list when
+     * {@link #invalidateListeners()} is called. */
+    public void setOwnerListener(FluidInvTankChangeListener ownerListener) {
+        listeners.setOwnerListener(ownerListener);
+    }
+
+    public void invalidateListeners() {
+        listeners.invalidate();
+    }
+
+    protected final void fireTankChange(int tank, FluidVolume previous, FluidVolume current) {
+        listeners.fire(tank, previous, current);
+    }
+
+    // NBT support
+
+    // This uses the same format as SimpleFixedFluidInv, so either one can be swapped for the other.
+
+    @Override
+    public final NbtCompound toTag() {
+        return toTag(new NbtCompound());
+    }
+
+    @Override
+    public NbtCompound toTag(NbtCompound tag) {
+        NbtList tanksTag = new NbtList();
+        for (int t = 0; t < keys.length; t++) {
+            tanksTag.add(getInvFluid(t).toTag());
+        }
+        tag.put("tanks", tanksTag);
+        return tag;
+    }
+
+    @Override
+    public void fromTag(NbtCompound tag) {
+        NbtList tanksTag = tag.getList("tanks", new NbtCompound().getType());
+        for (int t = 0; t < keys.length; t++) {
+            FluidVolume volume = t < tanksTag.size() ? FluidVolume.fromTag(tanksTag.getCompound(t)) : null;
+            if (volume == null || volume.isEmpty()) {
+                keys[t] = FluidKeys.EMPTY;
+                amounts[t] = 0;
+            } else {
+                long units = Math.min(tankCapacity, toUnits(volume.amount()));
+                keys[t] = units == 0 ? FluidKeys.EMPTY : volume.fluidKey;
+                amounts[t] = units;
+            }
+            volumeCache[t] = null;
+        }
+    }
+
+    // FluidInsertable
+
+    @Override
+    public FluidVolume attemptInsertion(FluidVolume fluid, Simulation simulation) {
+        return groupedVersion.attemptInsertion(fluid, simulation);
+    }
+
+    @Override
+    public FluidAmount getMinimumAcceptedAmount() {
+        return FluidAmount.of(1, denominator);
+    }
+
+    @Override
+    public FluidFilter getInsertionFilter() {
+        return groupedVersion.getInsertionFilter();
+    }
+
+    // FluidExtractable
+
+    @Override
+    public FluidVolume attemptExtraction(FluidFilter filter, FluidAmount maxAmount, Simulation simulation) {
+        return groupedVersion.attemptExtraction(filter, maxAmount, simulation);
+    }
+
+    @Override
+    public FluidVolume attemptAnyExtraction(FluidAmount maxAmount, Simulation simulation) {
+        return groupedVersion.attemptAnyExtraction(maxAmount, simulation);
+    }
+}
@@ -9,11 +9,9 @@ package alexiil.mc.lib.attributes.fluid.impl;
 
 import java.lang.reflect.Method;
 import java.math.RoundingMode;
-import java.util.Map;
 
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtList;
-import net.minecraft.util.Util;
 import net.minecraft.util.collection.DefaultedList;
 
 import alexiil.mc.lib.attributes.AttributeUtil;
@@ -21,6 +19,7 @@ import alexiil.mc.lib.attributes.ListenerRemovalToken;
 import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.FluidExtractionTransaction;
 import alexiil.mc.lib.attributes.fluid.FluidInvTankChangeListener;
 import alexiil.mc.lib.attributes.fluid.FluidTransferable;
 import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
@@ -32,8 +31,6 @@ import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 import alexiil.mc.lib.attributes.misc.Saveable;
 
-import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenCustomHashMap;
-
 /** A simple, extendible, fixed size item inventory that supports all of the features that {@link FixedFluidInv}
  * exposes.
  * <p>
@@ -44,11 +41,6 @@ import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenCustomHashMap;
  * tanks (like a chest). */
 public class SimpleFixedFluidInv implements FixedFluidInv, FluidTransferable, Saveable {
 
-    private static final FluidInvTankChangeListener[] NO_LISTENERS = new FluidInvTankChangeListener[0];
-
-    /** Sentinel value used during {@link #invalidateListeners()}. */
-    private static final FluidInvTankChangeListener[] INVALIDATING_LISTENERS = new FluidInvTankChangeListener[0];
-
     /** @deprecated Replaced by {@link #tankCapacity_F} */
     @Deprecated(since = "0.6.0", forRemoval = true)
     public final int tankCapacity;
@@ -59,13 +51,7 @@ public class SimpleFixedFluidInv implements FixedFluidInv, FluidTransferable, Sa
     // TODO: Optimise this to cache more information!
     private final GroupedFluidInv groupedVersion = new GroupedFluidInvFixedWrapper(this);
 
-    private FluidInvTankChangeListener ownerListener;
-
-    private final Map<FluidInvTankChangeListener, ListenerRemovalToken> listeners
-        = new Object2ObjectLinkedOpenCustomHashMap<>(Util.identityHashStrategy());
-
-    // Should this use WeakReference instead of storing them directly?
-    private FluidInvTankChangeListener[] bakedListeners = NO_LISTENERS;
+    private final FluidInvListenerList listeners = new FluidInvListenerList(this);
 
     /** @deprecated Replaced by {@link #SimpleFixedFluidInv(int, FluidAmount)}. */
     @Deprecated(since = "0.6.0", forRemoval = true)
@@ -108,6 +94,17 @@ public class SimpleFixedFluidInv implements FixedFluidInv, FluidTransferable, Sa
         return true;
     }
 
+    /** {@inheritDoc}
+     * <p>
+     * This never restricts the amount that can be extracted from a tank, so this returns true. Subclasses that
+     * override {@link #extractFluid(int, FluidFilter, FluidVolume, FluidAmount, Simulation) extractFluid} or
+     * {@link #setInvFluid(int, FluidVolume, Simulation) setInvFluid} to restrict extraction must override this to
+     * return false. */
+    @Override
+    public boolean allowsPartialExtraction() {
+        return true;
+    }
+
     @Override
     public FluidFilter getFilterForTank(int tank) {
         if (AttributeUtil.EXPENSIVE_DEBUG_CHECKS) {
@@ -155,55 +152,28 @@ public class SimpleFixedFluidInv implements FixedFluidInv, FluidTransferable, Sa
 
     @Override
     public ListenerToken addListener(FluidInvTankChangeListener listener, ListenerRemovalToken removalToken) {
-        if (bakedListeners == INVALIDATING_LISTENERS) {
-            // It doesn't really make sense to add listeners while we are invalidating them
-            return null;
-        }
-        ListenerRemovalToken previous = listeners.put(listener, removalToken);
-        if (previous == null) {
-            bakeListeners();
-        } else {
-            assert previous == removalToken : "The same listener object must be registered with the same removal token";
-        }
-        return () -> {
-            ListenerRemovalToken token = listeners.remove(listener);
-            if (token != null) {
-                assert token == removalToken;
-                bakeListeners();
-                removalToken.onListenerRemoved();
-            }
-        };
+        return listeners.add(listener, removalToken);
     }
 
     /** Sets the owner listener callback, which is never removed from the listener list when
      * {@link #invalidateListeners()} is called. */
     public void setOwnerListener(FluidInvTankChangeListener ownerListener) {
-        this.ownerListener = ownerListener;
-    }
-
-    private void bakeListeners() {
-        bakedListeners = listeners.keySet().toArray(new FluidInvTankChangeListener[0]);
+        listeners.setOwnerListener(ownerListener);
     }
 
     public void invalidateListeners() {
-        bakedListeners = INVALIDATING_LISTENERS;
-        ListenerRemovalToken[] removalTokens = listeners.values().toArray(new ListenerRemovalToken[0]);
-        listeners.clear();
-        for (ListenerRemovalToken token : removalTokens) {
-            token.onListenerRemoved();
-        }
-        bakedListeners = NO_LISTENERS;
+        listeners.invalidate();
     }
 
     protected final void fireTankChange(int tank, FluidVolume previous, FluidVolume current) {
-        if (ownerListener != null) {
-            ownerListener.onChange(this, tank, previous, current);
-        }
-        // Iterate over the previous array in case the listeners array is changed while we are iterating
-        final FluidInvTankChangeListener[] baked = bakedListeners;
-        for (FluidInvTankChangeListener listener : baked) {
-            listener.onChange(this, tank, previous, current);
-        }
+        onTankChange(tank, previous, current);
+        listeners.fire(tank, previous, current);
+    }
+
+    /** Called by {@link #fireTankChange(int, FluidVolume, FluidVolume)} before any of the listeners, so that
+     * {@link JumboFixedFluidInv} can keep its index up-to-date. */
+    /* package-private */ void onTankChange(int tank, FluidVolume previous, FluidVolume current) {
+        // NO-OP
     }
 
     // NBT support
@@ -238,28 +208,33 @@ public class SimpleFixedFluidInv implements FixedFluidInv, FluidTransferable, Sa
 
     @Override
     public FluidVolume attemptInsertion(FluidVolume fluid, Simulation simulation) {
-        return groupedVersion.attemptInsertion(fluid, simulation);
+        return getGroupedInv().attemptInsertion(fluid, simulation);
     }
 
     @Override
     public FluidAmount getMinimumAcceptedAmount() {
-        return groupedVersion.getMinimumAcceptedAmount();
+        return getGroupedInv().getMinimumAcceptedAmount();
     }
 
     @Override
     public FluidFilter getInsertionFilter() {
-        return groupedVersion.getInsertionFilter();
+        return getGroupedInv().getInsertionFilter();
     }
 
     // FluidExtractable
 
     @Override
     public FluidVolume attemptExtraction(FluidFilter filter, FluidAmount maxAmount, Simulation simulation) {
-        return groupedVersion.attemptExtraction(filter, maxAmount, simulation);
+        return getGroupedInv().attemptExtraction(filter, maxAmount, simulation);
+    }
+
+    @Override
+    public FluidExtractionTransaction beginExtraction(FluidFilter filter, FluidAmount maxAmount) {
+        return getGroupedInv().beginExtraction(filter, maxAmount);
     }
 
     @Override
     public FluidVolume attemptAnyExtraction(FluidAmount maxAmount, Simulation simulation) {
-        return groupedVersion.attemptAnyExtraction(maxAmount, simulation);
+        return getGroupedInv().attemptAnyExtraction(maxAmount, simulation);
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.impl;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.fluid.FluidExtractable;
+import alexiil.mc.lib.attributes.fluid.FluidExtractionTransaction;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+/** A {@link FluidExtractionTransaction} that was created from a simulated
+ * {@link FluidExtractable#attemptExtraction(FluidFilter, FluidAmount, Simulation)}, and commits by performing the real
+ * extraction. */
+public final class SimulatedFluidExtraction implements FluidExtractionTransaction {
+
+    private final FluidExtractable from;
+    private final FluidVolume simulated;
+    private final boolean allowsPartialCommit;
+
+    public SimulatedFluidExtraction(FluidExtractable from, FluidVolume simulated, boolean allowsPartialCommit) {
+        this.from = from;
+        this.simulated = simulated;
+        this.allowsPartialCommit = allowsPartialCommit;
+    }
+
+    /** Simulates an extraction from the given {@link FluidExtractable}, and returns a transaction for it. */
+    public static FluidExtractionTransaction begin(
+        FluidExtractable from, FluidFilter filter, FluidAmount maxAmount, boolean allowsPartialCommit
+    ) {
+        FluidVolume simulated = from.attemptExtraction(filter, maxAmount, Simulation.SIMULATE);
+        if (simulated.isEmpty()) {
+            return FluidExtractionTransaction.EMPTY;
+        }
+        return new SimulatedFluidExtraction(from, simulated, allowsPartialCommit);
+    }
+
+    @Override
+    public FluidVolume getFluid() {
+        return simulated;
+    }
+
+    @Override
+    public boolean allowsPartialCommit() {
+        return allowsPartialCommit;
+    }
+
+    @Override
+    public FluidVolume commit(FluidAmount amount) {
+        return from.attemptExtraction(simulated.fluidKey.exactFilter, amount, Simulation.ACTION);
+    }
+
+    @Override
+    public String toString() {
+        return "{SimulatedFluidExtraction " + simulated + " from " + from + "}";
+    }
+}
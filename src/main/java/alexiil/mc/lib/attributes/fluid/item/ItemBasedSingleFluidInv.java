@@ -8,11 +8,13 @@
 package alexiil.mc.lib.attributes.fluid.item;
 
 import java.util.Collections;
+import java.util.Objects;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
 
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
@@ -31,6 +33,14 @@ import alexiil.mc.lib.attributes.misc.Reference;
 /** An abstract {@link GroupedFluidInv} for an {@link AbstractItemBasedAttribute} which only ever contains a single
  * fluid, and can contain any amount of said fluid between 0 and it's capacity. */
 public abstract class ItemBasedSingleFluidInv extends AbstractItemBasedAttribute implements GroupedFluidInv {
+
+    /* The last stack that was passed to getInfo (and a copy of it's tag), so repeated calls (for example a simulation
+     * followed by the real action) don't need to parse the fluid from the tag every time. The tag is compared by value
+     * rather than identity, as other code might modify it in-place. */
+    private ItemStack cachedStack;
+    private NbtCompound cachedTag;
+    private HeldFluidInfo cachedInfo;
+
     protected ItemBasedSingleFluidInv(Reference<ItemStack> stackRef, LimitedConsumer<ItemStack> excessStacks) {
         super(stackRef, excessStacks);
     }
@@ -52,13 +62,59 @@ public abstract class ItemBasedSingleFluidInv extends AbstractItemBasedAttribute
     @Nullable
     protected abstract ItemStack writeToStack(ItemStack stack, FluidVolume fluid);
 
+    /** Checks to see if the given fluid could be written to the given stack (which has a count of 1), and if
+     * {@link #stackRef} would accept the resulting stack. This is used for {@link Simulation#SIMULATE simulated}
+     * insertions and extractions. By default this writes the fluid to a copy of the stack, so subclasses that can check
+     * this without creating a new stack should override this.
+     *
+     * @param stack The current stack. This must not be modified! */
+    protected boolean canWriteToStack(ItemStack stack, FluidVolume fluid) {
+        ItemStack newStack = writeToStack(stack.copy(), fluid);
+        return newStack != null && stackRef.isValid(newStack);
+    }
+
+    /** @return The (possibly cached) result of {@link #getInfo(ItemStack)}. */
+    private HeldFluidInfo getCachedInfo(ItemStack stack) {
+        NbtCompound tag = stack.getNbt();
+        if (stack != cachedStack || !Objects.equals(tag, cachedTag)) {
+            cachedInfo = getInfo(stack);
+            cachedStack = stack;
+            cachedTag = tag == null ? null : tag.copy();
+        }
+        return cachedInfo;
+    }
+
+    /** Writes the given fluid to the stack (or a copy of it) in {@link #stackRef}, using
+     * {@link #canWriteToStack(ItemStack, FluidVolume)} for simulations where possible. */
+    private boolean writeFluid(ItemStack stack, FluidVolume fluid, Simulation simulation) {
+        if (simulation == Simulation.SIMULATE && stack.getCount() == 1) {
+            return canWriteToStack(stack, fluid);
+        }
+        ItemStack oldStack = stack.copy();
+        ItemStack newStack = oldStack.split(1);
+        newStack = writeToStack(newStack, fluid);
+        if (newStack == null) {
+            return false;
+        }
+        if (!setStacks(simulation, oldStack, newStack)) {
+            return false;
+        }
+        if (simulation == Simulation.ACTION) {
+            // The capacity (or anything else) might depend on the fluid, so the new stack has to be read again
+            cachedStack = null;
+            cachedTag = null;
+            cachedInfo = null;
+        }
+        return true;
+    }
+
     @Override
     public Set<FluidKey> getStoredFluids() {
         ItemStack stack = stackRef.get();
         if (stack.isEmpty() || isInvalid(stack)) {
             return Collections.emptySet();
         }
-        HeldFluidInfo info = getInfo(stack);
+        HeldFluidInfo info = getCachedInfo(stack);
         if (info.fluid.isEmpty()) {
             return Collections.emptySet();
         } else {
@@ -72,7 +128,7 @@ public abstract class ItemBasedSingleFluidInv extends AbstractItemBasedAttribute
         if (stack.isEmpty() || isInvalid(stack)) {
             return FluidInvStatistic.emptyOf(filter);
         }
-        HeldFluidInfo info = getInfo(stack);
+        HeldFluidInfo info = getCachedInfo(stack);
         if (!FluidFilterUtil.hasIntersection(filter, getInsertionFilter())) {
             return FluidInvStatistic.emptyOf(filter);
         }
@@ -111,18 +167,12 @@ public abstract class ItemBasedSingleFluidInv extends AbstractItemBasedAttribute
         if (stack.isEmpty() || isInvalid(stack)) {
             return fluid;
         }
-        HeldFluidInfo info = getInfo(stack);
+        HeldFluidInfo info = getCachedInfo(stack);
         FluidTransferResult result = FluidVolumeUtil.computeInsertion(info.fluid, info.capacity, fluid);
         if (result.inTank == info.fluid) {
             return fluid;
         }
-        ItemStack oldStack = stack.copy();
-        ItemStack newStack = oldStack.split(1);
-        newStack = writeToStack(newStack, result.inTank);
-        if (newStack == null) {
-            return fluid;
-        }
-        if (setStacks(simulation, oldStack, newStack)) {
+        if (writeFluid(stack, result.inTank, simulation)) {
             return result.result;
         } else {
             return fluid;
@@ -135,7 +185,7 @@ public abstract class ItemBasedSingleFluidInv extends AbstractItemBasedAttribute
         if (stack.isEmpty() || isInvalid(stack)) {
             return FluidVolumeUtil.EMPTY;
         }
-        HeldFluidInfo info = getInfo(stack);
+        HeldFluidInfo info = getCachedInfo(stack);
         if (info.fluid.isEmpty()) {
             return FluidVolumeUtil.EMPTY;
         }
@@ -143,10 +193,7 @@ public abstract class ItemBasedSingleFluidInv extends AbstractItemBasedAttribute
         if (result.inTank == info.fluid) {
             return FluidVolumeUtil.EMPTY;
         }
-        ItemStack oldStack = stack.copy();
-        ItemStack newStack = oldStack.split(1);
-        newStack = writeToStack(newStack, result.inTank);
-        if (setStacks(simulation, oldStack, newStack)) {
+        if (writeFluid(stack, result.inTank, simulation)) {
             return result.result;
         } else {
             return FluidVolumeUtil.EMPTY;
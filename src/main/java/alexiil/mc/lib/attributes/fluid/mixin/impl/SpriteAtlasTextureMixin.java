@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.mixin.impl;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.client.texture.SpriteAtlasTexture;
+import net.minecraft.client.texture.SpriteLoader;
+
+import alexiil.mc.lib.attributes.fluid.render.FluidMeshCache;
+
+@Mixin(SpriteAtlasTexture.class)
+public class SpriteAtlasTextureMixin {
+
+    @Inject(at = @At("TAIL"), method = "upload(Lnet/minecraft/client/texture/SpriteLoader$StitchResult;)V")
+    private void libblockattributes_onUpload(SpriteLoader.StitchResult stitchResult, CallbackInfo ci) {
+        FluidMeshCache.onAtlasReloaded();
+    }
+}
@@ -11,18 +11,20 @@ import java.util.List;
 
 import net.fabricmc.fabric.api.client.render.fluid.v1.FluidRenderHandlerRegistry;
 
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.texture.Sprite;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.fluid.Fluid;
 
+import alexiil.mc.lib.attributes.fluid.render.FluidMeshCache.BakedFluidMesh;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 
 /** Default {@link FluidVolumeRenderer} that can handle most default fluid types - if the {@link FluidVolume} is for a
  * non-null minecraft {@link Fluid} then this will use the sprites provided from the {@link FluidRenderHandlerRegistry}.
  * Otherwise this will fallback to the sprites in {@link FluidVolume#getStillSprite()} and
- * {@link FluidVolume#getFlowingSprite()}. */
+ * {@link FluidVolume#getFlowingSprite()}.
+ * <p>
+ * The split and textured faces are cached by {@link FluidMeshCache}, so rendering the same faces again (for example a
+ * tank that hasn't changed since the last frame) only needs to transform the vertices. */
 public class DefaultFluidVolumeRenderer extends FluidVolumeRenderer {
 
     public static final DefaultFluidVolumeRenderer INSTANCE = new DefaultFluidVolumeRenderer();
@@ -33,8 +35,15 @@ public class DefaultFluidVolumeRenderer extends FluidVolumeRenderer {
     public void render(
         FluidVolume fluid, List<FluidRenderFace> faces, VertexConsumerProvider vcp, MatrixStack matrices
     ) {
-        Sprite[] sprites = getSprites(fluid);
-        RenderLayer layer = getRenderLayer(fluid);
-        renderSimpleFluid(faces, vcp.getBuffer(layer), matrices, sprites[0], sprites[1], fluid.getRenderColor());
+        BakedFluidMesh mesh = FluidMeshCache.get(fluid, faces);
+        mesh.render(vcp.getBuffer(mesh.layer), matrices);
+    }
+
+    @Override
+    public void render(
+        FluidVolume fluid, FluidRenderFaceBuffer faces, VertexConsumerProvider vcp, MatrixStack matrices
+    ) {
+        BakedFluidMesh mesh = FluidMeshCache.get(fluid, faces);
+        mesh.render(vcp.getBuffer(mesh.layer), matrices);
     }
 }
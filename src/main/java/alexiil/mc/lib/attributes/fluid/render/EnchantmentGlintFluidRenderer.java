@@ -9,13 +9,12 @@ package alexiil.mc.lib.attributes.fluid.render;
 
 import java.util.List;
 
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
 import net.minecraft.client.render.VertexConsumerProvider;
 import net.minecraft.client.render.item.ItemRenderer;
-import net.minecraft.client.texture.Sprite;
 import net.minecraft.client.util.math.MatrixStack;
 
+import alexiil.mc.lib.attributes.fluid.render.FluidMeshCache.BakedFluidMesh;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 
 public class EnchantmentGlintFluidRenderer extends FluidVolumeRenderer {
@@ -28,9 +27,17 @@ public class EnchantmentGlintFluidRenderer extends FluidVolumeRenderer {
     public void render(
         FluidVolume fluid, List<FluidRenderFace> faces, VertexConsumerProvider vcp, MatrixStack matrices
     ) {
-        Sprite[] sprites = getSprites(fluid);
-        RenderLayer layer = getRenderLayer(fluid);
-        VertexConsumer vc = ItemRenderer.getItemGlintConsumer(vcp, layer, true, true);
-        renderSimpleFluid(faces, vc, matrices, sprites[0], sprites[1], fluid.getRenderColor());
+        BakedFluidMesh mesh = FluidMeshCache.get(fluid, faces);
+        VertexConsumer vc = ItemRenderer.getItemGlintConsumer(vcp, mesh.layer, true, true);
+        mesh.render(vc, matrices);
+    }
+
+    @Override
+    public void render(
+        FluidVolume fluid, FluidRenderFaceBuffer faces, VertexConsumerProvider vcp, MatrixStack matrices
+    ) {
+        BakedFluidMesh mesh = FluidMeshCache.get(fluid, faces);
+        VertexConsumer vc = ItemRenderer.getItemGlintConsumer(vcp, mesh.layer, true, true);
+        mesh.render(vc, matrices);
     }
 }
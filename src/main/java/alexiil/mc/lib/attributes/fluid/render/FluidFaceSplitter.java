@@ -8,7 +8,11 @@
 package alexiil.mc.lib.attributes.fluid.render;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+
+import javax.annotation.Nullable;
+
 import alexiil.mc.lib.attributes.fluid.render.FluidFaceSplitter.Line;
 import alexiil.mc.lib.attributes.fluid.render.FluidFaceSplitter.Quad;
 import alexiil.mc.lib.attributes.fluid.render.FluidFaceSplitter.Quad.BucketedVertexList;
@@ -24,57 +28,163 @@ import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRende
     }
 
     static ComponentRenderFaces splitFacesComponent(List<FluidRenderFace> faces) {
-        List<FluidRenderFace> splitFull = new ArrayList<>();
-        List<FluidRenderFace> splitTex = new ArrayList<>();
+        return splitFacesComponent(faces, true);
+    }
 
-        splitFull.addAll(faces);
-        splitTex.addAll(faces);
+    /** @param allowFastPath If false then every face is sent through {@link Quad#split}, even if it doesn't cross a
+     *            texture boundary. This only exists so that the tests can compare the two paths. */
+    static ComponentRenderFaces splitFacesComponent(List<FluidRenderFace> faces, boolean allowFastPath) {
+        // Separates the given faces into distinct renderable faces that all have UV bounds between 0 and 1.
+        Quad quad = new Quad();
 
-        separateFaces(true, splitFull, splitTex);
-        separateFaces(false, splitFull, splitTex);
+        List<FluidRenderFace> splitFullU = new ArrayList<>(faces.size());
+        List<FluidRenderFace> splitTexU = new ArrayList<>(faces.size());
+        separateFaces(true, faces, faces, splitFullU, splitTexU, quad, allowFastPath);
+
+        List<FluidRenderFace> splitFull = new ArrayList<>(splitFullU.size());
+        List<FluidRenderFace> splitTex = new ArrayList<>(splitFullU.size());
+        separateFaces(false, splitFullU, splitTexU, splitFull, splitTex, quad, allowFastPath);
 
-        // Separates the given faces into distinct renderable faces that all have UV bounds between 0 and 1.
         return new ComponentRenderFaces(splitFull, splitTex);
     }
 
-    private static void separateFaces(boolean u, List<FluidRenderFace> splitFull, List<FluidRenderFace> splitTex) {
-        FluidRenderFace[] inputFull = splitFull.toArray(new FluidRenderFace[0]);
-        FluidRenderFace[] inputTex = splitTex.toArray(new FluidRenderFace[0]);
-        splitFull.clear();
-        splitTex.clear();
-
-        for (int i = 0; i < inputFull.length; i++) {
-            FluidRenderFace face = inputFull[i];
-            FluidRenderFace faceT = inputTex[i];
-
-            // OPTIMISATION!
-            // double lowest = q.lowest(u);
-            // double highest = q.highest(u);
-            // if (!doesCrossTextureBound(lowest, highest)) {
-            // splitFull.add(q.toRounded(u));
-            // splitTex.add(faceT);
-            // }
-
-            new Quad(face, faceT).split(u, splitFull, splitTex);
+    private static void separateFaces(
+        boolean u, List<FluidRenderFace> inputFull, List<FluidRenderFace> inputTex, List<FluidRenderFace> splitFull,
+        List<FluidRenderFace> splitTex, Quad quad, boolean allowFastPath
+    ) {
+        Iterator<FluidRenderFace> iterFull = inputFull.iterator();
+        Iterator<FluidRenderFace> iterTex = inputTex.iterator();
+        FaceSink fullSink = new ListSink(splitFull);
+        FaceSink texSink = new ListSink(splitTex);
+
+        while (iterFull.hasNext()) {
+            FluidRenderFace face = iterFull.next();
+            FluidRenderFace faceT = iterTex.next();
+
+            if (allowFastPath) {
+                double lowest = lowest(u, faceT);
+                if (!doesCrossTextureBound(lowest, highest(u, faceT))) {
+                    // The full path would only re-triangulate this face (covering exactly the same area), so we can
+                    // skip all of the vertex and line allocation.
+                    splitFull.add(toRounded(face, u, (int) Math.floor(lowest)));
+                    splitTex.add(faceT);
+                    continue;
+                }
+            }
+
+            quad.set(face, faceT);
+            quad.split(u, fullSink, texSink);
         }
     }
 
-    private static boolean doesCrossTextureBound(double a, double b) {
-        if (a == b) {
-            return false;
+    /** The {@link FluidRenderFaceBuffer} equivalent of {@link #splitFacesComponent(List)}. */
+    static void splitFacesComponent(
+        FluidRenderFaceBuffer faces, FluidRenderFaceBuffer splitFull, @Nullable FluidRenderFaceBuffer splitTex
+    ) {
+        Quad quad = new Quad();
+
+        FluidRenderFaceBuffer splitFullU = new FluidRenderFaceBuffer(faces.size());
+        FluidRenderFaceBuffer splitTexU = new FluidRenderFaceBuffer(faces.size());
+        separateFaces(true, faces, faces, splitFullU, splitTexU, quad);
+
+        if (splitTex == null) {
+            splitTex = new FluidRenderFaceBuffer(splitFullU.size());
+        }
+        separateFaces(false, splitFullU, splitTexU, splitFull, splitTex, quad);
+    }
+
+    private static void separateFaces(
+        boolean u, FluidRenderFaceBuffer inputFull, FluidRenderFaceBuffer inputTex, FluidRenderFaceBuffer splitFull,
+        FluidRenderFaceBuffer splitTex, Quad quad
+    ) {
+        FaceSink fullSink = splitFull::add;
+        FaceSink texSink = splitTex::add;
+
+        for (int face = 0; face < inputFull.size(); face++) {
+            double lowest = Math.min(
+                Math.min(inputTex.getTex(face, 0, u), inputTex.getTex(face, 1, u)),
+                Math.min(inputTex.getTex(face, 2, u), inputTex.getTex(face, 3, u))
+            );
+            double highest = Math.max(
+                Math.max(inputTex.getTex(face, 0, u), inputTex.getTex(face, 1, u)),
+                Math.max(inputTex.getTex(face, 2, u), inputTex.getTex(face, 3, u))
+            );
+            if (!doesCrossTextureBound(lowest, highest)) {
+                splitFull.addShifted(inputFull, face, u, (int) Math.floor(lowest));
+                splitTex.addShifted(inputTex, face, u, 0);
+                continue;
+            }
+
+            quad.set(inputFull, inputTex, face);
+            quad.split(u, fullSink, texSink);
         }
-        if (a > b) {
-            double t = a;
-            a = b;
-            b = t;
+    }
+
+    /** @param a The lowest texture co-ord
+     * @param b The highest texture co-ord
+     * @return True if the range a to b can't be drawn with a single copy of the texture. */
+    private static boolean doesCrossTextureBound(double a, double b) {
+        return b > Math.floor(a) + 1;
+    }
+
+    private static double lowest(boolean u, FluidRenderFace f) {
+        return u ? Math.min(Math.min(f.u0, f.u1), Math.min(f.u2, f.u3))
+            : Math.min(Math.min(f.v0, f.v1), Math.min(f.v2, f.v3));
+    }
+
+    private static double highest(boolean u, FluidRenderFace f) {
+        return u ? Math.max(Math.max(f.u0, f.u1), Math.max(f.u2, f.u3))
+            : Math.max(Math.max(f.v0, f.v1), Math.max(f.v2, f.v3));
+    }
+
+    private static FluidRenderFace toRounded(FluidRenderFace f, boolean u, int min) {
+        int du = u ? min : 0;
+        int dv = u ? 0 : min;
+        return new FluidRenderFace(
+            f.x0, f.y0, f.z0, f.u0 - du, f.v0 - dv, //
+            f.x1, f.y1, f.z1, f.u1 - du, f.v1 - dv, //
+            f.x2, f.y2, f.z2, f.u2 - du, f.v2 - dv, //
+            f.x3, f.y3, f.z3, f.u3 - du, f.v3 - dv, //
+            f.light, f.nx, f.ny, f.nz, f.flowing
+        );
+    }
+
+    /** Somewhere to put split faces: either a list of {@link FluidRenderFace}s or a {@link FluidRenderFaceBuffer}. */
+    interface FaceSink {
+        void add(
+            double x0, double y0, double z0, double u0, double v0, //
+            double x1, double y1, double z1, double u1, double v1, //
+            double x2, double y2, double z2, double u2, double v2, //
+            double x3, double y3, double z3, double u3, double v3, //
+            int light, float nx, float ny, float nz, boolean flowing//
+        );
+    }
+
+    static final class ListSink implements FaceSink {
+        final List<FluidRenderFace> list;
+
+        ListSink(List<FluidRenderFace> list) {
+            this.list = list;
         }
-        int ra = (int) Math.floor(a);
-        int rb = (int) Math.floor(b);
-        if (rb == b) {
-            // Upper bound
-            return rb - 1 != ra;
+
+        @Override
+        public void add(
+            double x0, double y0, double z0, double u0, double v0, //
+            double x1, double y1, double z1, double u1, double v1, //
+            double x2, double y2, double z2, double u2, double v2, //
+            double x3, double y3, double z3, double u3, double v3, //
+            int light, float nx, float ny, float nz, boolean flowing//
+        ) {
+            list.add(
+                new FluidRenderFace(
+                    x0, y0, z0, u0, v0, //
+                    x1, y1, z1, u1, v1, //
+                    x2, y2, z2, u2, v2, //
+                    x3, y3, z3, u3, v3, //
+                    light, nx, ny, nz, flowing
+                )
+            );
         }
-        return rb == ra;
     }
 
     static final class Vertex {
@@ -97,10 +207,6 @@ import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRende
             this.vN = vN;
         }
 
-        public Vertex(Vertex from) {
-            this(from.x, from.y, from.z, from.uR, from.vR, from.uN, from.vN);
-        }
-
         void set(FluidRenderFace rounded, FluidRenderFace normal, int i) {
             final FluidRenderFace f = rounded;
             final FluidRenderFace n = normal;
@@ -113,6 +219,16 @@ import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRende
             vN = i == 0 ? n.v0 : i == 1 ? n.v1 : i == 2 ? n.v2 : n.v3;
         }
 
+        void set(FluidRenderFaceBuffer rounded, FluidRenderFaceBuffer normal, int face, int i) {
+            x = rounded.getX(face, i);
+            y = rounded.getY(face, i);
+            z = rounded.getZ(face, i);
+            uR = rounded.getU(face, i);
+            vR = rounded.getV(face, i);
+            uN = normal.getU(face, i);
+            vN = normal.getV(face, i);
+        }
+
         double texN(boolean _u) {
             return _u ? uN : vN;
         }
@@ -138,40 +254,30 @@ import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRende
         }
     }
 
+    /** A mutable quad, which is re-used for every face that {@link FluidFaceSplitter} needs to split. */
     static final class Quad {
         final Vertex v0, v1, v2, v3;
         final Line l0, l1, l2, l3;
-        final int light;
-        final float nx, ny, nz;
-        final boolean flowing;
+        int light;
+        float nx, ny, nz;
+        boolean flowing;
 
-        Quad(int light, float nx, float ny, float nz, boolean flowing) {
-            this(new Vertex(), new Vertex(), new Vertex(), new Vertex(), light, nx, ny, nz, flowing);
-        }
+        private final Vertex[] searchVertices;
+        private final List<Vertex> lowToHigh0 = new ArrayList<>(4);
+        private final List<Vertex> lowToHigh1 = new ArrayList<>(4);
 
-        Quad(FluidRenderFace rounded, FluidRenderFace normal) {
-            this(rounded.light, rounded.nx, rounded.ny, rounded.nz, rounded.flowing);
-            set(rounded, normal);
-        }
-
-        public Quad(
-            Vertex v0, Vertex v1, Vertex v2, Vertex v3, int light, float nx, float ny, float nz, boolean flowing
-        ) {
-            this.v0 = v0.l0 == null && v0.l1 == null ? v0 : new Vertex(v0);
-            this.v1 = v1.l0 == null && v1.l1 == null ? v1 : new Vertex(v1);
-            this.v2 = v2.l0 == null && v2.l1 == null ? v2 : new Vertex(v2);
-            this.v3 = v3.l0 == null && v3.l1 == null ? v3 : new Vertex(v3);
+        Quad() {
+            v0 = new Vertex();
+            v1 = new Vertex();
+            v2 = new Vertex();
+            v3 = new Vertex();
 
             l0 = new Line(v0, v1);
             l1 = new Line(v1, v2);
             l2 = new Line(v2, v3);
             l3 = new Line(v3, v0);
 
-            this.light = light;
-            this.nx = nx;
-            this.ny = ny;
-            this.nz = nz;
-            this.flowing = flowing;
+            searchVertices = new Vertex[] { v1, v2, v3 };
         }
 
         void set(FluidRenderFace rounded, FluidRenderFace normal) {
@@ -179,25 +285,31 @@ import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRende
             v1.set(rounded, normal, 1);
             v2.set(rounded, normal, 2);
             v3.set(rounded, normal, 3);
+            light = rounded.light;
+            nx = rounded.nx;
+            ny = rounded.ny;
+            nz = rounded.nz;
+            flowing = rounded.flowing;
         }
 
-        void split(boolean u, List<FluidRenderFace> splitFull, List<FluidRenderFace> splitTex) {
-            // double min = lowest(u);
-            // double max = highest(u);
-            // if (!doesCrossTextureBound(min, max)) {
-            // splitFull.add(this.toRounded(u));
-            // splitTex.add(nonSplit);
-            // return;
-            // }
+        void set(FluidRenderFaceBuffer rounded, FluidRenderFaceBuffer normal, int face) {
+            v0.set(rounded, normal, face, 0);
+            v1.set(rounded, normal, face, 1);
+            v2.set(rounded, normal, face, 2);
+            v3.set(rounded, normal, face, 3);
+            light = rounded.getLight(face);
+            nx = rounded.getNormalX(face);
+            ny = rounded.getNormalY(face);
+            nz = rounded.getNormalZ(face);
+            flowing = rounded.isFlowing(face);
+        }
 
+        void split(boolean u, FaceSink splitFull, FaceSink splitTex) {
             Vertex lowestVertex = v0;
             Vertex highestVertex = v0;
 
-            Vertex[] searchVertices = new Vertex[] { v1, v2, v3 };
-            double[] searchPoints = new double[] { v1.texN(u), v2.texN(u), v3.texN(u) };
-            for (int i = 0; i < searchVertices.length; i++) {
-                Vertex v = searchVertices[i];
-                double point = searchPoints[i];
+            for (Vertex v : searchVertices) {
+                double point = v.texN(u);
                 if (point < lowestVertex.texN(u)) {
                     lowestVertex = v;
                 }
@@ -207,14 +319,12 @@ import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRende
             }
 
             if (lowestVertex == highestVertex) {
-                splitFull.add(this.toRounded(u));
-                splitTex.add(this.toFace());
+                emit(u, (int) Math.floor(lowestR(u)), v0, v1, v2, v3, splitFull, splitTex);
                 return;
             }
 
-            List<Vertex> lowToHigh0 = new ArrayList<>(4);
-            List<Vertex> lowToHigh1 = new ArrayList<>(4);
-
+            lowToHigh0.clear();
+            lowToHigh1.clear();
             lowToHigh0.add(lowestVertex);
             lowToHigh1.add(lowestVertex);
 
@@ -257,53 +367,39 @@ import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRende
                         Vertex vl1 = list0.get(0);
                         Vertex vr0 = list1.remove(0);
                         Vertex vr1 = list1.get(0);
-                        Quad quad = new Quad(vl0, vl1, vr1, vr0, light, nx, ny, nz, flowing);
-                        splitFull.add(quad.toRounded(u, bucket0.texValue));
-                        splitTex.add(quad.toFace());
+                        emit(u, bucket0.texValue, vl0, vl1, vr1, vr0, splitFull, splitTex);
                     } else if (size0 > 2 && size1 > 0) {
                         Vertex vl0 = list0.remove(0);
                         Vertex vl1 = list0.remove(0);
                         Vertex vl2 = list0.get(0);
                         Vertex vr0 = list1.get(0);
-                        Quad quad = new Quad(vl0, vl1, vl2, vr0, light, nx, ny, nz, flowing);
-                        splitFull.add(quad.toRounded(u, bucket0.texValue));
-                        splitTex.add(quad.toFace());
+                        emit(u, bucket0.texValue, vl0, vl1, vl2, vr0, splitFull, splitTex);
                     } else if (size0 > 0 && size1 > 2) {
                         Vertex vl0 = list0.get(0);
                         Vertex vr0 = list1.remove(0);
                         Vertex vr1 = list1.remove(0);
                         Vertex vr2 = list1.get(0);
-                        Quad quad = new Quad(vl0, vr2, vr1, vr0, light, nx, ny, nz, flowing);
-                        splitFull.add(quad.toRounded(u, bucket0.texValue));
-                        splitTex.add(quad.toFace());
+                        emit(u, bucket0.texValue, vl0, vr2, vr1, vr0, splitFull, splitTex);
                     } else if (size0 > 1 && size1 > 0) {
                         Vertex vl0 = list0.remove(0);
                         Vertex vl1 = list0.get(0);
                         Vertex vr0 = list1.get(0);
-                        Quad quad = new Quad(vl0, vl1, vr0, vr0, light, nx, ny, nz, flowing);
-                        splitFull.add(quad.toRounded(u, bucket0.texValue));
-                        splitTex.add(quad.toFace());
+                        emit(u, bucket0.texValue, vl0, vl1, vr0, vr0, splitFull, splitTex);
                     } else if (size0 > 0 && size1 > 1) {
                         Vertex vl0 = list0.get(0);
                         Vertex vr0 = list1.remove(0);
                         Vertex vr1 = list1.get(0);
-                        Quad quad = new Quad(vl0, vr1, vr0, vl0, light, nx, ny, nz, flowing);
-                        splitFull.add(quad.toRounded(u, bucket0.texValue));
-                        splitTex.add(quad.toFace());
+                        emit(u, bucket0.texValue, vl0, vr1, vr0, vl0, splitFull, splitTex);
                     } else if (size0 > 2) {
                         Vertex vl0 = list0.remove(0);
                         Vertex vl1 = list0.remove(0);
                         Vertex vl2 = list0.get(0);
-                        Quad quad = new Quad(vl0, vl1, vl2, vl0, light, nx, ny, nz, flowing);
-                        splitFull.add(quad.toRounded(u, bucket0.texValue));
-                        splitTex.add(quad.toFace());
+                        emit(u, bucket0.texValue, vl0, vl1, vl2, vl0, splitFull, splitTex);
                     } else if (size1 > 2) {
                         Vertex vr0 = list1.remove(0);
                         Vertex vr1 = list1.remove(0);
                         Vertex vr2 = list1.get(0);
-                        Quad quad = new Quad(vr2, vr1, vr0, vr2, light, nx, ny, nz, flowing);
-                        splitFull.add(quad.toRounded(u, bucket0.texValue));
-                        splitTex.add(quad.toFace());
+                        emit(u, bucket0.texValue, vr2, vr1, vr0, vr2, splitFull, splitTex);
                     } else if (size0 + size1 > 2) {
                         throw new IllegalStateException("Unhandled size: [ " + size0 + ", " + size1 + " ]");
                     } else {
@@ -401,36 +497,22 @@ import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRende
             }
         }
 
-        FluidRenderFace toRounded(boolean u) {
-            return toRounded(u, (int) Math.floor(lowestR(u)));
-        }
-
-        FluidRenderFace toRounded(boolean u, int min) {
-            double _u0 = round(u, min, v0.uR);
-            double _u1 = round(u, min, v1.uR);
-            double _u2 = round(u, min, v2.uR);
-            double _u3 = round(u, min, v3.uR);
-
-            double _v0 = round(!u, min, v0.vR);
-            double _v1 = round(!u, min, v1.vR);
-            double _v2 = round(!u, min, v2.vR);
-            double _v3 = round(!u, min, v3.vR);
-
-            return new FluidRenderFace(
-                v0.x, v0.y, v0.z, _u0, _v0, //
-                v1.x, v1.y, v1.z, _u1, _v1, //
-                v2.x, v2.y, v2.z, _u2, _v2, //
-                v3.x, v3.y, v3.z, _u3, _v3, //
+        /** Adds the quad made from the given vertices to both output lists, without creating a new {@link Quad}. */
+        private void emit(
+            boolean u, int min, Vertex a, Vertex b, Vertex c, Vertex d, FaceSink splitFull, FaceSink splitTex
+        ) {
+            splitFull.add(
+                a.x, a.y, a.z, round(u, min, a.uR), round(!u, min, a.vR), //
+                b.x, b.y, b.z, round(u, min, b.uR), round(!u, min, b.vR), //
+                c.x, c.y, c.z, round(u, min, c.uR), round(!u, min, c.vR), //
+                d.x, d.y, d.z, round(u, min, d.uR), round(!u, min, d.vR), //
                 light, nx, ny, nz, flowing
             );
-        }
-
-        FluidRenderFace toFace() {
-            return new FluidRenderFace(
-                v0.x, v0.y, v0.z, v0.uN, v0.vN, //
-                v1.x, v1.y, v1.z, v1.uN, v1.vN, //
-                v2.x, v2.y, v2.z, v2.uN, v2.vN, //
-                v3.x, v3.y, v3.z, v3.uN, v3.vN, //
+            splitTex.add(
+                a.x, a.y, a.z, a.uN, a.vN, //
+                b.x, b.y, b.z, b.uN, b.vN, //
+                c.x, c.y, c.z, c.uN, c.vN, //
+                d.x, d.y, d.z, d.uN, d.vN, //
                 light, nx, ny, nz, flowing
             );
         }
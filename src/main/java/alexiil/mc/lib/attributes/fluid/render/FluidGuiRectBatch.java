@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.render;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import net.minecraft.client.util.math.MatrixStack;
+
+import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ExpandingVcp;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+/** Collects many gui fluid rectangles, and then draws all of them at once. This is much faster than calling
+ * {@link FluidVolume#renderGuiRect(double, double, double, double)} for every rectangle (which draws each one
+ * immediately), as every rectangle with the same render layer is drawn together, in a single draw call.
+ * <p>
+ * Rectangles are rendered grouped by their {@link FluidKey} (so that they share sprites, and
+ * {@link FluidMeshCache} entries) rather than in the order that they were added, so overlapping rectangles may not be
+ * drawn in the expected order. Each rectangle is rendered by
+ * {@link FluidVolumeRenderer#renderGuiRectangle(FluidVolume, double, double, double, double, net.minecraft.client.render.VertexConsumerProvider, MatrixStack)}
+ * on the {@link FluidVolume#getRenderer() fluid's renderer}.
+ * <p>
+ * A batch can be re-used after it's been drawn. */
+public final class FluidGuiRectBatch {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(e -> e.fluid.getFluidKey().getRuntimeId());
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public FluidGuiRectBatch() {}
+
+    /** Adds a rectangle to this batch. Empty fluids are ignored. */
+    public void add(FluidVolume fluid, double x0, double y0, double x1, double y1) {
+        if (fluid.isEmpty()) {
+            return;
+        }
+        entries.add(new Entry(fluid, x0, y0, x1, y1));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /** Removes every rectangle from this batch without drawing them. */
+    public void clear() {
+        entries.clear();
+    }
+
+    /** Draws every rectangle in this batch with {@link FluidVolumeRenderer#VCPS}, and then clears this batch. */
+    public void draw() {
+        draw(FluidVolumeRenderer.VCPS);
+    }
+
+    /** Draws every rectangle in this batch with the given {@link ExpandingVcp}, and then clears this batch. */
+    public void draw(ExpandingVcp vcp) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        // List.sort is stable, so rectangles of the same fluid are still drawn in the order they were added
+        entries.sort(ORDER);
+        MatrixStack matrices = new MatrixStack();
+        for (Entry e : entries) {
+            e.fluid.getRenderer().renderGuiRectangle(e.fluid, e.x0, e.y0, e.x1, e.y1, vcp, matrices);
+        }
+        entries.clear();
+        vcp.draw();
+    }
+
+    private static final class Entry {
+        final FluidVolume fluid;
+        final double x0, y0, x1, y1;
+
+        Entry(FluidVolume fluid, double x0, double y0, double x1, double y1) {
+            this.fluid = fluid;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.render;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.client.texture.SpriteAtlasTexture;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.Identifier;
+
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+/** A cache of the split, textured, vertex data that {@link DefaultFluidVolumeRenderer} (and
+ * {@link EnchantmentGlintFluidRenderer}) generate for a fluid and a list (or {@link FluidRenderFaceBuffer}) of faces.
+ * Most tanks render exactly the same faces (for the same fill level) every frame, so this skips resolving the sprites,
+ * finding the render layer, and splitting the faces for all of them.
+ * <p>
+ * Entries are keyed on the {@link FluidKey}, sprites, and colour of the fluid, and on the contents of every face (so
+ * the fill level is included, as it changes the faces). Only the {@link MatrixStack} transform is applied every frame.
+ * The whole cache is cleared whenever a {@link SpriteAtlasTexture} is reloaded, as the sprite UV's may have
+ * changed. */
+public final class FluidMeshCache {
+    private FluidMeshCache() {}
+
+    /** The maximum number of meshes to keep around at once. */
+    private static final int MAX_ENTRIES = 512;
+
+    // Mostly used from the render thread, but atlases can be reloaded (and fluids rendered) from other threads
+    private static final Map<Key, BakedFluidMesh> CACHE = new LinkedHashMap<Key, BakedFluidMesh>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, BakedFluidMesh> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /** Incremented whenever the cache is cleared, so meshes that were baked with old sprites aren't added back. */
+    private static int generation;
+
+    /** Called by LBA's mixin after a {@link SpriteAtlasTexture} has been (re)stitched. You shouldn't need to call this
+     * yourself. */
+    public static void onAtlasReloaded() {
+        clear();
+    }
+
+    /** Removes every baked mesh from the cache. */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            generation++;
+        }
+    }
+
+    /** @return The baked mesh for the given fluid and (unsplit) faces, baking it first if it wasn't already cached. */
+    static BakedFluidMesh get(FluidVolume fluid, List<FluidRenderFace> faces) {
+        Key key = new Key(fluid, Key.snapshot(faces));
+        int gen;
+        synchronized (CACHE) {
+            BakedFluidMesh mesh = CACHE.get(key);
+            if (mesh != null) {
+                return mesh;
+            }
+            gen = generation;
+        }
+        FluidRenderFaceBuffer split = FluidRenderFaceBuffer.of(FluidVolumeRenderer.splitFaces(faces));
+        return put(key, BakedFluidMesh.bake(fluid, split, key.colour), gen);
+    }
+
+    /** @return The baked mesh for the given fluid and (unsplit) faces, baking it first if it wasn't already cached. */
+    static BakedFluidMesh get(FluidVolume fluid, FluidRenderFaceBuffer faces) {
+        Key key = new Key(fluid, Key.snapshot(faces));
+        int gen;
+        synchronized (CACHE) {
+            BakedFluidMesh mesh = CACHE.get(key);
+            if (mesh != null) {
+                return mesh;
+            }
+            gen = generation;
+        }
+        return put(key, BakedFluidMesh.bake(fluid, faces.split(), key.colour), gen);
+    }
+
+    /** Baking happens outside of the lock (as it's the slow part), so the cache might have been cleared since. */
+    private static BakedFluidMesh put(Key key, BakedFluidMesh mesh, int gen) {
+        synchronized (CACHE) {
+            if (gen == generation) {
+                CACHE.put(key, mesh);
+            }
+        }
+        return mesh;
+    }
+
+    private static final class Key {
+        private static final int VALUES_PER_FACE = 25;
+
+        final FluidKey fluidKey;
+        final Identifier stillSprite, flowingSprite;
+        final int colour;
+        final double[] faces;
+        final int hash;
+
+        Key(FluidVolume fluid, double[] faces) {
+            this.fluidKey = fluid.getFluidKey();
+            this.stillSprite = fluid.getStillSprite();
+            this.flowingSprite = fluid.getFlowingSprite();
+            this.colour = fluid.getRenderColor();
+            this.faces = faces;
+            int h = fluidKey.hashCode();
+            h = h * 31 + stillSprite.hashCode();
+            h = h * 31 + flowingSprite.hashCode();
+            h = h * 31 + colour;
+            this.hash = h * 31 + Arrays.hashCode(faces);
+        }
+
+        static double[] snapshot(List<FluidRenderFace> faces) {
+            double[] d = new double[faces.size() * VALUES_PER_FACE];
+            int i = 0;
+            for (FluidRenderFace f : faces) {
+                i = put(d, i, f.x0, f.y0, f.z0, f.u0, f.v0);
+                i = put(d, i, f.x1, f.y1, f.z1, f.u1, f.v1);
+                i = put(d, i, f.x2, f.y2, f.z2, f.u2, f.v2);
+                i = put(d, i, f.x3, f.y3, f.z3, f.u3, f.v3);
+                i = put(d, i, f.light, f.nx, f.ny, f.nz, f.flowing ? 1 : 0);
+            }
+            return d;
+        }
+
+        static double[] snapshot(FluidRenderFaceBuffer faces) {
+            double[] d = new double[faces.size() * VALUES_PER_FACE];
+            int i = 0;
+            for (int f = 0; f < faces.size(); f++) {
+                for (int v = 0; v < 4; v++) {
+                    i = put(
+                        d, i, faces.getX(f, v), faces.getY(f, v), faces.getZ(f, v), faces.getU(f, v), faces.getV(f, v)
+                    );
+                }
+                i = put(
+                    d, i, faces.getLight(f), faces.getNormalX(f), faces.getNormalY(f), faces.getNormalZ(f),
+                    faces.isFlowing(f) ? 1 : 0
+                );
+            }
+            return d;
+        }
+
+        private static int put(double[] d, int i, double x, double y, double z, double u, double v) {
+            d[i++] = x;
+            d[i++] = y;
+            d[i++] = z;
+            d[i++] = u;
+            d[i++] = v;
+            return i;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash //
+                && fluidKey == other.fluidKey //
+                && colour == other.colour //
+                && stillSprite.equals(other.stillSprite) //
+                && flowingSprite.equals(other.flowingSprite) //
+                && Arrays.equals(faces, other.faces);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** The fully split and textured vertex data for a single fluid, ready to be replayed into a
+     * {@link VertexConsumer}. */
+    static final class BakedFluidMesh {
+        /** x, y, z, u, v, nx, ny, nz */
+        private static final int FLOATS_PER_VERTEX = 8;
+
+        final RenderLayer layer;
+        private final int r, g, b, a;
+        private final float[] data;
+        private final int[] light;
+
+        private BakedFluidMesh(RenderLayer layer, int colour, float[] data, int[] light) {
+            this.layer = layer;
+            this.a = (colour >>> 24) & 0xFF;
+            this.r = (colour >> 16) & 0xFF;
+            this.g = (colour >> 8) & 0xFF;
+            this.b = (colour >> 0) & 0xFF;
+            this.data = data;
+            this.light = light;
+        }
+
+        /** @param split The faces to bake, which must have already been split. */
+        static BakedFluidMesh bake(FluidVolume fluid, FluidRenderFaceBuffer split, int colour) {
+            Sprite[] sprites = FluidVolumeRenderer.getSprites(fluid);
+            RenderLayer layer = FluidVolumeRenderer.getRenderLayer(fluid);
+            Sprite _s = sprites[0];
+            Sprite _f = sprites[1];
+
+            float[] data = new float[split.size() * 4 * FLOATS_PER_VERTEX];
+            int[] light = new int[split.size() * 4];
+            int i = 0;
+            for (int f = 0; f < split.size(); f++) {
+                for (int v = 0; v < 4; v++) {
+                    data[i++] = split.getX(f, v);
+                    data[i++] = split.getY(f, v);
+                    data[i++] = split.getZ(f, v);
+                    data[i++] = split.getSpriteU(f, v, _s, _f);
+                    data[i++] = split.getSpriteV(f, v, _s, _f);
+                    data[i++] = split.getNormalX(f);
+                    data[i++] = split.getNormalY(f);
+                    data[i++] = split.getNormalZ(f);
+                }
+                Arrays.fill(light, f * 4, f * 4 + 4, split.getLight(f));
+            }
+            return new BakedFluidMesh(layer, colour, data, light);
+        }
+
+        /** Appends every vertex of this mesh to the given {@link VertexConsumer}, transformed by the given
+         * {@link MatrixStack}. */
+        void render(VertexConsumer vc, MatrixStack matrices) {
+            final float[] d = data;
+            for (int v = 0; v < light.length; v++) {
+                int i = v * FLOATS_PER_VERTEX;
+                FluidVolumeRenderer.vertex(
+                    vc, matrices, d[i], d[i + 1], d[i + 2], d[i + 3], d[i + 4], r, g, b, a, light[v], d[i + 5],
+                    d[i + 6], d[i + 7]
+                );
+            }
+        }
+    }
+}
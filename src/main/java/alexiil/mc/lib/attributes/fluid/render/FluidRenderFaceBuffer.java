@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.MathHelper;
+
+/** A compact, growable, list of {@link FluidRenderFace}s, stored in a single float array rather than as separate
+ * objects. This has the same operations as the static methods in {@link FluidRenderFace} (and
+ * {@link FluidVolumeRenderer#splitFaces(List)}), but doesn't allocate anything per face, so it's better suited to
+ * renderers that draw a lot of faces every frame.
+ * <p>
+ * Faces are indexed from 0 to {@link #size()}, and vertices from 0 to 3, in the same order as
+ * {@link FluidRenderFace#x0} to {@link FluidRenderFace#x3}. {@link #get(int)} and {@link #toList()} can be used to
+ * convert back into {@link FluidRenderFace} objects when needed. */
+public final class FluidRenderFaceBuffer {
+
+    /** x, y, z, u, v for each of the 4 vertices, followed by nx, ny, nz. */
+    private static final int FLOATS_PER_FACE = 4 * 5 + 3;
+    private static final int NORMAL_OFFSET = 4 * 5;
+
+    private float[] data;
+    private int[] light;
+    private boolean[] flowing;
+    private int size;
+
+    public FluidRenderFaceBuffer() {
+        this(8);
+    }
+
+    public FluidRenderFaceBuffer(int initialCapacity) {
+        data = new float[initialCapacity * FLOATS_PER_FACE];
+        light = new int[initialCapacity];
+        flowing = new boolean[initialCapacity];
+    }
+
+    /** @return A new {@link FluidRenderFaceBuffer} containing every face in the given list. */
+    public static FluidRenderFaceBuffer of(List<FluidRenderFace> faces) {
+        FluidRenderFaceBuffer buffer = new FluidRenderFaceBuffer(faces.size());
+        buffer.addAll(faces);
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes every face from this buffer, but keeps the backing arrays so that it can be re-used without
+     * allocating. */
+    public void clear() {
+        size = 0;
+    }
+
+    private int ensureSpace(int count) {
+        int needed = size + count;
+        if (needed > light.length) {
+            int newCapacity = Math.max(needed, light.length * 2);
+            data = Arrays.copyOf(data, newCapacity * FLOATS_PER_FACE);
+            light = Arrays.copyOf(light, newCapacity);
+            flowing = Arrays.copyOf(flowing, newCapacity);
+        }
+        return size;
+    }
+
+    // #########
+    // Adding
+    // #########
+
+    public void add(
+        double _x0, double _y0, double _z0, double _u0, double _v0, //
+        double _x1, double _y1, double _z1, double _u1, double _v1, //
+        double _x2, double _y2, double _z2, double _u2, double _v2, //
+        double _x3, double _y3, double _z3, double _u3, double _v3, //
+        int light, float nx, float ny, float nz, boolean flowing//
+    ) {
+        int face = ensureSpace(1);
+        int i = face * FLOATS_PER_FACE;
+        i = put(i, _x0, _y0, _z0, _u0, _v0);
+        i = put(i, _x1, _y1, _z1, _u1, _v1);
+        i = put(i, _x2, _y2, _z2, _u2, _v2);
+        i = put(i, _x3, _y3, _z3, _u3, _v3);
+        data[i++] = nx;
+        data[i++] = ny;
+        data[i++] = nz;
+        this.light[face] = light;
+        this.flowing[face] = flowing;
+        size++;
+    }
+
+    private int put(int i, double x, double y, double z, double u, double v) {
+        data[i++] = (float) x;
+        data[i++] = (float) y;
+        data[i++] = (float) z;
+        data[i++] = (float) u;
+        data[i++] = (float) v;
+        return i;
+    }
+
+    public void add(FluidRenderFace f) {
+        add(
+            f.x0, f.y0, f.z0, f.u0, f.v0, //
+            f.x1, f.y1, f.z1, f.u1, f.v1, //
+            f.x2, f.y2, f.z2, f.u2, f.v2, //
+            f.x3, f.y3, f.z3, f.u3, f.v3, //
+            f.light, f.nx, f.ny, f.nz, f.flowing
+        );
+    }
+
+    public void addAll(List<FluidRenderFace> faces) {
+        ensureSpace(faces.size());
+        for (FluidRenderFace face : faces) {
+            add(face);
+        }
+    }
+
+    public void addAll(FluidRenderFaceBuffer from) {
+        int start = ensureSpace(from.size);
+        System.arraycopy(from.data, 0, data, start * FLOATS_PER_FACE, from.size * FLOATS_PER_FACE);
+        System.arraycopy(from.light, 0, light, start, from.size);
+        System.arraycopy(from.flowing, 0, flowing, start, from.size);
+        size += from.size;
+    }
+
+    /** Adds a copy of a single face from the given buffer, with the given offset subtracted from either the u or v
+     * co-ords. */
+    /* package-private */ void addShifted(FluidRenderFaceBuffer from, int face, boolean u, int offset) {
+        int to = ensureSpace(1);
+        System.arraycopy(from.data, face * FLOATS_PER_FACE, data, to * FLOATS_PER_FACE, FLOATS_PER_FACE);
+        if (offset != 0) {
+            int i = to * FLOATS_PER_FACE + (u ? 3 : 4);
+            for (int v = 0; v < 4; v++) {
+                data[i + v * 5] -= offset;
+            }
+        }
+        light[to] = from.light[face];
+        flowing[to] = from.flowing[face];
+        size++;
+    }
+
+    // #########
+    // Getters
+    // #########
+
+    private int index(int face, int vertex) {
+        if (face < 0 || face >= size) {
+            throw new IndexOutOfBoundsException("Face " + face + " is not between 0 and " + size);
+        }
+        return face * FLOATS_PER_FACE + vertex * 5;
+    }
+
+    public float getX(int face, int vertex) {
+        return data[index(face, vertex)];
+    }
+
+    public float getY(int face, int vertex) {
+        return data[index(face, vertex) + 1];
+    }
+
+    public float getZ(int face, int vertex) {
+        return data[index(face, vertex) + 2];
+    }
+
+    public float getU(int face, int vertex) {
+        return data[index(face, vertex) + 3];
+    }
+
+    public float getV(int face, int vertex) {
+        return data[index(face, vertex) + 4];
+    }
+
+    /** @return The u or v co-ord of the given vertex. */
+    /* package-private */ float getTex(int face, int vertex, boolean u) {
+        return data[index(face, vertex) + (u ? 3 : 4)];
+    }
+
+    public float getNormalX(int face) {
+        return data[index(face, 0) + NORMAL_OFFSET];
+    }
+
+    public float getNormalY(int face) {
+        return data[index(face, 0) + NORMAL_OFFSET + 1];
+    }
+
+    public float getNormalZ(int face) {
+        return data[index(face, 0) + NORMAL_OFFSET + 2];
+    }
+
+    public int getLight(int face) {
+        index(face, 0);
+        return light[face];
+    }
+
+    public void setLight(int face, int light) {
+        index(face, 0);
+        this.light[face] = light;
+    }
+
+    public boolean isFlowing(int face) {
+        index(face, 0);
+        return flowing[face];
+    }
+
+    /** Like {@link FluidRenderFace#getU(Sprite, Sprite, double)}, but for the given vertex in this buffer. */
+    public float getSpriteU(int face, int vertex, Sprite still, Sprite flowing) {
+        float u = getU(face, vertex);
+        Sprite s = still;
+        if (this.flowing[face]) {
+            s = flowing;
+            u = 0.25f + u * 0.5f;
+        }
+        return MathHelper.lerp(u, s.getMinU(), s.getMaxU());
+    }
+
+    /** Like {@link FluidRenderFace#getV(Sprite, Sprite, double)}, but for the given vertex in this buffer. */
+    public float getSpriteV(int face, int vertex, Sprite still, Sprite flowing) {
+        float v = getV(face, vertex);
+        Sprite s = still;
+        if (this.flowing[face]) {
+            s = flowing;
+            v = 0.25f + v * 0.5f;
+        }
+        return MathHelper.lerp(v, s.getMinV(), s.getMaxV());
+    }
+
+    /** @return A new {@link FluidRenderFace} with the same values as the given face. */
+    public FluidRenderFace get(int face) {
+        int i = index(face, 0);
+        float[] d = data;
+        return new FluidRenderFace(
+            d[i], d[i + 1], d[i + 2], d[i + 3], d[i + 4], //
+            d[i + 5], d[i + 6], d[i + 7], d[i + 8], d[i + 9], //
+            d[i + 10], d[i + 11], d[i + 12], d[i + 13], d[i + 14], //
+            d[i + 15], d[i + 16], d[i + 17], d[i + 18], d[i + 19], //
+            light[face], d[i + 20], d[i + 21], d[i + 22], flowing[face]
+        );
+    }
+
+    /** @return A new list containing a {@link FluidRenderFace} for every face in this buffer. */
+    public List<FluidRenderFace> toList() {
+        List<FluidRenderFace> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    // #########
+    // Shapes
+    // #########
+
+    /** Like {@link FluidRenderFace#appendCuboid(double, double, double, double, double, double, double, EnumSet, List)}
+     * but adds the faces to this buffer. */
+    public void appendCuboid(
+        double x0, double y0, double z0, double x1, double y1, double z1, double textureScale, EnumSet<Direction> faces
+    ) {
+        appendCuboid(x0, y0, z0, x1, y1, z1, textureScale, faces, false);
+    }
+
+    /** Like
+     * {@link FluidRenderFace#appendCuboid(double, double, double, double, double, double, double, EnumSet, List, boolean)}
+     * but adds the faces to this buffer. */
+    public void appendCuboid(
+        double x0, double y0, double z0, double x1, double y1, double z1, double textureScale, EnumSet<Direction> faces,
+        boolean flowing
+    ) {
+        ensureSpace(faces.size());
+        for (Direction face : faces) {
+            addFlatFace(x0, y0, z0, x1, y1, z1, textureScale, face, flowing);
+        }
+    }
+
+    /** Like {@link FluidRenderFace#createFlatFace(double, double, double, double, double, double, double, Direction)}
+     * but adds the face to this buffer. */
+    public void addFlatFace(
+        double x0, double y0, double z0, double x1, double y1, double z1, double textureScale, Direction face
+    ) {
+        addFlatFace(x0, y0, z0, x1, y1, z1, textureScale, face, false);
+    }
+
+    /** Like
+     * {@link FluidRenderFace#createFlatFace(double, double, double, double, double, double, double, Direction, boolean)}
+     * but adds the face to this buffer. */
+    public void addFlatFace(
+        double x0, double y0, double z0, double x1, double y1, double z1, double textureScale, Direction face,
+        boolean flowing
+    ) {
+        switch (face) {
+            case DOWN:
+                addFlatFaceY(x0, y0, z0, x1, y1, z1, textureScale, false, flowing);
+                break;
+            case UP:
+                addFlatFaceY(x0, y0, z0, x1, y1, z1, textureScale, true, flowing);
+                break;
+            case NORTH:
+                addFlatFaceZ(x0, y0, z0, x1, y1, z1, textureScale, false, flowing);
+                break;
+            case SOUTH:
+                addFlatFaceZ(x0, y0, z0, x1, y1, z1, textureScale, true, flowing);
+                break;
+            case WEST:
+                addFlatFaceX(x0, y0, z0, x1, y1, z1, textureScale, false, flowing);
+                break;
+            case EAST:
+                addFlatFaceX(x0, y0, z0, x1, y1, z1, textureScale, true, flowing);
+                break;
+            default: {
+                throw new IllegalStateException("Unknown Direction " + face);
+            }
+        }
+    }
+
+    /** Like
+     * {@link FluidRenderFace#createFlatFaceX(double, double, double, double, double, double, double, boolean, boolean)}
+     * but adds the face to this buffer. */
+    public void addFlatFaceX(
+        double x0, double y0, double z0, double x1, double y1, double z1, double textureScale, boolean positive,
+        boolean flowing
+    ) {
+        final double s = textureScale;
+        final int l = FluidRenderFace.FULL_LIGHT;
+        if (positive) {
+            add(
+                x1, y0, z0, z0 * s, y0 * s, //
+                x1, y1, z0, z0 * s, y1 * s, //
+                x1, y1, z1, z1 * s, y1 * s, //
+                x1, y0, z1, z1 * s, y0 * s, //
+                l, +1, 0, 0, flowing
+            );
+        } else {
+            add(
+                x0, y0, z0, z0 * s, y0 * s, //
+                x0, y0, z1, z1 * s, y0 * s, //
+                x0, y1, z1, z1 * s, y1 * s, //
+                x0, y1, z0, z0 * s, y1 * s, //
+                l, -1, 0, 0, flowing
+            );
+        }
+    }
+
+    /** Like
+     * {@link FluidRenderFace#createFlatFaceY(double, double, double, double, double, double, double, boolean, boolean)}
+     * but adds the face to this buffer. */
+    public void addFlatFaceY(
+        double x0, double y0, double z0, double x1, double y1, double z1, double textureScale, boolean positive,
+        boolean flowing
+    ) {
+        final double s = textureScale;
+        final int l = FluidRenderFace.FULL_LIGHT;
+        if (positive) {
+            add(
+                x0, y1, z0, x0 * s, z0 * s, //
+                x0, y1, z1, x0 * s, z1 * s, //
+                x1, y1, z1, x1 * s, z1 * s, //
+                x1, y1, z0, x1 * s, z0 * s, //
+                l, 0, +1, 0, flowing
+            );
+        } else {
+            add(
+                x0, y0, z0, x0 * s, z0 * s, //
+                x1, y0, z0, x1 * s, z0 * s, //
+                x1, y0, z1, x1 * s, z1 * s, //
+                x0, y0, z1, x0 * s, z1 * s, //
+                l, 0, -1, 0, flowing
+            );
+        }
+    }
+
+    /** Like
+     * {@link FluidRenderFace#createFlatFaceZ(double, double, double, double, double, double, double, boolean, boolean)}
+     * but adds the face to this buffer. */
+    public void addFlatFaceZ(
+        double x0, double y0, double z0, double x1, double y1, double z1, double textureScale, boolean positive,
+        boolean flowing
+    ) {
+        final double s = textureScale;
+        final int l = FluidRenderFace.FULL_LIGHT;
+        if (positive) {
+            add(
+                x0, y0, z1, x0 * s, y0 * s, //
+                x1, y0, z1, x1 * s, y0 * s, //
+                x1, y1, z1, x1 * s, y1 * s, //
+                x0, y1, z1, x0 * s, y1 * s, //
+                l, 0, 0, +1, flowing
+            );
+        } else {
+            add(
+                x0, y0, z0, x0 * s, y0 * s, //
+                x0, y1, z0, x0 * s, y1 * s, //
+                x1, y1, z0, x1 * s, y1 * s, //
+                x1, y0, z0, x1 * s, y0 * s, //
+                l, 0, 0, -1, flowing
+            );
+        }
+    }
+
+    // #########
+    // Splitting
+    // #########
+
+    /** Like {@link FluidVolumeRenderer#splitFaces(List)}.
+     *
+     * @return A new buffer containing every face in this buffer, split up so that all of their UV's are between 0 and
+     *         1. */
+    public FluidRenderFaceBuffer split() {
+        FluidRenderFaceBuffer split = new FluidRenderFaceBuffer(size);
+        splitComponent(split, null);
+        return split;
+    }
+
+    /** Like {@link FluidVolumeRenderer#splitFacesComponent(List)}, but adds the split faces to the given buffers.
+     *
+     * @param split The buffer to add the split faces to, with UV's between 0 and 1.
+     * @param splitExceptTextures If non-null, the buffer to add the same faces to, but with UV's that haven't been
+     *            moved back into 0 to 1. */
+    public void splitComponent(FluidRenderFaceBuffer split, @Nullable FluidRenderFaceBuffer splitExceptTextures) {
+        FluidFaceSplitter.splitFacesComponent(this, split, splitExceptTextures);
+    }
+}
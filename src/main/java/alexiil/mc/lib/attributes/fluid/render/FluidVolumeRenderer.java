@@ -47,14 +47,35 @@ public abstract class FluidVolumeRenderer {
         FluidVolume fluid, List<FluidRenderFace> faces, VertexConsumerProvider vcp, MatrixStack matrices
     );
 
+    /** Renders every face in the given {@link FluidRenderFaceBuffer} of the given fluid at the specified co-ordinates.
+     * The default implementation converts the faces into a list and calls
+     * {@link #render(FluidVolume, List, VertexConsumerProvider, MatrixStack)}, but renderers should override this if
+     * they can use the buffer directly. */
+    public void render(
+        FluidVolume fluid, FluidRenderFaceBuffer faces, VertexConsumerProvider vcp, MatrixStack matrices
+    ) {
+        render(fluid, faces.toList(), vcp, matrices);
+    }
+
+    /** Renders a single gui rectangle and draws it immediately. If you need to render a lot of rectangles at once then
+     * {@link FluidGuiRectBatch} should be used instead. */
     public void renderGuiRectangle(FluidVolume fluid, double x0, double y0, double x1, double y1) {
-        List<FluidRenderFace> faces = new ArrayList<>();
-        faces.add(FluidRenderFace.createFlatFaceZ(0, 0, 0, x1 - x0, y1 - y0, 0, 1 / 16.0, false, false));
+        renderGuiRectangle(fluid, x0, y0, x1, y1, VCPS, new MatrixStack());
+        VCPS.draw();
+    }
 
-        MatrixStack matrices = new MatrixStack();
+    /** Adds a gui rectangle to the given {@link VertexConsumerProvider}, but doesn't draw it. This is used by
+     * {@link FluidGuiRectBatch}, and by {@link #renderGuiRectangle(FluidVolume, double, double, double, double)}. */
+    public void renderGuiRectangle(
+        FluidVolume fluid, double x0, double y0, double x1, double y1, VertexConsumerProvider vcp, MatrixStack matrices
+    ) {
+        FluidRenderFaceBuffer faces = new FluidRenderFaceBuffer(1);
+        faces.addFlatFaceZ(0, 0, 0, x1 - x0, y1 - y0, 0, 1 / 16.0, false, false);
+
+        matrices.push();
         matrices.translate(x0, y0, 0);
-        render(fluid, faces, VCPS, matrices);
-        VCPS.draw();
+        render(fluid, faces, vcp, matrices);
+        matrices.pop();
     }
 
     protected static List<FluidRenderFace> splitFaces(List<FluidRenderFace> faces) {
@@ -135,6 +156,32 @@ public abstract class FluidVolumeRenderer {
         }
     }
 
+    /** Like {@link #renderSimpleFluid(List, VertexConsumer, MatrixStack, Sprite, Sprite, int)}, but reads the faces
+     * from a {@link FluidRenderFaceBuffer} rather than a list. */
+    protected static void renderSimpleFluid(
+        FluidRenderFaceBuffer faces, VertexConsumer vc, MatrixStack matrices, Sprite still, Sprite flowing, int colour
+    ) {
+        int a = (colour >>> 24) & 0xFF;
+        int r = (colour >> 16) & 0xFF;
+        int g = (colour >> 8) & 0xFF;
+        int b = (colour >> 0) & 0xFF;
+
+        FluidRenderFaceBuffer split = faces.split();
+        for (int f = 0; f < split.size(); f++) {
+            int light = split.getLight(f);
+            float nx = split.getNormalX(f);
+            float ny = split.getNormalY(f);
+            float nz = split.getNormalZ(f);
+            for (int i = 0; i < 4; i++) {
+                vertex(
+                    vc, matrices, split.getX(f, i), split.getY(f, i), split.getZ(f, i),
+                    split.getSpriteU(f, i, still, flowing), split.getSpriteV(f, i, still, flowing), r, g, b, a, light,
+                    nx, ny, nz
+                );
+            }
+        }
+    }
+
     /** Appends a single vertex in {@link VertexFormats#POSITION_COLOR_TEXTURE_LIGHT_NORMAL} format.
      * 
      * @param vc The {@link VertexConsumer} to append to.
@@ -191,6 +191,9 @@ public abstract class FluidKey {
     /** A {@link FluidFilter} that only matches this {@link FluidKey}. */
     public final ExactFluidFilter exactFilter = new ExactFluidFilter(this);
 
+    /** Assigned by {@link #getRuntimeId()}, or -1 if that hasn't been called yet. */
+    private int runtimeId = -1;
+
     public static class FluidKeyBuilder {
         /* package-private */ FluidEntry entry;
         /* package-private */ Identifier spriteId;
@@ -502,6 +505,43 @@ public abstract class FluidKey {
         validateClass(getClass());
     }
 
+    /** @return A small, dense, non-negative id that's unique to this {@link FluidKey}. These are assigned in the order
+     *         that keys are {@link #register() registered} (or first asked for their id, if they are never
+     *         registered), so they will be different between runs of the game (and between the client and server):
+     *         they must never be saved or sent over the network.
+     *         <p>
+     *         This is mostly useful for array-based lookups, via {@link FluidKeyCollections}. */
+    public final int getRuntimeId() {
+        // Benign race: an int can't be seen half-written, and assignRuntimeId checks again under the lock
+        int id = runtimeId;
+        if (id < 0) {
+            id = assignRuntimeId();
+        }
+        return id;
+    }
+
+    private int assignRuntimeId() {
+        synchronized (RuntimeIds.class) {
+            if (runtimeId < 0) {
+                runtimeId = RuntimeIds.next++;
+            }
+            return runtimeId;
+        }
+    }
+
+    /** @return One more than the biggest {@link #getRuntimeId()} that has been assigned so far. */
+    public static int getRuntimeIdCount() {
+        synchronized (RuntimeIds.class) {
+            return RuntimeIds.next;
+        }
+    }
+
+    /** Separate from {@link FluidKey} so that this is always initialised before the first id is assigned, even if
+     * that happens while {@link FluidKey} itself is still being initialised. */
+    private static final class RuntimeIds {
+        static int next;
+    }
+
     public static FluidKey fromTag(NbtCompound tag) {
         if (tag.isEmpty()) {
             return FluidKeys.EMPTY;
@@ -725,6 +765,8 @@ public abstract class FluidKey {
      * You should only ever register a {@link FluidKey}'s {@link FluidEntry} into the registry once, so it may not be
      * necessary to call this method. As such you should only call this on {@link FluidKey}s that you have created. */
     public final void register() {
+        // Registered keys are generally the ones that are used the most, so they get the smallest ids
+        getRuntimeId();
         if (entry instanceof FluidFloatingEntry) {
             FluidKeys.put((FluidFloatingEntry) entry, this);
         } else {
@@ -772,6 +814,7 @@ public abstract class FluidKey {
                 return "Tried to register multiple properties with an ID of " + existing.id + "!";
             }
         }
+        property.indexHint = properties.size();
         propertyKeys.put(property, properties.size());
         properties.add(property);
         if (temperature != null) {
@@ -788,6 +831,38 @@ public abstract class FluidKey {
         }
     }
 
+    /** @return The index of the given property in {@link #properties} (and so in every {@link FluidVolume}'s property
+     *         array), or -1 if it hasn't been registered to this key. This checks the property's
+     *         {@link FluidProperty#indexHint} first, as most properties are registered at the same index in every key,
+     *         and only falls back to searching {@link #propertyKeys} if the hint is wrong. */
+    /* package-private */ final int getPropertyIndex(FluidProperty<?> property) {
+        final List<FluidProperty<?>> props = properties;
+        int hint = property.indexHint;
+        if (hint < props.size() && props.get(hint) == property) {
+            return hint;
+        }
+        if (props.isEmpty()) {
+            return -1;
+        }
+        int index = propertyKeys.getOrDefault(property, -1);
+        if (index >= 0) {
+            property.indexHint = index;
+        }
+        return index;
+    }
+
+    /** @return The registered {@link FluidProperty} with the given {@link FluidProperty#nbtKey}, or null if this
+     *         doesn't have a property with that key. */
+    @Nullable
+    /* package-private */ final FluidProperty<?> getPropertyByKey(String nbtKey) {
+        for (FluidProperty<?> prop : properties) {
+            if (prop.nbtKey.equals(nbtKey)) {
+                return prop;
+            }
+        }
+        return null;
+    }
+
     /** @return Every {@link FluidProperty} that as been {@link #tryRegisterProperty(FluidProperty) registered} to this
      *         {@link FluidKey}. The returned set is ordered by {@link FluidProperty#id}.{@link Identifier#toString()
      *         toString()}, to allow server-client sync to happen correctly. */
@@ -816,7 +891,7 @@ public abstract class FluidKey {
         }
         FluidAmount amount = FluidAmount.fromMcBuffer(buffer);
         FluidVolume volume = createFromMcBuffer(buffer, amount);
-        volume.readProperties(buffer);
+        volume.readProperties(buffer, null);
         return volume;
     }
 
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.volume;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/** Utility methods for creating {@link Map}'s and {@link Set}'s of {@link FluidKey}'s, which are backed by arrays and
+ * {@link BitSet}s indexed by {@link FluidKey#getRuntimeId()} rather than by hashing.
+ * <p>
+ * As runtime ids are dense these are generally smaller and faster than hash-based collections, but the iteration order
+ * is the order that the keys were given ids in, which will be different between runs. Neither of these are thread
+ * safe. */
+public enum FluidKeyCollections {
+    ;
+
+    /** @return A new, empty, {@link FluidKeySet}. */
+    public static FluidKeySet set() {
+        return new FluidKeySet();
+    }
+
+    /** @return A new {@link FluidKeySet} containing every key in the given collection. */
+    public static FluidKeySet set(Collection<FluidKey> from) {
+        FluidKeySet set = new FluidKeySet();
+        set.addAll(from);
+        return set;
+    }
+
+    /** @return A new, empty, {@link FluidKeyMap}. */
+    public static <V> FluidKeyMap<V> map() {
+        return new FluidKeyMap<>();
+    }
+
+    /** @return The new length of an array indexed by runtime id that needs to hold the given id. This at least doubles
+     *         the current length, so adding keys in increasing id order doesn't copy the array every time. */
+    static int grownLength(int length, int id) {
+        return Math.max(id + 1, length * 2);
+    }
+
+    /** A {@link Set} of {@link FluidKey}s, backed by a {@link BitSet} of {@link FluidKey#getRuntimeId()}s. Null keys
+     * are not permitted. */
+    public static final class FluidKeySet extends AbstractSet<FluidKey> {
+        private final BitSet ids = new BitSet();
+        /** The key for every id in {@link #ids}, as runtime ids can't be turned back into keys. */
+        private FluidKey[] keys = new FluidKey[0];
+        private int size;
+
+        public FluidKeySet() {}
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof FluidKey && ids.get(((FluidKey) o).getRuntimeId());
+        }
+
+        @Override
+        public boolean add(FluidKey key) {
+            int id = key.getRuntimeId();
+            if (ids.get(id)) {
+                return false;
+            }
+            if (id >= keys.length) {
+                keys = Arrays.copyOf(keys, grownLength(keys.length, id));
+            }
+            ids.set(id);
+            keys[id] = key;
+            size++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            int id = ((FluidKey) o).getRuntimeId();
+            ids.clear(id);
+            keys[id] = null;
+            size--;
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            ids.clear();
+            Arrays.fill(keys, null);
+            size = 0;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends FluidKey> c) {
+            if (c instanceof FluidKeySet) {
+                FluidKeySet other = (FluidKeySet) c;
+                if (other.keys.length > keys.length) {
+                    keys = Arrays.copyOf(keys, other.keys.length);
+                }
+                for (int id = other.ids.nextSetBit(0); id >= 0; id = other.ids.nextSetBit(id + 1)) {
+                    keys[id] = other.keys[id];
+                }
+                ids.or(other.ids);
+                int before = size;
+                size = ids.cardinality();
+                return size != before;
+            }
+            return super.addAll(c);
+        }
+
+        @Override
+        public Iterator<FluidKey> iterator() {
+            return new Iterator<FluidKey>() {
+                int next = ids.nextSetBit(0);
+                int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public FluidKey next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = ids.nextSetBit(next + 1);
+                    return keys[last];
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    ids.clear(last);
+                    keys[last] = null;
+                    size--;
+                    last = -1;
+                }
+            };
+        }
+    }
+
+    /** A {@link Map} with {@link FluidKey}s as keys, backed by an array indexed by {@link FluidKey#getRuntimeId()}.
+     * Null keys are not permitted, but null values are. */
+    public static final class FluidKeyMap<V> extends AbstractMap<FluidKey, V> {
+        private final FluidKeySet keys = new FluidKeySet();
+        private Object[] values = new Object[0];
+
+        public FluidKeyMap() {}
+
+        @Override
+        public int size() {
+            return keys.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return keys.contains(key);
+        }
+
+        @Override
+        @Nullable
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            if (!(key instanceof FluidKey)) {
+                return null;
+            }
+            int id = ((FluidKey) key).getRuntimeId();
+            return id < values.length ? (V) values[id] : null;
+        }
+
+        @Override
+        @Nullable
+        @SuppressWarnings("unchecked")
+        public V put(FluidKey key, V value) {
+            int id = key.getRuntimeId();
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, grownLength(values.length, id));
+            }
+            V old = (V) values[id];
+            values[id] = value;
+            keys.add(key);
+            return old;
+        }
+
+        @Override
+        @Nullable
+        @SuppressWarnings("unchecked")
+        public V remove(Object key) {
+            if (!keys.remove(key)) {
+                return null;
+            }
+            int id = ((FluidKey) key).getRuntimeId();
+            V old = (V) values[id];
+            values[id] = null;
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            keys.clear();
+            Arrays.fill(values, null);
+        }
+
+        /** @return A live view of the keys in this map. */
+        @Override
+        public Set<FluidKey> keySet() {
+            return new AbstractSet<FluidKey>() {
+                @Override
+                public int size() {
+                    return keys.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return keys.contains(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    boolean had = keys.contains(o);
+                    FluidKeyMap.this.remove(o);
+                    return had;
+                }
+
+                @Override
+                public Iterator<FluidKey> iterator() {
+                    return new EntryIterator<FluidKey>() {
+                        @Override
+                        FluidKey get(FluidKey key) {
+                            return key;
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public Set<Map.Entry<FluidKey, V>> entrySet() {
+            return new AbstractSet<Map.Entry<FluidKey, V>>() {
+                @Override
+                public int size() {
+                    return keys.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<FluidKey, V>> iterator() {
+                    return new EntryIterator<Map.Entry<FluidKey, V>>() {
+                        @Override
+                        Map.Entry<FluidKey, V> get(FluidKey key) {
+                            return new Entry(key);
+                        }
+                    };
+                }
+            };
+        }
+
+        private abstract class EntryIterator<T> implements Iterator<T> {
+            final Iterator<FluidKey> iter = keys.iterator();
+            FluidKey last;
+
+            abstract T get(FluidKey key);
+
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public T next() {
+                last = iter.next();
+                return get(last);
+            }
+
+            @Override
+            public void remove() {
+                iter.remove();
+                values[last.getRuntimeId()] = null;
+            }
+        }
+
+        private final class Entry implements Map.Entry<FluidKey, V> {
+            private final FluidKey key;
+
+            Entry(FluidKey key) {
+                this.key = key;
+            }
+
+            @Override
+            public FluidKey getKey() {
+                return key;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V getValue() {
+                return (V) values[key.getRuntimeId()];
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V setValue(V value) {
+                V old = (V) values[key.getRuntimeId()];
+                values[key.getRuntimeId()] = value;
+                return old;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Map.Entry)) {
+                    return false;
+                }
+                Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+                return key == other.getKey() && Objects.equals(getValue(), other.getValue());
+            }
+
+            @Override
+            public int hashCode() {
+                return key.hashCode() ^ Objects.hashCode(getValue());
+            }
+
+            @Override
+            public String toString() {
+                return key + "=" + getValue();
+            }
+        }
+    }
+}
@@ -7,11 +7,10 @@
  */
 package alexiil.mc.lib.attributes.fluid.volume;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 
@@ -44,21 +43,24 @@ public final class FluidKeys {
     public static final FluidKey LAVA;
     public static final BiomeSourcedFluidKey WATER;
 
-    private static final Map<Fluid, FluidKey> FLUIDS = new IdentityHashMap<>();
-    private static final Map<Potion, FluidKey> POTIONS = new IdentityHashMap<>();
-    private static final Map<FluidRegistryEntry<?>, FluidKey> OTHERS = new HashMap<>();
-    private static final Map<FluidFloatingEntry, FluidKey> FLOATING = new HashMap<>();
+    // Neither Fluid nor Potion override equals, so these behave exactly like an IdentityHashMap
+    private static final Map<Fluid, FluidKey> FLUIDS = new ConcurrentHashMap<>();
+    private static final Map<Potion, FluidKey> POTIONS = new ConcurrentHashMap<>();
+    private static final Map<FluidRegistryEntry<?>, FluidKey> OTHERS = new ConcurrentHashMap<>();
+    private static final Map<FluidFloatingEntry, FluidKey> FLOATING = new ConcurrentHashMap<>();
 
     /*
      * Synchronisation notes:
      *
-     * In theory this should use a ReadWriteLock to allow all of the
-     * readers to read without blocking each other. However in practice
-     * there's only going to be 2 threads accessing this (client and
-     * server) so there's probably no point.
+     * The getters are called very often (for example whenever a fluid is
+     * read from a buffer, or by the fabric transfer api compat) from both
+     * the client and server threads, so all of the maps are concurrent
+     * and reading from them never takes a lock.
      *
-     * (In addition the only operations that is performed is HashMap.get
-     *  anyway, so we would probably only loose performance).  
+     * Every write is still synchronized on this class though, so that
+     * the implicit keys created for fluids and potions are only ever
+     * created once: the getters check the map again while holding the
+     * lock before creating a new key.
      */
 
     static {
@@ -105,7 +107,7 @@ public final class FluidKeys {
     public static synchronized void put(FluidRegistryEntry<?> entry, FluidKey fluidKey) {
         if (entry.backingRegistry == Registries.FLUID) {
             put((Fluid) entry.backingObject, fluidKey);
-        } else if (entry.backingObject == Registries.POTION) {
+        } else if (entry.backingRegistry == Registries.POTION) {
             put((Potion) entry.backingObject, fluidKey);
         } else {
             OTHERS.put(entry, fluidKey);
@@ -125,18 +127,33 @@ public final class FluidKeys {
     }
 
     /** @return Null if the passed fluid is null, or a non-null {@link FluidKey}. */
-    public static synchronized FluidKey get(Fluid fluid) {
+    public static FluidKey get(Fluid fluid) {
         if (fluid == null) {
             return null;
         }
         FluidKey fluidKey = FLUIDS.get(fluid);
+        if (fluidKey != null) {
+            return fluidKey;
+        }
+        return getOrCreateImplicit(fluid);
+    }
+
+    private static synchronized FluidKey getOrCreateImplicit(Fluid fluid) {
+        // Another thread might have created it while we were waiting for the lock
+        FluidKey fluidKey = FLUIDS.get(fluid);
         if (fluidKey == null) {
             if (fluid instanceof FlowableFluid) {
                 FlowableFluid base = (FlowableFluid) fluid;
-                fluid = base.getStill();
-                if (fluid == null) {
+                Fluid still = base.getStill();
+                if (still == null) {
                     throw new IllegalStateException("fluid.getStill() returned a null fluid! (from " + fluid + ")");
                 }
+                fluid = still;
+                fluidKey = FLUIDS.get(fluid);
+                if (fluidKey != null) {
+                    FLUIDS.put(base, fluidKey);
+                    return fluidKey;
+                }
             }
             fluidKey = createImplicitFluid(fluid);
             put(fluid, fluidKey);
@@ -154,7 +171,15 @@ public final class FluidKeys {
         return new SimpleFluidKey(builder);
     }
 
-    public static synchronized FluidKey get(Potion potion) {
+    public static FluidKey get(Potion potion) {
+        FluidKey fluidKey = POTIONS.get(potion);
+        if (fluidKey != null) {
+            return fluidKey;
+        }
+        return getOrCreateImplicit(potion);
+    }
+
+    private static synchronized FluidKey getOrCreateImplicit(Potion potion) {
         FluidKey fluidKey = POTIONS.get(potion);
         if (fluidKey == null) {
             fluidKey = new PotionFluidKey(potion);
@@ -164,7 +189,7 @@ public final class FluidKeys {
     }
 
     @Nullable
-    public static synchronized FluidKey get(FluidEntry entry) {
+    public static FluidKey get(FluidEntry entry) {
         if (entry instanceof FluidFloatingEntry) {
             return FLOATING.get(entry);
         }
@@ -187,12 +212,12 @@ public final class FluidKeys {
     }
 
     /** @return A copy of all the {@link FluidRegistryEntry}s registered. */
-    public static synchronized Set<FluidRegistryEntry<?>> getRegistryFluidIds() {
+    public static Set<FluidRegistryEntry<?>> getRegistryFluidIds() {
         return new HashSet<>(OTHERS.keySet());
     }
 
     /** @return A copy of all the {@link FluidFloatingEntry}s registered. */
-    public static synchronized Set<FluidFloatingEntry> getFloatingFluidIds() {
+    public static Set<FluidFloatingEntry> getFloatingFluidIds() {
         return new HashSet<>(FLOATING.keySet());
     }
 }
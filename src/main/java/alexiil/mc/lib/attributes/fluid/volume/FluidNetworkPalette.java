@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.volume;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.network.PacketByteBuf;
+
+import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/** An optional, connection-scoped cache for writing {@link FluidKey}s and {@link FluidVolume}s to a
+ * {@link PacketByteBuf}. The first time a {@link FluidKey} (or {@link FluidProperty}) is written it's sent in full
+ * (exactly like {@link FluidKey#toMcBuffer(PacketByteBuf)}), and given a small id. Every time it's written after that
+ * only the id is sent.
+ * <p>
+ * Each palette only works in one direction: the sender must write with one palette, and the receiver must read with a
+ * different palette. Both palettes must be created (or {@link #clear() cleared}) at the same time, and every buffer
+ * written with a palette must be read by the receiving palette in the same order that it was written, so generally
+ * this should be stored alongside the connection itself. */
+public final class FluidNetworkPalette {
+
+    // Key encoding: 0 = empty, 1 = new key (followed by the full entry), 2+ = existing key (id + 2)
+    private static final int KEY_EMPTY = 0;
+    private static final int KEY_NEW = 1;
+    private static final int KEY_ID_OFFSET = 2;
+
+    // Property encoding: 0 = new property (followed by the nbt key), 1+ = existing property (id + 1)
+    private static final int PROPERTY_NEW = 0;
+    private static final int PROPERTY_ID_OFFSET = 1;
+
+    private final Object2IntOpenHashMap<FluidKey> writtenKeys = new Object2IntOpenHashMap<>();
+    private final List<FluidKey> readKeys = new ArrayList<>();
+
+    private final Object2IntOpenHashMap<FluidProperty<?>> writtenProperties = new Object2IntOpenHashMap<>();
+    private final List<FluidProperty<?>> readProperties = new ArrayList<>();
+
+    public FluidNetworkPalette() {
+        writtenKeys.defaultReturnValue(-1);
+        writtenProperties.defaultReturnValue(-1);
+    }
+
+    /** Forgets every id that has been assigned. This must be called on both the sending and receiving palette at the
+     * same point in the stream. */
+    public void clear() {
+        writtenKeys.clear();
+        readKeys.clear();
+        writtenProperties.clear();
+        readProperties.clear();
+    }
+
+    /** Writes the given {@link FluidKey} to the buffer, such that it can be read with
+     * {@link #readKey(PacketByteBuf)}. */
+    public void writeKey(FluidKey key, PacketByteBuf buffer) {
+        if (key.isEmpty()) {
+            buffer.writeVarInt(KEY_EMPTY);
+            return;
+        }
+        int id = writtenKeys.getInt(key);
+        if (id >= 0) {
+            buffer.writeVarInt(id + KEY_ID_OFFSET);
+        } else {
+            writtenKeys.put(key, writtenKeys.size());
+            buffer.writeVarInt(KEY_NEW);
+            key.entry.toMcBuffer(buffer);
+        }
+    }
+
+    /** Reads a {@link FluidKey} that was written by {@link #writeKey(FluidKey, PacketByteBuf)}. */
+    public FluidKey readKey(PacketByteBuf buffer) {
+        int value = buffer.readVarInt();
+        if (value == KEY_EMPTY) {
+            return FluidKeys.EMPTY;
+        } else if (value == KEY_NEW) {
+            FluidKey key = FluidKeys.get(FluidEntry.fromMcBuffer(buffer));
+            readKeys.add(key);
+            return key;
+        }
+        int id = value - KEY_ID_OFFSET;
+        if (id >= readKeys.size()) {
+            throw new IllegalArgumentException(
+                "Unknown remote fluid id " + id + " (only " + readKeys.size() + " fluids have been read)"
+            );
+        }
+        return readKeys.get(id);
+    }
+
+    /** Writes the given {@link FluidVolume} to the buffer, such that it can be read with
+     * {@link #readVolume(PacketByteBuf)}. This writes the same data as {@link FluidVolume#toMcBuffer(PacketByteBuf)},
+     * except that the {@link FluidKey} and {@link FluidProperty} names are replaced with ids where possible. */
+    public void writeVolume(FluidVolume volume, PacketByteBuf buffer) {
+        if (volume.isEmpty()) {
+            buffer.writeVarInt(KEY_EMPTY);
+            return;
+        }
+        writeKey(volume.fluidKey, buffer);
+        volume.toMcBufferInternal(buffer);
+        volume.writeProperties(buffer, this);
+    }
+
+    /** Reads a {@link FluidVolume} that was written by {@link #writeVolume(FluidVolume, PacketByteBuf)}. */
+    public FluidVolume readVolume(PacketByteBuf buffer) {
+        FluidKey key = readKey(buffer);
+        if (key.isEmpty()) {
+            return FluidVolumeUtil.EMPTY;
+        }
+        FluidAmount amount = FluidAmount.fromMcBuffer(buffer);
+        FluidVolume volume = key.createFromMcBuffer(buffer, amount);
+        volume.readProperties(buffer, this);
+        return volume;
+    }
+
+    /* package-private */ void writeProperty(FluidProperty<?> property, PacketByteBuf buffer) {
+        int id = writtenProperties.getInt(property);
+        if (id >= 0) {
+            buffer.writeVarInt(id + PROPERTY_ID_OFFSET);
+        } else {
+            writtenProperties.put(property, writtenProperties.size());
+            buffer.writeVarInt(PROPERTY_NEW);
+            buffer.writeString(property.nbtKey);
+        }
+    }
+
+    /* package-private */ FluidProperty<?> readProperty(FluidKey key, PacketByteBuf buffer) {
+        int value = buffer.readVarInt();
+        FluidProperty<?> property;
+        if (value == PROPERTY_NEW) {
+            String nbtKey = buffer.readString();
+            property = key.getPropertyByKey(nbtKey);
+            if (property == null) {
+                throw new IllegalArgumentException("Unknown remote fluid property " + nbtKey + " for " + key);
+            }
+            readProperties.add(property);
+            return property;
+        }
+        int id = value - PROPERTY_ID_OFFSET;
+        if (id >= readProperties.size()) {
+            throw new IllegalArgumentException(
+                "Unknown remote fluid property id " + id + " (only " + readProperties.size() + " have been read)"
+            );
+        }
+        property = readProperties.get(id);
+        if (key.getPropertyIndex(property) < 0) {
+            throw new IllegalArgumentException("Remote fluid property " + property.nbtKey + " isn't used by " + key);
+        }
+        return property;
+    }
+}
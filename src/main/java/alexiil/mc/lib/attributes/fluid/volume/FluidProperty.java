@@ -66,6 +66,11 @@ public abstract class FluidProperty<T> {
      * {@link #id}.{@link Identifier#toString()}, and is only present as an optimisation. */
     /* package-private */ final String nbtKey;
 
+    /** The index that this property was last registered at (or found at) in a {@link FluidKey}. This is only a hint:
+     * {@link FluidKey#getPropertyIndex(FluidProperty)} always checks it before using it, as the same property can be
+     * registered at different indices in different keys. */
+    /* package-private */ int indexHint;
+
     public FluidProperty(Identifier id, Class<T> type, T defaultValue) {
         this(id, type, defaultValue, null);
     }
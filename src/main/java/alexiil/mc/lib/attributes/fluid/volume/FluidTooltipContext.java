@@ -89,6 +89,20 @@ public final class FluidTooltipContext {
         return get(OFFSET_JOIN_NAME_AMOUNT, LbaFluidsConfig.TOOLTIP_JOIN_NAME_AMOUNT);
     }
 
+    /** @return Every option as a single bitfield, after resolving the ones that are taken from the config (or from
+     *         minecraft's options). Two contexts with the same resolved flags will always produce the same tooltips. */
+    /* package-private */ int getResolvedFlags() {
+        int flags = 0;
+        flags |= isAdvanced() ? 1 << 0 : 0;
+        flags |= shouldUseSymbols() ? 1 << 1 : 0;
+        flags |= shouldUseTicks() ? 1 << 2 : 0;
+        flags |= shouldUseShortDescription() ? 1 << 3 : 0;
+        flags |= shouldStripFluidColours() ? 1 << 4 : 0;
+        flags |= shouldDisableEmphasisColours() ? 1 << 5 : 0;
+        flags |= shouldJoinNameWithAmount() ? 1 << 6 : 0;
+        return flags;
+    }
+
     private boolean get(int offset, boolean config) {
         long o = (options >> offset) & VALUE_FLAGS;
         if (o != VALUE_USE_CONFIG) {
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.volume;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.text.Text;
+import net.minecraft.util.Language;
+
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+
+/** A small, bounded, cache of the {@link String}s and {@link Text}s that {@link FluidUnitSet} creates, as tooltips and
+ * guis generally ask for exactly the same amounts every frame.
+ * <p>
+ * Entries are keyed on the {@link FluidTooltipContext#getResolvedFlags() resolved} tooltip flags (rather than the
+ * context itself) so changes to the LBA config, or to minecraft's advanced tooltips option, are picked up
+ * automatically. The whole cache is cleared whenever the {@link Language} changes, or when any {@link FluidUnitSet} is
+ * modified. */
+/* package-private */ final class FluidUnitCache {
+    private FluidUnitCache() {}
+
+    static final int LOCALIZE_AMOUNT = 0;
+    static final int GET_AMOUNT = 1;
+    static final int LOCALIZE_PARTIAL_TANK = 2;
+    static final int GET_PARTIAL_TANK = 3;
+    static final int LOCALIZE_FLOW_RATE = 4;
+    static final int GET_FLOW_RATE = 5;
+
+    private static final int MAX_ENTRIES = 512;
+
+    private static final Map<Key, Object> CACHE = new LinkedHashMap<Key, Object>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    @Nullable
+    private static Language cachedLanguage;
+
+    static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T get(
+        FluidUnitSet set, int type, FluidAmount amount, @Nullable FluidAmount capacity, boolean forceSingular,
+        @Nullable Text fluidName, FluidTooltipContext ctx, Supplier<T> creator
+    ) {
+        Key key = new Key(set, type, amount, capacity, forceSingular, fluidName, ctx.getResolvedFlags());
+        Language language = Language.getInstance();
+        synchronized (CACHE) {
+            if (language != cachedLanguage) {
+                CACHE.clear();
+                cachedLanguage = language;
+            }
+            Object value = CACHE.get(key);
+            if (value != null) {
+                return (T) value;
+            }
+        }
+        // Created outside of the lock, as localising can call back into other unit sets
+        T value = creator.get();
+        synchronized (CACHE) {
+            if (language == cachedLanguage) {
+                CACHE.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    private static final class Key {
+        final FluidUnitSet set;
+        final int type;
+        final FluidAmount amount;
+        @Nullable
+        final FluidAmount capacity;
+        final boolean forceSingular;
+        @Nullable
+        final Text fluidName;
+        final int flags;
+        final int hash;
+
+        Key(
+            FluidUnitSet set, int type, FluidAmount amount, @Nullable FluidAmount capacity, boolean forceSingular,
+            @Nullable Text fluidName, int flags
+        ) {
+            this.set = set;
+            this.type = type;
+            this.amount = amount;
+            this.capacity = capacity;
+            this.forceSingular = forceSingular;
+            this.fluidName = fluidName;
+            this.flags = flags;
+            int h = System.identityHashCode(set);
+            h = h * 31 + type;
+            h = h * 31 + amount.hashCode();
+            h = h * 31 + Objects.hashCode(capacity);
+            h = h * 31 + (forceSingular ? 1 : 0);
+            h = h * 31 + Objects.hashCode(fluidName);
+            this.hash = h * 31 + flags;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash //
+                && set == other.set //
+                && type == other.type //
+                && forceSingular == other.forceSingular //
+                && flags == other.flags //
+                && amount.equals(other.amount) //
+                && Objects.equals(capacity, other.capacity) //
+                && Objects.equals(fluidName, other.fluidName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -21,7 +21,12 @@ import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
  * {@link FluidUnit#BUCKET} and {@link FluidUnit#BOTTLE}.
  * <p>
  * While it is possible to construct a custom {@link FluidUnitSet} it's recommended that you use the one that's built in
- * to every {@link FluidKey}, via {@link FluidKey#unitSet}. */
+ * to every {@link FluidKey}, via {@link FluidKey#unitSet}.
+ * <p>
+ * The results of {@link #getAmount(FluidAmount, boolean, Text, FluidTooltipContext) getAmount},
+ * {@link #getPartialTank(FluidAmount, FluidAmount, Text, FluidTooltipContext) getPartialTank},
+ * {@link #getFlowRate(FluidAmount, Text, FluidTooltipContext) getFlowRate} (and their "localize" equivalents) are
+ * cached, so the returned {@link Text}s must not be modified. */
 public final class FluidUnitSet extends FluidUnitBase {
 
     /* package-private */ final NavigableSet<FluidUnit> units;
@@ -37,13 +42,19 @@ public final class FluidUnitSet extends FluidUnitBase {
     }
 
     public void copyFrom(FluidUnitSet other) {
-        units.addAll(other.units);
+        if (units.addAll(other.units)) {
+            FluidUnitCache.clear();
+        }
     }
 
     /** @return True if the given unit was added, or false if another unit was already present with an amount equal to
      *         the given one. */
     public boolean addUnit(FluidUnit unit) {
-        return units.add(unit);
+        if (units.add(unit)) {
+            FluidUnitCache.clear();
+            return true;
+        }
+        return false;
     }
 
     /** @return The largest unit in this set. For example if this was [buckets, bottles] then this would return
@@ -61,6 +72,15 @@ public final class FluidUnitSet extends FluidUnitBase {
     @Override
     public String localizeAmount(
         FluidAmount amount, boolean forceLastSingular, @Nullable Text fluidName, FluidTooltipContext ctx
+    ) {
+        return FluidUnitCache.get(
+            this, FluidUnitCache.LOCALIZE_AMOUNT, amount, null, forceLastSingular, fluidName, ctx,
+            () -> localizeAmountUncached(amount, forceLastSingular, fluidName, ctx)
+        );
+    }
+
+    private String localizeAmountUncached(
+        FluidAmount amount, boolean forceLastSingular, @Nullable Text fluidName, FluidTooltipContext ctx
     ) {
         if (units.isEmpty()) {
             // Default to buckets
@@ -84,6 +104,15 @@ public final class FluidUnitSet extends FluidUnitBase {
     @Override
     public Text getAmount(
         FluidAmount amount, boolean forceLastSingular, @Nullable Text fluidName, FluidTooltipContext ctx
+    ) {
+        return FluidUnitCache.get(
+            this, FluidUnitCache.GET_AMOUNT, amount, null, forceLastSingular, fluidName, ctx,
+            () -> getAmountUncached(amount, forceLastSingular, fluidName, ctx)
+        );
+    }
+
+    private Text getAmountUncached(
+        FluidAmount amount, boolean forceLastSingular, @Nullable Text fluidName, FluidTooltipContext ctx
     ) {
         if (units.isEmpty()) {
             // Default to buckets
@@ -230,6 +259,15 @@ public final class FluidUnitSet extends FluidUnitBase {
     @Override
     public String localizePartialTank(
         FluidAmount amount, FluidAmount capacity, @Nullable Text fluidName, FluidTooltipContext ctx
+    ) {
+        return FluidUnitCache.get(
+            this, FluidUnitCache.LOCALIZE_PARTIAL_TANK, amount, capacity, false, fluidName, ctx,
+            () -> localizePartialTankUncached(amount, capacity, fluidName, ctx)
+        );
+    }
+
+    private String localizePartialTankUncached(
+        FluidAmount amount, FluidAmount capacity, @Nullable Text fluidName, FluidTooltipContext ctx
     ) {
         if (units.isEmpty()) {
             // Default to buckets
@@ -245,6 +283,15 @@ public final class FluidUnitSet extends FluidUnitBase {
     @Override
     public Text getPartialTank(
         FluidAmount amount, FluidAmount capacity, @Nullable Text fluidName, FluidTooltipContext ctx
+    ) {
+        return FluidUnitCache.get(
+            this, FluidUnitCache.GET_PARTIAL_TANK, amount, capacity, false, fluidName, ctx,
+            () -> getPartialTankUncached(amount, capacity, fluidName, ctx)
+        );
+    }
+
+    private Text getPartialTankUncached(
+        FluidAmount amount, FluidAmount capacity, @Nullable Text fluidName, FluidTooltipContext ctx
     ) {
         if (units.isEmpty()) {
             // Default to buckets
@@ -259,12 +306,30 @@ public final class FluidUnitSet extends FluidUnitBase {
 
     @Override
     public String localizeFlowRate(FluidAmount amountPerTick, @Nullable Text fluidName, FluidTooltipContext ctx) {
+        return FluidUnitCache.get(
+            this, FluidUnitCache.LOCALIZE_FLOW_RATE, amountPerTick, null, false, fluidName, ctx,
+            () -> localizeFlowRateUncached(amountPerTick, fluidName, ctx)
+        );
+    }
+
+    private String localizeFlowRateUncached(
+        FluidAmount amountPerTick, @Nullable Text fluidName, FluidTooltipContext ctx
+    ) {
         // TODO: Replace this with proper!
         return getSmallestUnit().localizeFlowRate(amountPerTick, ctx);
     }
 
     @Override
     public Text getFlowRate(FluidAmount amountPerTick, @Nullable Text fluidName, FluidTooltipContext ctx) {
+        return FluidUnitCache.get(
+            this, FluidUnitCache.GET_FLOW_RATE, amountPerTick, null, false, fluidName, ctx,
+            () -> getFlowRateUncached(amountPerTick, fluidName, ctx)
+        );
+    }
+
+    private Text getFlowRateUncached(
+        FluidAmount amountPerTick, @Nullable Text fluidName, FluidTooltipContext ctx
+    ) {
         // TODO: Replace this with proper!
         return getSmallestUnit().getFlowRate(amountPerTick, ctx);
     }
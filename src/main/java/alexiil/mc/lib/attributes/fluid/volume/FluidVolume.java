@@ -103,9 +103,17 @@ public abstract class FluidVolume {
 
     /** Property value array. If this is null (or any of it's entries are null) then it indicates that the property is
      * using it's default value, and hasn't explicitly been changed yet. Property keys are indicated in
-     * {@link FluidKey#properties}. */
+     * {@link FluidKey#properties}.
+     * <p>
+     * This array is shared copy-on-write between volumes that were {@link #copy() copied} or {@link #split(FluidAmount)
+     * split} from each other (as indicated by {@link #propertyValuesShared}), so it must never be modified directly:
+     * only {@link #setProperty(FluidProperty, Object)} and {@link #merge(FluidVolume, Simulation)} may change it. */
     private Object[] propertyValues;
 
+    /** True if {@link #propertyValues} might also be used by a different {@link FluidVolume}, and so must be copied
+     * before it is modified. */
+    private boolean propertyValuesShared;
+
     /** Internal constructor that validates the fluid key, leaving the amount to a different constructor. */
     private FluidVolume(FluidKey key) {
         if (key == null) {
@@ -150,7 +158,7 @@ public abstract class FluidVolume {
                 int readAmount = tag.getInt(KEY_AMOUNT_1620INT);
                 this.amount = FluidAmount.of1620(Math.max(1, readAmount));
             } else {
-                this.amount = FluidAmount.fromNbt(tag.getCompound(KEY_AMOUNT_LBA_FRACTION));
+                this.amount = FluidAmount.fromNbt(tag.get(KEY_AMOUNT_LBA_FRACTION));
                 if (amount.isNegative()) {
                     amount = amount.negate();
                 }
@@ -190,7 +198,7 @@ public abstract class FluidVolume {
             return tag;
         }
         fluidKey.toTag(tag);
-        tag.put(KEY_AMOUNT_LBA_FRACTION, amount.toNbt());
+        tag.put(KEY_AMOUNT_LBA_FRACTION, amount.toCompactNbt());
         if (propertyValues != null) {
             NbtCompound properties = new NbtCompound();
 
@@ -263,7 +271,7 @@ public abstract class FluidVolume {
         } else {
             fluidKey.toMcBuffer(buffer);
             toMcBufferInternal(buffer);
-            writeProperties(buffer);
+            writeProperties(buffer, null);
         }
     }
 
@@ -279,8 +287,12 @@ public abstract class FluidVolume {
         // For sub-classes
     }
 
-    final void writeProperties(PacketByteBuf buffer) {
+    final void writeProperties(PacketByteBuf buffer, @Nullable FluidNetworkPalette palette) {
         if (!fluidKey.properties.isEmpty()) {
+            if (propertyValues == null) {
+                buffer.writeByte(0);
+                return;
+            }
             int countPresent = 0;
             for (Object obj : propertyValues) {
                 if (obj != null) {
@@ -295,7 +307,12 @@ public abstract class FluidVolume {
                     // Really? Strings?
                     // (Unfortunately you'd *need* to use LNS to make this work
                     // properly with potentially incompatible modsets)
-                    buffer.writeString(prop.nbtKey);
+                    // (FluidNetworkPalette only sends each string once per connection)
+                    if (palette == null) {
+                        buffer.writeString(prop.nbtKey);
+                    } else {
+                        palette.writeProperty(prop, buffer);
+                    }
                     writeProp(prop, val, buffer);
                 }
             }
@@ -306,16 +323,21 @@ public abstract class FluidVolume {
         prop.writeToBuffer(buffer, prop.type.cast(value));
     }
 
-    final void readProperties(PacketByteBuf buffer) {
+    final void readProperties(PacketByteBuf buffer, @Nullable FluidNetworkPalette palette) {
         if (!fluidKey.properties.isEmpty()) {
             int count = buffer.readUnsignedByte();
             for (int i = 0; i < count; i++) {
-                String key = buffer.readString();
-                int propIndex = fluidKey.propertyKeys.getInt(key);
-                if (propIndex < 0) {
-                    throw new IllegalArgumentException("Unknown remote fluid property " + key + " for " + fluidKey);
+                FluidProperty<?> prop;
+                if (palette == null) {
+                    String key = buffer.readString();
+                    prop = fluidKey.getPropertyByKey(key);
+                    if (prop == null) {
+                        throw new IllegalArgumentException("Unknown remote fluid property " + key + " for " + fluidKey);
+                    }
+                } else {
+                    prop = palette.readProperty(fluidKey, buffer);
                 }
-                readProp(buffer, fluidKey.properties.get(propIndex));
+                readProp(buffer, prop);
             }
         }
     }
@@ -441,7 +463,22 @@ public abstract class FluidVolume {
     }
 
     private final void copyPropertiesInto(FluidVolume dest) {
-        dest.propertyValues = propertyValues == null ? null : Arrays.copyOf(propertyValues, propertyValues.length);
+        dest.propertyValues = propertyValues;
+        if (propertyValues != null) {
+            // Copy-on-write: whichever volume changes a property first makes it's own copy
+            propertyValuesShared = true;
+            dest.propertyValuesShared = true;
+        } else {
+            dest.propertyValuesShared = false;
+        }
+    }
+
+    /** @return The raw value stored in {@link #propertyValues} for the given index, or null if it's not present. (Note
+     *         that the array might be shorter than the number of properties registered to the key). */
+    @Nullable
+    private Object getRawPropertyValue(int index) {
+        Object[] values = propertyValues;
+        return values != null && index < values.length ? values[index] : null;
     }
 
     /** @deprecated Replaced by {@link #getAmount_F()} and {@link #amount()}. */
@@ -604,39 +641,58 @@ public abstract class FluidVolume {
         if (simulation == Simulation.ACTION) {
             FluidMergeResult merged = FluidAmount.merge(getAmount_F(), other.getAmount_F(), rounding);
 
-            Object[] result = null;
+            // Volumes that share the same array (or both have none) can't have any different values, which is very
+            // common as most volumes are merged back into something they were split from.
+            if (propertyValues != other.propertyValues) {
+                mergeProperties(other, merged);
+            }
+            merge0(other, rounding);
+        }
+        return true;
+    }
 
-            if (propertyValues != null || other.propertyValues != null) {
+    private void mergeProperties(FluidVolume other, FluidMergeResult merged) {
+        Object[] result = null;
+        int nonDefault = 0;
 
-                int count = fluidKey.properties.size();
-                for (int index = 0; index < count; index++) {
-                    FluidProperty<?> prop = fluidKey.properties.get(index);
+        int count = fluidKey.properties.size();
+        for (int index = 0; index < count; index++) {
+            FluidProperty<?> prop = fluidKey.properties.get(index);
 
-                    Object value = propertyValues != null ? propertyValues[index] : null;
-                    if (value == null) {
-                        value = prop.defaultValue;
-                    }
-                    Object valueOther = other.propertyValues != null ? other.propertyValues[index] : null;
-                    if (valueOther == null) {
-                        valueOther = prop.defaultValue;
-                    }
+            Object raw = getRawPropertyValue(index);
+            Object value = raw == null ? prop.defaultValue : raw;
+            Object valueOther = other.getRawPropertyValue(index);
+            if (valueOther == null) {
+                valueOther = prop.defaultValue;
+            }
 
-                    if (value != valueOther) {
-                        value = mergeGenericBypass(other, merged, prop, value, valueOther);
-                    }
+            if (value != valueOther) {
+                value = mergeGenericBypass(other, merged, prop, value, valueOther);
+            }
+            if (value == prop.defaultValue) {
+                value = null;
+            }
 
-                    if (value != prop.defaultValue) {
-                        if (result == null) {
-                            result = new Object[count];
-                        }
-                        result[index] = value;
-                    }
+            if (value != null) {
+                nonDefault++;
+            }
+
+            if (result == null && value != raw) {
+                // Only allocate a new array once a value has actually changed
+                result = new Object[count];
+                for (int i = 0; i < index; i++) {
+                    result[i] = getRawPropertyValue(i);
                 }
             }
-            propertyValues = result;
-            merge0(other, rounding);
+            if (result != null) {
+                result[index] = value;
+            }
+        }
+
+        if (result != null) {
+            propertyValues = nonDefault == 0 ? null : result;
+            propertyValuesShared = false;
         }
-        return true;
     }
 
     private <T> T mergeGenericBypass(
@@ -721,7 +777,7 @@ public abstract class FluidVolume {
 
     /** @throws IllegalArgumentException if the given property hasn't been registered to the {@link FluidKey}. */
     public final <T> T getProperty(FluidProperty<T> property) {
-        int index = fluidKey.propertyKeys.getOrDefault(property, -1);
+        int index = fluidKey.getPropertyIndex(property);
         if (index < 0) {
             throw new IllegalArgumentException("Unknown/unregistered property " + property + " for key " + fluidKey);
         }
@@ -747,26 +803,25 @@ public abstract class FluidVolume {
     }
 
     public final <T> void setProperty(FluidProperty<T> property, T value) {
-        int index = fluidKey.propertyKeys.getOrDefault(property, -1);
+        int index = fluidKey.getPropertyIndex(property);
         if (index < 0) {
             throw new IllegalArgumentException("Unknown/unregistered property " + property + " for key " + fluidKey);
         }
 
         // Don't do an explicit equals() because this is just an optimisation.
-        if (value == null || value == property.defaultValue) {
+        if (value == property.defaultValue) {
             value = null;
-            if (propertyValues == null) {
-                return;
-            } else if (propertyValues.length < index + 1) {
-                return;
-            }
-        } else {
-            if (propertyValues == null) {
-                propertyValues = new Object[index + 1];
-            } else if (propertyValues.length < index + 1) {
-                propertyValues = Arrays.copyOf(propertyValues, index + 1);
-            }
         }
+        if (getRawPropertyValue(index) == value) {
+            // Unchanged, so don't copy a shared array
+            return;
+        }
+        if (propertyValues == null) {
+            propertyValues = new Object[index + 1];
+        } else if (propertyValuesShared || propertyValues.length < index + 1) {
+            propertyValues = Arrays.copyOf(propertyValues, Math.max(propertyValues.length, index + 1));
+        }
+        propertyValuesShared = false;
         propertyValues[index] = value;
     }
 
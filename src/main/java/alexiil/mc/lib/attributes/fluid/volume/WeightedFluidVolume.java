@@ -8,6 +8,7 @@
 package alexiil.mc.lib.attributes.fluid.volume;
 
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -33,10 +34,16 @@ import net.minecraft.text.MutableText;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 
+import alexiil.mc.lib.attributes.fluid.LbaFluidsConfig;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount.FluidMergeResult;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount.FluidMergeRounding;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmountAccumulator;
 
+/** A {@link FluidVolume} that remembers the relative weights of the different values (like biomes) that it was made
+ * from. The number of different values is bounded by {@link #getMaxValueCount()}: if more than that are merged in then
+ * the smallest weights are folded together, so a tank that is filled from lots of different sources doesn't get slower
+ * to merge, split, save, or show the tooltip of. */
 public abstract class WeightedFluidVolume<T> extends FluidVolume {
 
     private final WeightedFluidKey<T> key;
@@ -67,7 +74,7 @@ public abstract class WeightedFluidVolume<T> extends FluidVolume {
             if (ctag.contains(KEY_AMOUNT_1620INT)) {
                 amount = FluidAmount.of1620(ctag.getInt(KEY_AMOUNT_1620INT));
             } else {
-                amount = FluidAmount.fromNbt(ctag.getCompound(KEY_AMOUNT_LBA_FRACTION));
+                amount = FluidAmount.fromNbt(ctag.get(KEY_AMOUNT_LBA_FRACTION));
             }
             T value = readValue(ctag);
             if (value == null) {
@@ -207,11 +214,11 @@ public abstract class WeightedFluidVolume<T> extends FluidVolume {
     }
 
     protected final void normalize() {
-        FluidAmount total = FluidAmount.ZERO;
+        FluidAmountAccumulator total = new FluidAmountAccumulator();
         for (FluidAmount amount : values.values()) {
-            total = total.roundedAdd(amount);
+            total.add(amount);
         }
-        normalize(total);
+        normalize(total.toAmount());
     }
 
     private final void normalize(FluidAmount ctotal) {
@@ -220,17 +227,63 @@ public abstract class WeightedFluidVolume<T> extends FluidVolume {
             return;
         }
 
+        // Very common after folding, or for volumes that only have a single value
+        boolean divide = !ctotal.equals(FluidAmount.ONE);
+
         Iterator<Entry<T, FluidAmount>> iterator = values.entrySet().iterator();
         while (iterator.hasNext()) {
             Entry<T, FluidAmount> entry = iterator.next();
             FluidAmount fa = entry.getValue();
-            fa = fa.roundedDiv(ctotal);
+            if (divide) {
+                fa = fa.roundedDiv(ctotal);
+            }
             if (fa.isPositive()) {
                 entry.setValue(fa);
             } else {
                 iterator.remove();
             }
         }
+
+        compact();
+    }
+
+    /** @return The maximum number of different values that this volume will keep track of. If more than this are
+     *         added (or merged in) then the smallest weights are folded together, into the biggest of the values that
+     *         were folded. Defaults to {@link LbaFluidsConfig#WEIGHTED_FLUID_MAX_VALUES}, and is always clamped to be
+     *         between 1 and 255. */
+    protected int getMaxValueCount() {
+        return LbaFluidsConfig.WEIGHTED_FLUID_MAX_VALUES;
+    }
+
+    /** Folds the smallest weights together until there are no more than {@link #getMaxValueCount()} values left. This
+     * doesn't change the total weight, so it doesn't need to be normalised again afterwards. */
+    private void compact() {
+        final int max = Math.max(1, Math.min(255, getMaxValueCount()));
+        final int count = values.size();
+        if (count <= max) {
+            return;
+        }
+
+        Object[] keys = new Object[count];
+        FluidAmount[] weights = new FluidAmount[count];
+        Integer[] order = new Integer[count];
+        int i = 0;
+        for (Entry<T, FluidAmount> entry : values.entrySet()) {
+            keys[i] = entry.getKey();
+            weights[i] = entry.getValue();
+            order[i] = i;
+            i++;
+        }
+        Arrays.sort(order, (a, b) -> weights[a].compareTo(weights[b]));
+
+        // Fold the smallest (count - max + 1) weights into one
+        int fold = count - max + 1;
+        FluidAmountAccumulator folded = new FluidAmountAccumulator();
+        for (i = 0; i < fold; i++) {
+            folded.add(weights[order[i]]);
+            values.remove(keys[order[i]]);
+        }
+        values.put(key.valueClass.cast(keys[order[fold - 1]]), folded.toAmount());
     }
 
     @Override
@@ -239,7 +292,7 @@ public abstract class WeightedFluidVolume<T> extends FluidVolume {
         NbtList list = new NbtList();
         for (Map.Entry<T, FluidAmount> entry : values.entrySet()) {
             NbtCompound ctag = new NbtCompound();
-            ctag.put(KEY_AMOUNT_LBA_FRACTION, entry.getValue().toNbt());
+            ctag.put(KEY_AMOUNT_LBA_FRACTION, entry.getValue().toCompactNbt());
             writeValue(ctag, entry.getKey());
             list.add(ctag);
         }
@@ -280,14 +333,17 @@ public abstract class WeightedFluidVolume<T> extends FluidVolume {
      *         returned json. */
     protected abstract JsonElement toJson(T value);
 
+    /** @param map The values to write. Only the first 255 are written, which is always all of them for the
+     *            {@link #getValues() values} of this volume. */
     protected void writeValuesToMcBuffer(PacketByteBuf buffer, Map<T, FluidAmount> map) {
-        buffer.writeByte(Math.min(255, map.size()));
+        int count = Math.min(255, map.size());
+        buffer.writeByte(count);
 
         Iterator<Entry<T, FluidAmount>> iterator = map.entrySet().iterator();
-        while (iterator.hasNext()) {
+        for (int i = count - 1; i >= 0; i--) {
             Map.Entry<T, FluidAmount> entry = iterator.next();
             writeValueToMcBuffer(buffer, entry.getKey());
-            if (iterator.hasNext()) {
+            if (i > 0) {
                 entry.getValue().toMcBuffer(buffer);
             }
         }
@@ -297,7 +353,7 @@ public abstract class WeightedFluidVolume<T> extends FluidVolume {
         map.clear();
 
         int count = buffer.readUnsignedByte();
-        FluidAmount total = FluidAmount.ZERO;
+        FluidAmountAccumulator total = new FluidAmountAccumulator();
 
         for (int i = count - 1; i >= 0; i--) {
             T value = readValueFromMcBuffer(buffer);
@@ -305,18 +361,18 @@ public abstract class WeightedFluidVolume<T> extends FluidVolume {
             if (i > 0) {
                 amt = FluidAmount.fromMcBuffer(buffer);
             } else {
-                amt = FluidAmount.ONE.sub(total);
+                amt = FluidAmount.ONE.sub(total.toAmount());
             }
             if (!amt.isPositive()) {
                 // For error handling
                 // Obviously we should never actually read this, but if we do we'll just drop it
                 continue;
             }
-            total = total.add(amt);
+            total.add(amt);
             map.put(value, amt);
         }
 
-        normalize(total);
+        normalize(total.toAmount());
     }
 
     protected T readValueFromMcBuffer(PacketByteBuf buffer) {
@@ -400,8 +456,15 @@ public abstract class WeightedFluidVolume<T> extends FluidVolume {
             values.clear();
             return;
         }
+        // Scale every weight back up to an absolute amount, so the normalisation can divide it by the new total
+        FluidAmount previous = getAmount_F();
+        for (Map.Entry<T, FluidAmount> entry : values.entrySet()) {
+            entry.setValue(entry.getValue().roundedMul(previous, rounding.rounding));
+        }
+        // Only the amount that was actually merged in counts towards the weight (MAXIMUM_POSSIBLE can leave some out)
+        FluidAmount accepted = amount.roundedSub(result.excess);
+        values.put(value, accepted.roundedAdd(values.get(value), rounding.rounding));
         setAmount(result.merged);
-        values.put(value, values.get(value).roundedAdd(amount.roundedDiv(getAmount_F()), rounding.rounding));
         normalize();
     }
 
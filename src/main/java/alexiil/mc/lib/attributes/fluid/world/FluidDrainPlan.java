@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.world;
+
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.HeightLimitView;
+import net.minecraft.world.WorldAccess;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkStatus;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.misc.LibBlockAttributes;
+
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/** An ordered list of fluid source blocks to drain, created by
+ * {@link FluidWorldUtil#planDrain(WorldAccess, BlockPos, int, int)}.
+ * <p>
+ * Sources are ordered from the top down, and then furthest from the origin first, so a pump drains a lake from the
+ * surface and the edges inwards rather than making a hole in the middle for the rest of the lake to flow into. Flowing
+ * blocks are followed while scanning (so sources behind a waterfall can still be found) but are never drained.
+ * <p>
+ * A plan doesn't follow changes to the world: every block is checked again just before it's drained, and any that
+ * aren't sources any more are skipped. Once a plan is {@link #isEmpty() empty} (or the surrounding fluid has changed a
+ * lot) it should be thrown away, and a new one made. */
+public final class FluidDrainPlan {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** {@link net.minecraft.block.Block#NOTIFY_LISTENERS}: neighbours are updated separately, once every block in the
+     * same {@link #drain(FluidAmount, int, Simulation)} call has been drained. */
+    private static final int DRAIN_FLAGS = 2;
+
+    public final WorldAccess world;
+
+    /** The still fluid that this plan drains, or {@link Fluids#EMPTY} if the origin didn't contain any fluid. */
+    public final Fluid fluid;
+
+    /** The number of flowing (non-source) blocks that were visited while scanning. */
+    public final int flowingCount;
+
+    /** Every source position (as {@link BlockPos#asLong()}), in the order that they will be drained. */
+    private final long[] sources;
+
+    /** The index of the next source in {@link #sources} to drain. */
+    private int next;
+
+    /** Fluid that was taken out of the world by {@link #drain(FluidAmount, int, Simulation)}, but which couldn't be
+     * returned by it, as it didn't match what was simulated. The next drain call returns this instead of draining any
+     * more blocks. */
+    private FluidVolume leftover = FluidVolumeUtil.EMPTY;
+
+    private FluidDrainPlan(WorldAccess world, Fluid fluid, long[] sources, int flowingCount) {
+        this.world = world;
+        this.fluid = fluid;
+        this.sources = sources;
+        this.flowingCount = flowingCount;
+    }
+
+    static FluidDrainPlan scan(WorldAccess world, BlockPos origin, int maxBlocks, int maxDistance) {
+        ChunkCache chunks = new ChunkCache(world);
+        return scan(world, world, chunks::getFluidState, origin, maxBlocks, maxDistance);
+    }
+
+    /** @param heights The height limits of the world, which is separate from the world itself for testing.
+     * @param fluids Looks up the fluid state at a position. The position passed in is mutable, so it shouldn't be
+     *            stored. */
+    static FluidDrainPlan scan(
+        WorldAccess world, HeightLimitView heights, Function<BlockPos, FluidState> fluids, BlockPos origin,
+        int maxBlocks, int maxDistance
+    ) {
+        FluidState originState = fluids.apply(origin);
+        if (originState.isEmpty() || maxBlocks <= 0) {
+            return new FluidDrainPlan(world, Fluids.EMPTY, new long[0], 0);
+        }
+        Fluid target = FluidWorldUtil.getStillFluid(originState.getFluid());
+
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        IntArrayFIFOQueue queueDistances = new IntArrayFIFOQueue();
+        LongOpenHashSet visited = new LongOpenHashSet();
+        LongArrayList sources = new LongArrayList();
+        IntArrayList sourceDistances = new IntArrayList();
+        int flowing = 0;
+
+        long start = origin.asLong();
+        queue.enqueue(start);
+        queueDistances.enqueue(0);
+        visited.add(start);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        while (!queue.isEmpty()) {
+            long packed = queue.dequeueLong();
+            int distance = queueDistances.dequeueInt();
+            FluidState state = fluids.apply(pos.set(packed));
+            if (state.isEmpty() || FluidWorldUtil.getStillFluid(state.getFluid()) != target) {
+                continue;
+            }
+
+            if (state.isStill()) {
+                sources.add(packed);
+                sourceDistances.add(distance);
+            } else {
+                flowing++;
+            }
+
+            if (sources.size() + flowing >= maxBlocks) {
+                break;
+            }
+            if (distance >= maxDistance) {
+                continue;
+            }
+
+            for (Direction dir : DIRECTIONS) {
+                long offset = BlockPos.offset(packed, dir);
+                if (heights.isOutOfHeightLimit(BlockPos.unpackLongY(offset))) {
+                    continue;
+                }
+                if (visited.add(offset)) {
+                    queue.enqueue(offset);
+                    queueDistances.enqueue(distance + 1);
+                }
+            }
+        }
+
+        long[] ordered = orderSources(sources.toLongArray(), sourceDistances.toIntArray());
+        return new FluidDrainPlan(world, target, ordered, flowing);
+    }
+
+    /** Sorts the given sources from the top down, and then furthest first. Ties are left in the order that they were
+     * found in.
+     *
+     * @param found Every source position, as {@link BlockPos#asLong()}, in the order that they were found in.
+     * @param distances The distance (through the fluid) from the origin to each source in found.
+     * @return A new array containing the sorted positions. */
+    static long[] orderSources(long[] found, int[] distances) {
+        int[] order = new int[found.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        IntArrays.quickSort(order, (a, b) -> {
+            int ya = BlockPos.unpackLongY(found[a]);
+            int yb = BlockPos.unpackLongY(found[b]);
+            if (ya != yb) {
+                return Integer.compare(yb, ya);
+            }
+            if (distances[a] != distances[b]) {
+                return Integer.compare(distances[b], distances[a]);
+            }
+            return Integer.compare(a, b);
+        });
+
+        long[] ordered = new long[found.length];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = found[order[i]];
+        }
+        return ordered;
+    }
+
+    /** @return The total number of source blocks that were found, including the ones that have already been
+     *         drained. */
+    public int size() {
+        return sources.length;
+    }
+
+    /** @return The number of source blocks that haven't been drained (or skipped) yet. */
+    public int remaining() {
+        return sources.length - next;
+    }
+
+    /** @return True if every source block has been drained (or skipped), and there's no fluid left over from a
+     *         previous drain. */
+    public boolean isEmpty() {
+        return next >= sources.length && leftover.isEmpty();
+    }
+
+    /** @return The position of the next source block to be drained, or null if this plan is empty. */
+    @Nullable
+    public BlockPos peek() {
+        return next >= sources.length ? null : BlockPos.fromLong(sources[next]);
+    }
+
+    /** Drains source blocks in order until either this plan is empty, the given number of blocks have been drained,
+     * or the next block would take the total over the given amount.
+     * <p>
+     * When simulating neither the world nor this plan are modified. Otherwise every block is drained without any
+     * neighbour updates, and then once every block has been drained each one on the edge of the drained area (next to
+     * a block that wasn't drained) updates its neighbours. Blocks in the middle of the drained area don't cause any
+     * updates, as all of their neighbours were drained too. Blocks that aren't drainable any more are skipped, and
+     * removed from this plan.
+     * <p>
+     * If a block returns something different when actually drained than it did when simulated (which the world can't
+     * be reverted from) then draining stops, and that block's fluid is kept by this plan rather than exceeding the
+     * limits. The next call then returns that fluid (up to the given amount) without draining any more blocks.
+     *
+     * @return The fluid that was drained (or would have been drained, if simulating). */
+    public FluidVolume drain(FluidAmount maxAmount, int maxBlocks, Simulation simulation) {
+        if (!leftover.isEmpty()) {
+            // Never merged with anything else, as it might be a different fluid to the rest of this plan
+            FluidVolume from = simulation.isAction() ? leftover : leftover.copy();
+            FluidVolume split = from.split(maxAmount);
+            if (leftover.isEmpty()) {
+                leftover = FluidVolumeUtil.EMPTY;
+            }
+            return split;
+        }
+
+        ChunkCache chunks = new ChunkCache(world);
+        LongArrayList drained = simulation.isAction() ? new LongArrayList() : null;
+        FluidVolume total = FluidVolumeUtil.EMPTY;
+
+        int index = next;
+        int count = 0;
+        for (; index < sources.length && count < maxBlocks; index++) {
+            BlockPos pos = BlockPos.fromLong(sources[index]);
+            BlockState state = chunks.getBlockState(pos);
+            FluidVolume simulated = FluidWorldUtil.drain(world, pos, state, Simulation.SIMULATE, DRAIN_FLAGS);
+            if (simulated.isEmpty()) {
+                continue;
+            }
+            if (!total.isEmpty() && !total.canMerge(simulated)) {
+                break;
+            }
+            if (total.amount().saturatedAdd(simulated.amount()).isGreaterThan(maxAmount)) {
+                break;
+            }
+
+            FluidVolume volume = simulated;
+            if (drained != null) {
+                volume = FluidWorldUtil.drain(world, pos, state, Simulation.ACTION, DRAIN_FLAGS);
+                drained.add(sources[index]);
+                if (volume.isEmpty()) {
+                    continue;
+                }
+                // Custom drainables might not return the same fluid as they simulated, but the world has already
+                // changed so the best we can do is stop here and keep it for the next call.
+                boolean canMerge = total.isEmpty() || total.canMerge(volume);
+                if (!canMerge || total.amount().saturatedAdd(volume.amount()).isGreaterThan(maxAmount)) {
+                    LibBlockAttributes.LOGGER.warn(
+                        "[FluidDrainPlan] Draining " + state + " at " + pos + " returned " + volume
+                            + ", which doesn't match the simulated " + simulated + "! (Already drained " + total
+                            + " of at most " + maxAmount + ")"
+                    );
+                    leftover = volume;
+                    index++;
+                    break;
+                }
+            }
+            total = FluidVolume.merge(total, volume);
+            count++;
+        }
+
+        if (drained != null) {
+            next = index;
+            updateNeighbours(drained);
+        }
+        return total;
+    }
+
+    /** Sorted by chunk section so that consecutive updates mostly touch the same section. */
+    private void updateNeighbours(LongArrayList drained) {
+        if (drained.isEmpty()) {
+            return;
+        }
+        LongOpenHashSet drainedSet = new LongOpenHashSet(drained);
+        long[] positions = drained.toLongArray();
+        LongArrays.quickSort(positions, (a, b) -> Long.compare(sectionOf(a), sectionOf(b)));
+
+        for (long packed : positions) {
+            // Neighbours that were drained in the same batch are already up to date
+            boolean isEdge = false;
+            for (Direction dir : DIRECTIONS) {
+                if (!drainedSet.contains(BlockPos.offset(packed, dir))) {
+                    isEdge = true;
+                    break;
+                }
+            }
+            if (isEdge) {
+                BlockPos pos = BlockPos.fromLong(packed);
+                world.updateNeighbors(pos, world.getBlockState(pos).getBlock());
+            }
+        }
+    }
+
+    private static long sectionOf(long packed) {
+        return ChunkSectionPos.asLong(
+            BlockPos.unpackLongX(packed) >> 4, BlockPos.unpackLongY(packed) >> 4, BlockPos.unpackLongZ(packed) >> 4
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "{FluidDrainPlan " + fluid + ", " + remaining() + " / " + size() + " sources, " + flowingCount
+            + " flowing}";
+    }
+
+    /** Caches every chunk used by a single scan (or drain), so each block read doesn't need to look up the chunk in
+     * the world's chunk manager. Chunks that aren't loaded are treated as if they are empty. */
+    private static final class ChunkCache {
+        final WorldAccess world;
+        final Long2ObjectOpenHashMap<Chunk> chunks = new Long2ObjectOpenHashMap<>();
+
+        long lastKey;
+        @Nullable
+        Chunk last;
+
+        ChunkCache(WorldAccess world) {
+            this.world = world;
+        }
+
+        @Nullable
+        Chunk getChunk(BlockPos pos) {
+            int cx = pos.getX() >> 4;
+            int cz = pos.getZ() >> 4;
+            long key = ChunkPos.toLong(cx, cz);
+            if (last != null && key == lastKey) {
+                return last;
+            }
+            Chunk chunk = chunks.get(key);
+            if (chunk == null && !chunks.containsKey(key)) {
+                chunk = world.getChunk(cx, cz, ChunkStatus.FULL, false);
+                chunks.put(key, chunk);
+            }
+            if (chunk != null) {
+                last = chunk;
+                lastKey = key;
+            }
+            return chunk;
+        }
+
+        FluidState getFluidState(BlockPos pos) {
+            Chunk chunk = getChunk(pos);
+            return chunk == null ? Fluids.EMPTY.getDefaultState() : chunk.getFluidState(pos);
+        }
+
+        BlockState getBlockState(BlockPos pos) {
+            Chunk chunk = getChunk(pos);
+            return chunk == null ? Blocks.AIR.getDefaultState() : chunk.getBlockState(pos);
+        }
+    }
+}
@@ -44,7 +44,24 @@ public final class FluidWorldUtil {
 
     /** Attempts to drain the given block of it's fluid. */
     public static FluidVolume drain(WorldAccess world, BlockPos pos, Simulation simulation) {
-        BlockState state = world.getBlockState(pos);
+        return drain(world, pos, world.getBlockState(pos), simulation, 3);
+    }
+
+    /** Scans the fluid connected to the given origin (with a flood fill), and returns a {@link FluidDrainPlan} that can
+     * drain every source block that was found, in a sensible order for a pump. This is much faster than calling
+     * {@link #drain(WorldAccess, BlockPos, Simulation)} on every block separately.
+     * 
+     * @param origin The position to start scanning from. This must contain a fluid (either a source or flowing block),
+     *            otherwise the returned plan will be empty.
+     * @param maxBlocks The maximum number of fluid blocks (both source and flowing) to visit.
+     * @param maxDistance The maximum number of steps (through the fluid) away from the origin to visit. */
+    public static FluidDrainPlan planDrain(WorldAccess world, BlockPos origin, int maxBlocks, int maxDistance) {
+        return FluidDrainPlan.scan(world, origin, maxBlocks, maxDistance);
+    }
+
+    /** @param flags The flags to pass to {@link WorldAccess#setBlockState(BlockPos, BlockState, int)}. (Note that
+     *            custom drainables will always use their own flags). */
+    static FluidVolume drain(WorldAccess world, BlockPos pos, BlockState state, Simulation simulation, int flags) {
         Block block = state.getBlock();
         if (block instanceof IFluidVolumeDrainable) {
             return ((IFluidVolumeDrainable) block).tryDrainFluid(world, pos, state, simulation);
@@ -52,7 +69,7 @@ public final class FluidWorldUtil {
             if (state.get(Properties.WATERLOGGED)) {
                 FluidVolume fluidVolume = FluidKeys.WATER.fromWorld(world, pos);
                 if (simulation == Simulation.ACTION) {
-                    world.setBlockState(pos, state.with(Properties.WATERLOGGED, false), 3);
+                    world.setBlockState(pos, state.with(Properties.WATERLOGGED, false), flags);
                 }
                 return fluidVolume;
             }
@@ -65,7 +82,7 @@ public final class FluidWorldUtil {
                 }
                 FluidVolume fluidVolume = fluidKey.fromWorld(world, pos);
                 if (simulation == Simulation.ACTION) {
-                    world.setBlockState(pos, Blocks.AIR.getDefaultState(), 3);
+                    world.setBlockState(pos, Blocks.AIR.getDefaultState(), flags);
                 }
                 return fluidVolume;
             }
@@ -132,7 +149,7 @@ public final class FluidWorldUtil {
         }
     }
 
-    private static Fluid getStillFluid(Fluid fluid) {
+    static Fluid getStillFluid(Fluid fluid) {
         if (fluid instanceof FlowableFluid) {
             return ((FlowableFluid) fluid).getStill();
         }
@@ -169,7 +169,7 @@ public final class ItemAttributes {
                     if (direction != null) {
                         wrapper = FixedSidedInventoryVanillaWrapper.create(inventory, blockSide);
                     } else {
-                        wrapper = new FixedInventoryVanillaWrapper(inventory);
+                        wrapper = FixedInventoryVanillaWrapper.create(inventory);
                     }
                     l.add(convertor.apply(wrapper));
                 } else {
@@ -183,7 +183,7 @@ public final class ItemAttributes {
             ChestBlock chest = (ChestBlock) s.getBlock();
             Inventory chestInv = ChestBlock.getInventory(chest, s, w, p, checkForBlockingCats);
             if (chestInv != null) {
-                l.add(convertor.apply(new FixedInventoryVanillaWrapper(chestInv)));
+                l.add(convertor.apply(FixedInventoryVanillaWrapper.create(chestInv)));
             }
         });
 
@@ -201,11 +201,11 @@ public final class ItemAttributes {
                 if (direction != null) {
                     wrapper = FixedSidedInventoryVanillaWrapper.create(sidedInv, blockSide);
                 } else {
-                    wrapper = new FixedInventoryVanillaWrapper(sidedInv);
+                    wrapper = FixedInventoryVanillaWrapper.create(sidedInv);
                 }
                 l.add(convertor.apply(wrapper));
             } else if (be instanceof Inventory) {
-                l.add(convertor.apply(new FixedInventoryVanillaWrapper((Inventory) be)));
+                l.add(convertor.apply(FixedInventoryVanillaWrapper.create((Inventory) be)));
             }
         });
 
@@ -20,10 +20,10 @@ import net.minecraft.util.Hand;
 
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.FixedItemInv.CopyingFixedItemInv;
-import alexiil.mc.lib.attributes.item.filter.AggregateItemFilter;
 import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
 import alexiil.mc.lib.attributes.item.filter.ExactItemStackFilter;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilterCompiler;
 import alexiil.mc.lib.attributes.misc.PlayerInvUtil;
 import alexiil.mc.lib.attributes.misc.Reference;
 
@@ -102,10 +102,7 @@ public final class ItemInvUtil {
         if (maximum <= 0) {
             return 0;
         }
-        ItemFilter insertionFilter = to.getInsertionFilter();
-        if (filter != null && filter != ConstantItemFilter.ANYTHING) {
-            insertionFilter = AggregateItemFilter.and(insertionFilter, filter);
-        }
+        ItemFilter insertionFilter = ItemFilterCompiler.and(to.getInsertionFilter(), filter);
 
         ItemStack extracted = from.attemptExtraction(insertionFilter, maximum, Simulation.SIMULATE);
         if (extracted.isEmpty()) {
@@ -7,6 +7,7 @@
  */
 package alexiil.mc.lib.attributes.item.compat;
 
+import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.inventory.Inventory;
 import net.minecraft.item.ItemStack;
 
@@ -25,6 +26,16 @@ public class FixedInventoryVanillaWrapper extends FixedInventoryViewVanillaWrapp
         super(inv);
     }
 
+    /** @return A (possibly cached) wrapper for the given inventory. Unlike the constructor this will return the same
+     *         object for repeated calls with a {@link BlockEntity} inventory. */
+    public static FixedInventoryVanillaWrapper create(Inventory inv) {
+        VanillaInventoryWrapperCache cache = VanillaInventoryWrapperCache.get(inv);
+        if (cache != null) {
+            return cache.getWrapper();
+        }
+        return new FixedInventoryVanillaWrapper(inv);
+    }
+
     @Override
     public boolean setInvStack(int slot, ItemStack to, Simulation simulation) {
         boolean allowed = false;
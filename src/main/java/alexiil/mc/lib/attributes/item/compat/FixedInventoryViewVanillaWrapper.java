@@ -22,7 +22,12 @@ public class FixedInventoryViewVanillaWrapper implements FixedItemInvView, OpenW
         this.inv = inv;
     }
 
+    /** @return A (possibly cached) read-only wrapper for the given inventory. */
     public static FixedInventoryViewVanillaWrapper wrapInventory(Inventory inv) {
+        VanillaInventoryWrapperCache cache = VanillaInventoryWrapperCache.get(inv);
+        if (cache != null) {
+            return cache.getViewWrapper();
+        }
         return new FixedInventoryViewVanillaWrapper(inv);
     }
 
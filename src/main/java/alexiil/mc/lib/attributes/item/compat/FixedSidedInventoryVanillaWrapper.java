@@ -7,6 +7,7 @@
  */
 package alexiil.mc.lib.attributes.item.compat;
 
+import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.inventory.SidedInventory;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.math.Direction;
@@ -25,7 +26,14 @@ public class FixedSidedInventoryVanillaWrapper extends FixedInventoryVanillaWrap
         this.sidedInv = inv;
     }
 
+    /** @return A {@link FixedItemInv} that only exposes the {@link SidedInventory#getAvailableSlots(Direction)
+     *         available slots} for the given side. This is cached for {@link BlockEntity} inventories (see
+     *         {@link VanillaInventoryWrapperCache} for when the slots are recomputed). */
     public static FixedItemInv create(SidedInventory inventory, Direction side) {
+        VanillaInventoryWrapperCache cache = VanillaInventoryWrapperCache.get(inventory);
+        if (cache != null) {
+            return cache.getSidedWrapper(side);
+        }
         FixedSidedInventoryVanillaWrapper wrapper = new FixedSidedInventoryVanillaWrapper(inventory, side);
         return wrapper.getMappedInv(inventory.getAvailableSlots(side));
     }
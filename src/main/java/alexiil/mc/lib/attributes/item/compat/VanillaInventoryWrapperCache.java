@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.compat;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.inventory.SidedInventory;
+import net.minecraft.util.math.Direction;
+
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.mixin.api.IWrapperCachingInventory;
+
+/** Stores the {@link FixedItemInv} wrappers that have been created for a single vanilla {@link Inventory}, so that
+ * repeated attribute lookups don't allocate a new wrapper (or call {@link SidedInventory#getAvailableSlots(Direction)})
+ * every time.
+ * <p>
+ * Caches are only kept for inventories that implement {@link IWrapperCachingInventory} (which LBA adds to every
+ * {@link BlockEntity}), as the cache is stored directly in the inventory object - which means it's released at the same
+ * time as the inventory itself. Other inventories (such as chest minecarts or double chests) are never cached.
+ * <p>
+ * The per-side slot arrays are only kept between calls for vanilla block entities, as those are the only ones that are
+ * known to reach {@link BlockEntity#markDirty()} (which invalidates them) whenever their slots might have changed. For
+ * every other block entity {@link SidedInventory#getAvailableSlots(Direction)} is called every time, and the previous
+ * wrapper is only reused if the slots are the same. */
+public final class VanillaInventoryWrapperCache {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Inventory inv;
+
+    /** True if {@link #invalidateSides()} is guaranteed to be called whenever the sided slots might change. */
+    private final boolean trustsMarkDirty;
+
+    private FixedInventoryViewVanillaWrapper view;
+    private FixedInventoryVanillaWrapper wrapper;
+    private final FixedSidedInventoryVanillaWrapper[] sidedWrappers = new FixedSidedInventoryVanillaWrapper[6];
+    private final FixedItemInv[] mappedWrappers = new FixedItemInv[6];
+    private final int[][] sidedSlots = new int[6][];
+
+    /** Bitmask of every {@link Direction#getId()} whose {@link #sidedSlots} are known to be up-to-date. */
+    private int validSides;
+
+    private VanillaInventoryWrapperCache(Inventory inv) {
+        this.inv = inv;
+        // Subclasses from other mods might override markDirty without calling super
+        this.trustsMarkDirty = inv.getClass().getName().startsWith("net.minecraft.");
+    }
+
+    /** @return The cache for the given inventory, or null if the inventory doesn't support caching. */
+    @Nullable
+    public static VanillaInventoryWrapperCache get(Inventory inv) {
+        if (!(inv instanceof IWrapperCachingInventory)) {
+            return null;
+        }
+        IWrapperCachingInventory holder = (IWrapperCachingInventory) inv;
+        VanillaInventoryWrapperCache cache = holder.libblockattributes__getWrapperCache();
+        if (cache == null) {
+            cache = new VanillaInventoryWrapperCache(inv);
+            holder.libblockattributes__setWrapperCache(cache);
+        }
+        return cache;
+    }
+
+    /** Marks every cached sided slot array as out-of-date. Called whenever the inventory is marked dirty. */
+    public void invalidateSides() {
+        validSides = 0;
+    }
+
+    /** @return The read-only wrapper for the inventory. */
+    public FixedInventoryViewVanillaWrapper getViewWrapper() {
+        FixedInventoryViewVanillaWrapper w = view;
+        if (w == null) {
+            view = w = new FixedInventoryViewVanillaWrapper(inv);
+        }
+        return w;
+    }
+
+    /** @return The (unsided) wrapper for the inventory. */
+    public FixedInventoryVanillaWrapper getWrapper() {
+        FixedInventoryVanillaWrapper w = wrapper;
+        if (w == null) {
+            wrapper = w = new FixedInventoryVanillaWrapper(inv);
+        }
+        return w;
+    }
+
+    /** @return The wrapper for the inventory, as seen from the given side. This is identical to
+     *         {@link FixedSidedInventoryVanillaWrapper#create(SidedInventory, Direction)}. */
+    public FixedItemInv getSidedWrapper(Direction side) {
+        SidedInventory sidedInv = (SidedInventory) inv;
+        int index = side.getId();
+        int bit = 1 << index;
+        FixedItemInv mapped = mappedWrappers[index];
+        if ((validSides & bit) != 0 && mapped != null) {
+            return mapped;
+        }
+        int[] slots = sidedInv.getAvailableSlots(side);
+        if (mapped == null || !Arrays.equals(slots, sidedSlots[index])) {
+            FixedSidedInventoryVanillaWrapper sided = sidedWrappers[index];
+            if (sided == null) {
+                sidedWrappers[index] = sided = new FixedSidedInventoryVanillaWrapper(sidedInv, DIRECTIONS[index]);
+            }
+            mapped = sided.getMappedInv(slots);
+            mappedWrappers[index] = mapped;
+            sidedSlots[index] = slots;
+        }
+        if (trustsMarkDirty) {
+            validSides |= bit;
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.filter;
+
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+/** A {@link ResolvableItemFilter} created by {@link ItemFilterCompiler}, which matches exactly the same stacks as the
+ * {@link #resolve() source filter} but (usually) much faster. All of the {@link ExactItemFilter}s and
+ * {@link ExactItemSetFilter}s are merged into a single identity set, and every other filter is checked afterwards in
+ * order of increasing {@link ItemFilterCompiler#estimateCost(ItemFilter) cost}. */
+public final class CompiledItemFilter implements ResolvableItemFilter {
+
+    private final ReadableItemFilter source;
+    private final boolean all;
+
+    /** Null if the source didn't contain any item-only filters. */
+    @Nullable
+    private final Set<Item> items;
+    private final ItemFilter[] others;
+    final int cost;
+
+    CompiledItemFilter(ReadableItemFilter source, boolean all, @Nullable Set<Item> items, ItemFilter[] others) {
+        this.source = source;
+        this.all = all;
+        this.items = items;
+        this.others = others;
+        int c = items == null ? 0 : 2;
+        for (ItemFilter filter : others) {
+            c += ItemFilterCompiler.estimateCost(filter);
+        }
+        this.cost = c;
+    }
+
+    /** @return The original (readable) filter that this was compiled from. */
+    @Override
+    public ReadableItemFilter resolve() {
+        return source;
+    }
+
+    @Override
+    public boolean matches(ItemStack stack) {
+        if (all) {
+            if (items != null && !items.contains(stack.getItem())) {
+                return false;
+            }
+            for (ItemFilter filter : others) {
+                if (!filter.matches(stack)) {
+                    return false;
+                }
+            }
+            return true;
+        } else {
+            if (items != null && items.contains(stack.getItem())) {
+                return true;
+            }
+            for (ItemFilter filter : others) {
+                if (filter.matches(stack)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Compiled{" + source + "}";
+    }
+}
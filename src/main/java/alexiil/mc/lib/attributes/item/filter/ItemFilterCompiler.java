@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.minecraft.item.Item;
+
+import alexiil.mc.lib.attributes.AggregateFilterType;
+import alexiil.mc.lib.attributes.item.ItemInsertable;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+
+/** Converts {@link ReadableItemFilter} trees into {@link CompiledItemFilter}s, which are faster to test against
+ * repeatedly than the original trees. */
+public final class ItemFilterCompiler {
+    private ItemFilterCompiler() {}
+
+    private static final ItemFilter[] NO_FILTERS = new ItemFilter[0];
+
+    /** Cache for {@link #and(ItemFilter, ItemFilter)}, keyed by the identity of both filters (as item filters don't
+     * override {@link Object#equals(Object)}). Only {@link #isStateless(ItemFilter) stateless} filters are cached,
+     * since any other filter might reference an inventory (and so a whole world) that has since been unloaded. This
+     * means it's safe for the cache to hold on to its keys strongly. */
+    private static final Cache<FilterPair, ItemFilter> COMBINED_FILTERS = CacheBuilder.newBuilder()//
+        .maximumSize(256)//
+        .expireAfterAccess(1, TimeUnit.MINUTES)//
+        .build();
+
+    /** Compiles the given filter. This returns the filter unchanged if it isn't a {@link ReadableItemFilter} (as it
+     * can't be inspected), if it's a {@link ResolvableItemFilter} (as it may change over time), or if compiling it
+     * wouldn't make it any faster.
+     * <p>
+     * Note that this doesn't call {@link ItemFilter#matches(net.minecraft.item.ItemStack)} on any of the filters, so
+     * the returned filter will always match exactly the same stacks as the original would. */
+    public static ItemFilter compile(ItemFilter filter) {
+        if (!(filter instanceof ReadableItemFilter) || filter instanceof ResolvableItemFilter) {
+            return filter;
+        }
+        if (filter instanceof ExactItemSetFilter) {
+            Set<Item> items = new ReferenceOpenHashSet<>(((ExactItemSetFilter) filter).getItems());
+            return new CompiledItemFilter((ReadableItemFilter) filter, false, items, NO_FILTERS);
+        }
+        if (filter instanceof InvertedItemFilter) {
+            ItemFilter delegate = ((InvertedItemFilter) filter).delegate;
+            ItemFilter compiled = compile(delegate);
+            return compiled == delegate ? filter : new InvertedItemFilter(compiled);
+        }
+        if (filter instanceof AggregateItemFilter) {
+            return compileAggregate((AggregateItemFilter) filter);
+        }
+        return filter;
+    }
+
+    /** Combines the given {@link ItemInsertable#getInsertionFilter() insertion filter} with a user-provided filter,
+     * and compiles the result. Unlike {@link AggregateItemFilter#and(ItemFilter, ItemFilter)} this never tests either
+     * filter against the other, which allows the result to be cached for every (insertion filter, user filter) pair
+     * where both filters are stateless.
+     * 
+     * @param filter The user filter. Null is treated as {@link ConstantItemFilter#ANYTHING}. */
+    public static ItemFilter and(ItemFilter insertionFilter, ItemFilter filter) {
+        if (filter == null || filter == ConstantItemFilter.ANYTHING || filter == insertionFilter) {
+            return insertionFilter;
+        }
+        if (insertionFilter == ConstantItemFilter.ANYTHING) {
+            return filter;
+        }
+        if (insertionFilter == ConstantItemFilter.NOTHING || filter == ConstantItemFilter.NOTHING) {
+            return ConstantItemFilter.NOTHING;
+        }
+        if (!isStateless(insertionFilter) || !isStateless(filter)) {
+            return compile(new AggregateItemFilter(AggregateFilterType.ALL, insertionFilter, filter));
+        }
+        FilterPair key = new FilterPair(insertionFilter, filter);
+        ItemFilter combined = COMBINED_FILTERS.getIfPresent(key);
+        if (combined == null) {
+            combined = compile(new AggregateItemFilter(AggregateFilterType.ALL, insertionFilter, filter));
+            COMBINED_FILTERS.put(key, combined);
+        }
+        return combined;
+    }
+
+    /** @return True if the given filter only depends on the stack passed to it, and so can't hold on to a world or
+     *         inventory. Unknown filters are assumed to be stateful. */
+    static boolean isStateless(ItemFilter filter) {
+        if (filter instanceof ConstantItemFilter || filter instanceof ExactItemFilter
+            || filter instanceof ExactItemSetFilter || filter instanceof ExactItemStackFilter
+            || filter instanceof ItemTagFilter || filter instanceof ItemClassFilter) {
+            return true;
+        } else if (filter instanceof CompiledItemFilter) {
+            return isStateless(((CompiledItemFilter) filter).resolve());
+        } else if (filter instanceof InvertedItemFilter) {
+            return isStateless(((InvertedItemFilter) filter).delegate);
+        } else if (filter instanceof AggregateItemFilter) {
+            AggregateItemFilter aggregate = (AggregateItemFilter) filter;
+            for (int i = 0; i < aggregate.getFilterCount(); i++) {
+                if (!isStateless(aggregate.getFilter(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private static ItemFilter compileAggregate(AggregateItemFilter filter) {
+        Flattener flattener = new Flattener(filter.type == AggregateFilterType.ALL);
+        flattener.add(filter);
+
+        if (flattener.shortCircuited) {
+            return ConstantItemFilter.of(!flattener.all);
+        }
+        Set<Item> items = flattener.items;
+        List<ItemFilter> others = flattener.others;
+        if (flattener.all && items != null && items.isEmpty()) {
+            return ConstantItemFilter.NOTHING;
+        }
+        if (!flattener.all && items != null && items.isEmpty()) {
+            items = null;
+        }
+        if (items == null && others.isEmpty()) {
+            return ConstantItemFilter.of(flattener.all);
+        }
+        others.sort(Comparator.comparingInt(ItemFilterCompiler::estimateCost));
+        return new CompiledItemFilter(filter, flattener.all, items, others.toArray(NO_FILTERS));
+    }
+
+    /** @return A rough estimate of how expensive it is to call {@link ItemFilter#matches(net.minecraft.item.ItemStack)}
+     *         on the given filter, where 0 is free. */
+    static int estimateCost(ItemFilter filter) {
+        if (filter instanceof ConstantItemFilter) {
+            return 0;
+        } else if (filter instanceof ExactItemFilter) {
+            return 1;
+        } else if (filter instanceof ExactItemSetFilter || filter instanceof ItemTagFilter) {
+            return 2;
+        } else if (filter instanceof ItemClassFilter) {
+            return 3;
+        } else if (filter instanceof ExactItemStackFilter) {
+            return 4;
+        } else if (filter instanceof CompiledItemFilter) {
+            return ((CompiledItemFilter) filter).cost;
+        } else if (filter instanceof InvertedItemFilter) {
+            return estimateCost(((InvertedItemFilter) filter).delegate);
+        } else if (filter instanceof AggregateItemFilter) {
+            int cost = 0;
+            for (ItemFilter inner : (AggregateItemFilter) filter) {
+                cost += estimateCost(inner);
+            }
+            return cost;
+        } else if (filter instanceof ResolvableItemFilter) {
+            return 16;
+        } else {
+            // Unknown filters could do anything - for example ItemInsertableFilter simulates an insertion
+            return 64;
+        }
+    }
+
+    /** A pair of filters, compared by identity. */
+    private static final class FilterPair {
+        final ItemFilter first, second;
+
+        FilterPair(ItemFilter first, ItemFilter second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FilterPair)) {
+                return false;
+            }
+            FilterPair other = (FilterPair) obj;
+            return first == other.first && second == other.second;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(first) * 31 + System.identityHashCode(second);
+        }
+    }
+
+    /** Collects every child of nested {@link AggregateItemFilter}s of the same {@link AggregateFilterType} into a
+     * single set of items, plus a list of every other filter. */
+    private static final class Flattener {
+        final boolean all;
+        final List<ItemFilter> others = new ArrayList<>();
+        Set<Item> items;
+        boolean shortCircuited;
+
+        Flattener(boolean all) {
+            this.all = all;
+        }
+
+        void add(AggregateItemFilter aggregate) {
+            for (ItemFilter filter : aggregate) {
+                if (shortCircuited) {
+                    return;
+                }
+                if (filter instanceof AggregateItemFilter) {
+                    AggregateItemFilter inner = (AggregateItemFilter) filter;
+                    if ((inner.type == AggregateFilterType.ALL) == all) {
+                        add(inner);
+                        continue;
+                    }
+                } else if (filter instanceof ExactItemFilter) {
+                    addItems(Collections.singleton(((ExactItemFilter) filter).item));
+                    continue;
+                } else if (filter instanceof ExactItemSetFilter) {
+                    addItems(((ExactItemSetFilter) filter).getItems());
+                    continue;
+                } else if (filter == ConstantItemFilter.ANYTHING) {
+                    // ANYTHING doesn't change the result of ALL
+                    shortCircuited |= !all;
+                    continue;
+                } else if (filter == ConstantItemFilter.NOTHING) {
+                    // NOTHING doesn't change the result of ANY
+                    shortCircuited |= all;
+                    continue;
+                }
+                others.add(compile(filter));
+            }
+        }
+
+        void addItems(Set<Item> from) {
+            if (items == null) {
+                items = new ReferenceOpenHashSet<>(from);
+            } else if (all) {
+                items.retainAll(from);
+            } else {
+                items.addAll(from);
+            }
+        }
+    }
+}
@@ -11,25 +11,57 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
 import net.minecraft.registry.Registries;
 import net.minecraft.registry.entry.RegistryEntry;
 import net.minecraft.registry.tag.TagKey;
 
-/** A {@link ResolvableItemFilter} that matches any {@link Item}s in a {@link TagKey}. */
+import alexiil.mc.lib.attributes.misc.TagReloadTracker;
+
+/** A {@link ResolvableItemFilter} that matches any {@link Item}s in a {@link TagKey}.
+ * <p>
+ * The resolved filter is cached, and only recomputed after the tags have been reloaded (see
+ * {@link TagReloadTracker}). */
 public final class ItemTagFilter implements ResolvableItemFilter {
 
     public final TagKey<Item> tag;
 
+    private volatile Resolved resolved;
+
     public ItemTagFilter(TagKey<Item> tag) {
         this.tag = tag;
     }
 
     @Override
     public ReadableItemFilter resolve() {
-        List<Item> items = new ArrayList<>();
-        for (RegistryEntry<Item> entry : Registries.ITEM.iterateEntries(tag)) {
-            items.add(entry.value());
+        return getResolved().filter;
+    }
+
+    @Override
+    public boolean matches(ItemStack stack) {
+        return getResolved().filter.matches(stack);
+    }
+
+    private Resolved getResolved() {
+        Resolved r = resolved;
+        int generation = TagReloadTracker.getGeneration();
+        if (r == null || r.generation != generation) {
+            List<Item> items = new ArrayList<>();
+            for (RegistryEntry<Item> entry : Registries.ITEM.iterateEntries(tag)) {
+                items.add(entry.value());
+            }
+            resolved = r = new Resolved(generation, ExactItemFilter.anyOf(items));
+        }
+        return r;
+    }
+
+    private static final class Resolved {
+        final int generation;
+        final ReadableItemFilter filter;
+
+        Resolved(int generation, ReadableItemFilter filter) {
+            this.generation = generation;
+            this.filter = filter;
         }
-        return ExactItemFilter.anyOf(items);
     }
 }
@@ -58,7 +58,7 @@ public final class HopperHooks {
         }
 
         // Get an Extractable for the Hopper's internal inventory
-        ItemExtractable extractable = new FixedInventoryVanillaWrapper(hopper).getExtractable();
+        ItemExtractable extractable = FixedInventoryVanillaWrapper.create(hopper).getExtractable();
 
         // Try to move any one item from hopper->inventory
         if (ItemInvUtil.move(extractable, insertable, 1) > 0) {
@@ -89,7 +89,7 @@ public final class HopperHooks {
         }
 
         // Get an Insertable for the Hopper's internal inventory
-        ItemInsertable insertable = new FixedInventoryVanillaWrapper(hopper).getInsertable();
+        ItemInsertable insertable = FixedInventoryVanillaWrapper.create(hopper).getInsertable();
 
         // Try to move any one item from inventory->hopper
         if (ItemInvUtil.move(extractable, insertable, 1) > 0) {
@@ -117,7 +117,7 @@ public final class HopperHooks {
         }
 
         // Get an Extractable for the Hopper's internal inventory
-        ItemExtractable extractable = new FixedInventoryVanillaWrapper(dropper).getSlot(invIndex);
+        ItemExtractable extractable = FixedInventoryVanillaWrapper.create(dropper).getSlot(invIndex);
 
         // Try to move any one item from hopper->inventory
         if (ItemInvUtil.move(extractable, insertable, 1) > 0) {
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.mixin.api;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.inventory.Inventory;
+
+import alexiil.mc.lib.attributes.item.compat.VanillaInventoryWrapperCache;
+
+/** Added to every {@link BlockEntity} by LBA, so that vanilla {@link Inventory} wrappers can be stored alongside the
+ * inventory itself. Not intended to be implemented or called by other mods - use
+ * {@link VanillaInventoryWrapperCache#get(Inventory)} instead. */
+public interface IWrapperCachingInventory {
+
+    @Nullable
+    VanillaInventoryWrapperCache libblockattributes__getWrapperCache();
+
+    void libblockattributes__setWrapperCache(VanillaInventoryWrapperCache cache);
+}
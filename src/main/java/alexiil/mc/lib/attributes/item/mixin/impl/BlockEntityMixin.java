@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.mixin.impl;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.block.entity.BlockEntity;
+
+import alexiil.mc.lib.attributes.item.compat.VanillaInventoryWrapperCache;
+import alexiil.mc.lib.attributes.item.mixin.api.IWrapperCachingInventory;
+
+@Mixin(BlockEntity.class)
+public class BlockEntityMixin implements IWrapperCachingInventory {
+
+    private VanillaInventoryWrapperCache libblockattributes__wrapperCache;
+
+    @Inject(method = "markDirty()V", at = @At("HEAD"))
+    void libblockattributes__invalidateWrapperCache(CallbackInfo ci) {
+        VanillaInventoryWrapperCache cache = libblockattributes__wrapperCache;
+        if (cache != null) {
+            cache.invalidateSides();
+        }
+    }
+
+    @Override
+    public VanillaInventoryWrapperCache libblockattributes__getWrapperCache() {
+        return libblockattributes__wrapperCache;
+    }
+
+    @Override
+    public void libblockattributes__setWrapperCache(VanillaInventoryWrapperCache cache) {
+        libblockattributes__wrapperCache = cache;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.misc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.minecraft.registry.Registry;
+import net.minecraft.registry.tag.TagKey;
+
+/** Tracks whenever the {@link TagKey tags} of any {@link Registry} are rebound - either from a datapack reload on the
+ * server, or from the tag sync packet on the client. Anything that caches the contents of a tag should store the
+ * {@link #getGeneration() generation} at the time it resolved the tag, and re-resolve it when that changes. */
+public final class TagReloadTracker {
+    private TagReloadTracker() {}
+
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    /** @return A number which changes every time the tags of any registry are reloaded. */
+    public static int getGeneration() {
+        return GENERATION.get();
+    }
+
+    /** Called by LBA's mixin after the tags of a registry have been populated. You shouldn't need to call this
+     * yourself. */
+    public static void onTagsPopulated() {
+        GENERATION.incrementAndGet();
+    }
+}
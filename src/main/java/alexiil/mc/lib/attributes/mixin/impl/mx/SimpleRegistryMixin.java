@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.mixin.impl.mx;
+
+import java.util.Map;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.registry.SimpleRegistry;
+
+import alexiil.mc.lib.attributes.misc.TagReloadTracker;
+
+@Mixin(SimpleRegistry.class)
+public class SimpleRegistryMixin {
+
+    @Inject(at = @At("TAIL"), method = "populateTags(Ljava/util/Map;)V")
+    private void lba_onTagsPopulated(Map<?, ?> tagEntries, CallbackInfo ci) {
+        TagReloadTracker.onTagsPopulated();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.impl.SimpleFixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+public class FluidDistributorTester extends VanillaSetupBaseTester {
+
+    @Test
+    public void testDistributePartial() {
+        SimpleFixedFluidInv from = new SimpleFixedFluidInv(1, FluidAmount.ofWhole(4));
+        SimpleFixedFluidInv a = new SimpleFixedFluidInv(1, FluidAmount.BUCKET);
+        SimpleFixedFluidInv b = new SimpleFixedFluidInv(1, FluidAmount.BUCKET);
+        from.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.ofWhole(4)), Simulation.ACTION);
+        a.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.of(3, 4)), Simulation.ACTION);
+
+        FluidDistributor distributor = new FluidDistributor(Arrays.asList(a, b), null);
+        FluidVolume simulated = distributor.distribute(from, null, null, Simulation.SIMULATE);
+        Assert.assertEquals(FluidAmount.of(1, 1, 4), simulated.amount());
+        Assert.assertEquals(FluidAmount.ofWhole(4), from.getInvFluid(0).amount());
+
+        FluidVolume moved = distributor.distribute(from, null, null, Simulation.ACTION);
+        Assert.assertEquals(FluidAmount.of(1, 1, 4), moved.amount());
+        Assert.assertEquals(FluidAmount.of(2, 3, 4), from.getInvFluid(0).amount());
+        Assert.assertEquals(FluidAmount.BUCKET, a.getInvFluid(0).amount());
+        Assert.assertEquals(FluidAmount.BUCKET, b.getInvFluid(0).amount());
+    }
+
+    @Test
+    public void testFixedAmountTarget() {
+        SimpleFixedFluidInv source = new SimpleFixedFluidInv(1, FluidAmount.BUCKET);
+        source.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.BUCKET), Simulation.ACTION);
+        SimpleFixedFluidInv a = new SimpleFixedFluidInv(1, FluidAmount.BUCKET);
+        BucketOnlyInsertable b = new BucketOnlyInsertable(new SimpleFixedFluidInv(1, FluidAmount.ofWhole(4)));
+
+        // Doesn't allow partial commits, so every allocation has to be exact
+        FluidExtractable from = new FluidExtractable() {
+            @Override
+            public FluidVolume attemptExtraction(FluidFilter filter, FluidAmount maxAmount, Simulation simulation) {
+                return source.attemptExtraction(filter, maxAmount, simulation);
+            }
+        };
+
+        // b accepts the whole bucket, but not the half that it would be given
+        FluidDistributor distributor = new FluidDistributor(Arrays.asList(a.getInsertable(), b));
+        FluidVolume moved = distributor.distribute(from, null, null, Simulation.ACTION);
+        Assert.assertEquals(FluidAmount.of(1, 2), moved.amount());
+        Assert.assertEquals(FluidAmount.of(1, 2), source.getInvFluid(0).amount());
+        Assert.assertEquals(FluidAmount.of(1, 2), a.getInvFluid(0).amount());
+        Assert.assertTrue(b.inv.getInvFluid(0).isEmpty());
+    }
+
+    @Test
+    public void testSharedTarget() {
+        SimpleFixedFluidInv from = new SimpleFixedFluidInv(1, FluidAmount.ofWhole(2));
+        from.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.ofWhole(2)), Simulation.ACTION);
+        SimpleFixedFluidInv shared = new SimpleFixedFluidInv(1, FluidAmount.BUCKET);
+
+        // Both targets think they have a whole bucket of space, so the second insertion doesn't fit
+        FluidDistributor distributor
+            = new FluidDistributor(Arrays.asList(shared.getInsertable(), shared.getInsertable()));
+        FluidVolume moved = distributor.distribute(from, null, null, Simulation.ACTION);
+        Assert.assertEquals(FluidAmount.BUCKET, moved.amount());
+        Assert.assertEquals(FluidAmount.BUCKET, shared.getInvFluid(0).amount());
+        // The rest goes back to where it came from
+        Assert.assertEquals(FluidAmount.BUCKET, from.getInvFluid(0).amount());
+    }
+
+    /** Only accepts a single bucket at a time, like a bucket item. */
+    static final class BucketOnlyInsertable implements FluidInsertable {
+        final SimpleFixedFluidInv inv;
+
+        BucketOnlyInsertable(SimpleFixedFluidInv inv) {
+            this.inv = inv;
+        }
+
+        @Override
+        public FluidVolume attemptInsertion(FluidVolume fluid, Simulation simulation) {
+            if (fluid.amount().isLessThan(FluidAmount.BUCKET)) {
+                return fluid;
+            }
+            FluidVolume rest = fluid.copy();
+            FluidVolume bucket = rest.split(FluidAmount.BUCKET);
+            if (!inv.insertFluid(0, bucket.copy(), Simulation.SIMULATE).isEmpty()) {
+                return fluid;
+            }
+            inv.insertFluid(0, bucket, simulation);
+            return rest;
+        }
+    }
+}
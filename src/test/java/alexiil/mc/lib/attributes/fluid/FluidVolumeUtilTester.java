@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.impl.SimpleFixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+public class FluidVolumeUtilTester extends VanillaSetupBaseTester {
+
+    @Test
+    public void testMovePartial() {
+        SimpleFixedFluidInv from = new SimpleFixedFluidInv(1, FluidAmount.BUCKET);
+        SimpleFixedFluidInv to = new SimpleFixedFluidInv(1, FluidAmount.BUCKET);
+        from.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.BUCKET), Simulation.ACTION);
+        to.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.of(1, 4)), Simulation.ACTION);
+
+        Assert.assertTrue(from.beginExtraction(FluidKeys.LAVA.exactFilter, FluidAmount.BUCKET).allowsPartialCommit());
+        FluidVolume moved = FluidVolumeUtil.move(from, to);
+        Assert.assertEquals(FluidAmount.of(3, 4), moved.amount());
+        Assert.assertEquals(FluidAmount.of(1, 4), from.getInvFluid(0).amount());
+        Assert.assertEquals(FluidAmount.BUCKET, to.getInvFluid(0).amount());
+    }
+
+    @Test
+    public void testMoveFromWholeTankInv() {
+        WholeTankFluidInv from = new WholeTankFluidInv(1, FluidAmount.BUCKET);
+        SimpleFixedFluidInv to = new SimpleFixedFluidInv(1, FluidAmount.BUCKET);
+        from.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.BUCKET), Simulation.ACTION);
+        to.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.of(1, 2)), Simulation.ACTION);
+
+        // Subclasses that restrict extraction opt out of partial commits
+        Assert.assertFalse(from.beginExtraction(FluidKeys.LAVA.exactFilter, FluidAmount.BUCKET).allowsPartialCommit());
+
+        // Only half of the tank fits, which the source won't give, so nothing moves (and nothing throws)
+        Assert.assertTrue(FluidVolumeUtil.move(from, to, Simulation.SIMULATE).isEmpty());
+        Assert.assertTrue(FluidVolumeUtil.move(from, to).isEmpty());
+        Assert.assertEquals(FluidAmount.BUCKET, from.getInvFluid(0).amount());
+        Assert.assertEquals(FluidAmount.of(1, 2), to.getInvFluid(0).amount());
+
+        // But the whole tank can still be moved
+        to.setInvFluid(0, FluidVolumeUtil.EMPTY, Simulation.ACTION);
+        FluidVolume moved = FluidVolumeUtil.move(from, to);
+        Assert.assertEquals(FluidAmount.BUCKET, moved.amount());
+        Assert.assertTrue(from.getInvFluid(0).isEmpty());
+        Assert.assertEquals(FluidAmount.BUCKET, to.getInvFluid(0).amount());
+    }
+
+    /** A tank that can only be drained completely. */
+    static final class WholeTankFluidInv extends SimpleFixedFluidInv {
+        WholeTankFluidInv(int invSize, FluidAmount tankCapacity) {
+            super(invSize, tankCapacity);
+        }
+
+        @Override
+        public FluidVolume extractFluid(
+            int tank, FluidFilter filter, FluidVolume mergeWith, FluidAmount maxAmount, Simulation simulation
+        ) {
+            if (maxAmount.isLessThan(getInvFluid(tank).amount())) {
+                return mergeWith == null ? FluidVolumeUtil.EMPTY : mergeWith;
+            }
+            return super.extractFluid(tank, filter, mergeWith, maxAmount, simulation);
+        }
+
+        @Override
+        public boolean allowsPartialExtraction() {
+            return false;
+        }
+    }
+}
@@ -9,6 +9,11 @@ package alexiil.mc.lib.attributes.fluid.amount;
 
 import java.math.RoundingMode;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import net.minecraft.nbt.NbtElement;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -41,6 +46,62 @@ public class FluidAmountTester extends VanillaSetupBaseTester {
 
         Assert.assertEquals(FluidAmount.of(1, 2), FluidAmount.of(1, -1, 2));
         Assert.assertEquals(FluidAmount.of(-4, -1, 2), FluidAmount.of(-5, 1, 2));
+        Assert.assertEquals(FluidAmount.of(-1, 2), FluidAmount.of(2, -5, 2));
+        Assert.assertEquals(FluidAmount.of(1, 2), FluidAmount.of(-2, 5, 2));
+    }
+
+    @Test
+    public void testSplitRatio() {
+        FluidAmount[] thirds = { FluidAmount.ONE, FluidAmount.ONE, FluidAmount.ONE };
+        FluidAmount third = FluidAmount.of(1, 3);
+        Assert.assertArrayEquals(new FluidAmount[] { third, third, third }, FluidAmount.ONE.splitRatio(thirds));
+
+        FluidAmount[] ratios = { FluidAmount.ofWhole(2), FluidAmount.ZERO, FluidAmount.ONE };
+        Assert.assertArrayEquals(
+            new FluidAmount[] { FluidAmount.of(2, 3), FluidAmount.ZERO, FluidAmount.of(1, 3) },
+            FluidAmount.ONE.splitRatio(ratios)
+        );
+
+        // Thirds can't be represented in halves, so the biggest remainder gets the extra
+        FluidAmount[] ratios2 = { FluidAmount.ONE, FluidAmount.ofWhole(2) };
+        Assert.assertArrayEquals(
+            new FluidAmount[] { FluidAmount.of(3, 2), FluidAmount.of(7, 2) },
+            FluidAmount.ofWhole(5).splitRatio(ratios2, 2)
+        );
+        Assert.assertArrayEquals(
+            new FluidAmount[] { FluidAmount.of(-3, 2), FluidAmount.of(-7, 2) },
+            FluidAmount.ofWhole(-5).splitRatio(ratios2, 2)
+        );
+    }
+
+    @Test
+    public void testCompactEncoding() {
+        FluidAmount[] amounts = { FluidAmount.ZERO, FluidAmount.ONE, FluidAmount.NEGATIVE_ONE, FluidAmount.BOTTLE,
+            FluidAmount.of(-3, -1, 81000), FluidAmount.MAX_BUCKETS, FluidAmount.MIN_BUCKETS,
+            FluidAmount.ABSOLUTE_MAXIMUM };
+
+        ByteBuf buffer = Unpooled.buffer();
+        FluidAmount.ONE.toCompactBuffer(buffer);
+        Assert.assertEquals(2, buffer.readableBytes());
+        buffer.clear();
+
+        for (FluidAmount amount : amounts) {
+            amount.toCompactBuffer(buffer);
+        }
+        for (FluidAmount amount : amounts) {
+            Assert.assertEquals(amount, FluidAmount.fromCompactBuffer(buffer));
+            Assert.assertEquals(amount, FluidAmount.fromNbt(amount.toCompactNbt()));
+            Assert.assertEquals(amount, FluidAmount.fromNbt((NbtElement) amount.toNbt()));
+        }
+    }
+
+    @Test
+    public void testInterning() {
+        Assert.assertSame(FluidAmount.ZERO, FluidAmount.of(0, 5));
+        Assert.assertSame(FluidAmount.BUCKET, FluidAmount.of(1000, 1000));
+        Assert.assertSame(FluidAmount.BOTTLE, FluidAmount.of(27000, 81000));
+        Assert.assertSame(FluidAmount.BOTTLE, FluidAmount.of(540, 1620));
+        Assert.assertSame(FluidAmount.of(1, 1000), FluidAmount.of(81, 81000));
     }
 
     @Test
@@ -48,6 +109,74 @@ public class FluidAmountTester extends VanillaSetupBaseTester {
         FluidAmount half = FluidAmount.of(1, 2);
         Assert.assertEquals(FluidAmount.ONE, half.roundedAdd(half));
         Assert.assertEquals(FluidAmount.of(2, 1, 2), half.add(2));
+
+        // Same and dividing denominators
+        FluidAmount a = FluidAmount.of(250, 1000);
+        Assert.assertEquals(FluidAmount.of(1, 2), a.add(a));
+        Assert.assertEquals(FluidAmount.of(7, 12), a.add(FluidAmount.BOTTLE));
+        Assert.assertEquals(FluidAmount.of(1, 1, 4), a.add(FluidAmount.ONE));
+        Assert.assertEquals(FluidAmount.of(-3, 4), a.sub(FluidAmount.ONE));
+        Assert.assertEquals(FluidAmount.of(1, 4), FluidAmount.of(1, 3, 4).sub(FluidAmount.of(1, 2, 4)));
+    }
+
+    @Test
+    public void testBig() {
+        BigFluidAmount third = FluidAmount.of(1, 3).asBigInt();
+        Assert.assertTrue(third.fitsInLongInt());
+        Assert.assertEquals(BigFluidAmount.ONE, third.add(third).add(third));
+        Assert.assertEquals(FluidAmount.of(1, 9), third.mul(third).asLongIntExact());
+
+        // Adding a whole number to a negative fraction has to move the sign across
+        BigFluidAmount negHalf = FluidAmount.of(-1, 2).asBigInt();
+        Assert.assertEquals(FluidAmount.of(1, 2).asBigInt(), negHalf.add(1));
+        Assert.assertEquals(FluidAmount.of(1, 2), negHalf.add(1).asLongIntExact());
+        Assert.assertEquals(FluidAmount.of(1, 1, 2), negHalf.add(2).asLongIntExact());
+        Assert.assertEquals(FluidAmount.of(-1, 2).asBigInt(), FluidAmount.of(1, 2).asBigInt().sub(1));
+        Assert.assertEquals(FluidAmount.of(-1, -1, 2), FluidAmount.of(1, 2).asBigInt().sub(2).asLongIntExact());
+        Assert.assertEquals(FluidAmount.of(3, 2).asBigInt(), FluidAmount.of(1, 1, 2).asBigInt().add(0));
+
+        // Too big to fit, and then back down again
+        BigFluidAmount big = FluidAmount.MAX_BUCKETS.bigAdd(FluidAmount.of(Long.MAX_VALUE - 1, 1, 2));
+        Assert.assertFalse(big.fitsInLongInt());
+        Assert.assertEquals(FluidAmount.MAX_BUCKETS, big.asLongIntSaturated());
+        Assert.assertTrue(big.sub(FluidAmount.MAX_BUCKETS).fitsInLongInt());
+        Assert.assertEquals(FluidAmount.of(Long.MAX_VALUE - 1, 1, 2), big.sub(FluidAmount.MAX_BUCKETS).asLongIntExact());
+        Assert.assertEquals(big, BigFluidAmount.of(big.whole(), big.numerator(), big.denominator()));
+
+        FluidAmount a = FluidAmount.of(Long.MAX_VALUE - 2, Long.MAX_VALUE);
+        FluidAmount b = FluidAmount.of(Long.MAX_VALUE - 3, Long.MAX_VALUE - 1);
+        Assert.assertTrue(a.isGreaterThan(b));
+        Assert.assertTrue(b.isLessThan(a));
+        Assert.assertTrue(a.asBigInt().isGreaterThan(b.asBigInt()));
+    }
+
+    @Test
+    public void testAccumulator() {
+        FluidAmount[] amounts = { //
+            FluidAmount.of(1, 3), FluidAmount.BOTTLE, FluidAmount.of(-5, 7, 1000), FluidAmount.of(81, 81000), //
+            FluidAmount.ONE, FluidAmount.of(Long.MAX_VALUE / 2, 1, 3), FluidAmount.of(-2, 1, 6) //
+        };
+        FluidAmount total = FluidAmount.ZERO;
+        FluidAmountAccumulator acc = new FluidAmountAccumulator();
+        for (FluidAmount amount : amounts) {
+            total = total.roundedAdd(amount);
+            acc.add(amount);
+            Assert.assertEquals(total, acc.toAmount());
+            Assert.assertEquals(0, acc.compareTo(total));
+        }
+        for (FluidAmount amount : amounts) {
+            total = total.roundedSub(amount);
+            acc.sub(amount);
+            Assert.assertEquals(total, acc.toAmount());
+        }
+        Assert.assertTrue(acc.isZero());
+
+        acc.add(FluidAmount.MAX_BUCKETS).add(FluidAmount.ONE);
+        Assert.assertEquals(FluidAmount.MAX_BUCKETS, acc.toAmount());
+
+        acc.reset().add(40500, 81000).add(27000, 81000);
+        Assert.assertEquals(FluidAmount.of(5, 6), acc.toAmount());
+        Assert.assertSame(FluidAmount.ZERO, acc.reset().toAmount());
     }
 
     @Test
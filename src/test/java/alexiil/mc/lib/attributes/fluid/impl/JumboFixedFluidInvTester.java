@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.impl;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
+import alexiil.mc.lib.attributes.fluid.GroupedFluidInv;
+import alexiil.mc.lib.attributes.fluid.GroupedFluidInvView.FluidInvStatistic;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.filter.ConstantFluidFilter;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey.FluidKeyBuilder;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.fluid.volume.SimpleFluidKey;
+
+/** Checks that {@link JumboFixedFluidInv} behaves exactly like a naive search over a {@link SimpleFixedFluidInv}. */
+public class JumboFixedFluidInvTester extends VanillaSetupBaseTester {
+
+    private static final int TANKS = 9;
+    private static final FluidAmount CAPACITY = FluidAmount.ofWhole(2);
+
+    private static final FluidKey OIL = new SimpleFluidKey(
+        new FluidKeyBuilder(new Identifier("lba_test:jumbo_oil")).setName(Text.literal("Oil"))
+    );
+
+    static {
+        OIL.register();
+    }
+
+    @Test
+    public void testAgainstSimple() {
+        FluidKey[] fluids = { FluidKeys.LAVA, FluidKeys.WATER, OIL };
+        FluidFilter[] filters = { ConstantFluidFilter.ANYTHING, FluidKeys.LAVA.exactFilter,
+            FluidKeys.WATER.exactFilter, OIL.exactFilter, key -> key != FluidKeys.LAVA };
+
+        for (long seed = 0; seed < 20; seed++) {
+            Random rand = new Random(seed);
+            JumboFixedFluidInv jumbo = new JumboFixedFluidInv(TANKS, CAPACITY);
+            SimpleFixedFluidInv simple = new SimpleFixedFluidInv(TANKS, CAPACITY);
+
+            for (int step = 0; step < 500; step++) {
+                String desc = "seed " + seed + ", step " + step;
+                int op = rand.nextInt(10);
+                if (op < 4) {
+                    FluidVolume volume = fluids[rand.nextInt(fluids.length)].withAmount(randomAmount(rand));
+                    Simulation sim = rand.nextBoolean() ? Simulation.SIMULATE : Simulation.ACTION;
+                    FluidVolume expected = naiveInsert(simple, volume, sim);
+                    FluidVolume actual = jumbo.attemptInsertion(volume, sim);
+                    assertVolumeEquals(desc, expected, actual);
+                } else if (op < 7) {
+                    FluidFilter filter = filters[rand.nextInt(filters.length)];
+                    FluidAmount max = randomAmount(rand);
+                    Simulation sim = rand.nextBoolean() ? Simulation.SIMULATE : Simulation.ACTION;
+                    FluidVolume expected = simple.attemptExtraction(filter, max, sim);
+                    FluidVolume actual = jumbo.attemptExtraction(filter, max, sim);
+                    assertVolumeEquals(desc, expected, actual);
+                } else if (op < 8) {
+                    // Changing a single tank directly
+                    int tank = rand.nextInt(TANKS);
+                    FluidVolume to = rand.nextInt(3) == 0 ? FluidVolumeUtil.EMPTY
+                        : fluids[rand.nextInt(fluids.length)].withAmount(randomAmount(rand));
+                    Assert.assertEquals(
+                        desc, simple.setInvFluid(tank, to.copy(), Simulation.ACTION),
+                        jumbo.setInvFluid(tank, to.copy(), Simulation.ACTION)
+                    );
+                } else if (op < 9) {
+                    jumbo.fromTag(simple.toTag());
+                } else {
+                    simple.fromTag(jumbo.toTag());
+                }
+                assertSameState(desc, simple, jumbo, fluids, filters);
+            }
+        }
+    }
+
+    @Test
+    public void testInsertionOrder() {
+        JumboFixedFluidInv jumbo = new JumboFixedFluidInv(3, CAPACITY);
+        Assert.assertTrue(jumbo.setInvFluid(1, FluidKeys.LAVA.withAmount(FluidAmount.ONE), Simulation.ACTION));
+
+        // Tanks that already contain the fluid are filled before any earlier empty tanks
+        FluidVolume excess = jumbo.attemptInsertion(FluidKeys.LAVA.withAmount(FluidAmount.of(3, 2)), Simulation.ACTION);
+        Assert.assertTrue(excess.isEmpty());
+        Assert.assertEquals(FluidAmount.ofWhole(2), jumbo.getInvFluid(1).amount());
+        Assert.assertEquals(FluidAmount.of(1, 2), jumbo.getInvFluid(0).amount());
+        Assert.assertTrue(jumbo.getInvFluid(2).isEmpty());
+    }
+
+    /** Inserts into every tank that already contains the fluid first, and then into the empty ones, searching every
+     * tank each time. */
+    private static FluidVolume naiveInsert(SimpleFixedFluidInv inv, FluidVolume fluid, Simulation simulation) {
+        fluid = fluid.copy();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int t = 0; t < inv.getTankCount(); t++) {
+                FluidVolume current = inv.getInvFluid(t);
+                boolean matches = pass == 0 ? current.fluidKey == fluid.fluidKey : current.isEmpty();
+                if (!matches) {
+                    continue;
+                }
+                fluid = inv.insertFluid(t, fluid, simulation);
+                if (fluid.isEmpty()) {
+                    return FluidVolumeUtil.EMPTY;
+                }
+            }
+        }
+        return fluid;
+    }
+
+    private static FluidAmount randomAmount(Random rand) {
+        // A mix of denominators, so the index totals have to be reduced properly
+        long denominator = rand.nextBoolean() ? 4 : 3;
+        return FluidAmount.of(1 + rand.nextInt(12), denominator);
+    }
+
+    private static void assertSameState(
+        String desc, SimpleFixedFluidInv simple, JumboFixedFluidInv jumbo, FluidKey[] fluids, FluidFilter[] filters
+    ) {
+        for (int t = 0; t < TANKS; t++) {
+            assertVolumeEquals(desc + ", tank " + t, simple.getInvFluid(t), jumbo.getInvFluid(t));
+        }
+        GroupedFluidInv expected = simple.getGroupedInv();
+        GroupedFluidInv actual = jumbo.getGroupedInv();
+        Assert.assertEquals(desc, expected.getStoredFluids(), actual.getStoredFluids());
+        for (FluidKey fluid : fluids) {
+            Assert.assertEquals(desc + ", " + fluid, expected.getAmount_F(fluid), actual.getAmount_F(fluid));
+        }
+        for (FluidFilter filter : filters) {
+            FluidInvStatistic a = expected.getStatistics(filter);
+            FluidInvStatistic b = actual.getStatistics(filter);
+            Assert.assertEquals(desc, a.amount_F, b.amount_F);
+            Assert.assertEquals(desc, a.spaceAddable_F, b.spaceAddable_F);
+            Assert.assertEquals(desc, a.spaceTotal_F, b.spaceTotal_F);
+        }
+    }
+
+    private static void assertVolumeEquals(String desc, FluidVolume expected, FluidVolume actual) {
+        if (expected.isEmpty()) {
+            Assert.assertTrue(desc + ": expected empty, but got " + actual, actual.isEmpty());
+            return;
+        }
+        Assert.assertEquals(desc, expected.fluidKey, actual.fluidKey);
+        Assert.assertEquals(desc, expected.amount(), actual.amount());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.nbt.NbtCompound;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+public class PrimitiveFixedFluidInvTester extends VanillaSetupBaseTester {
+
+    /** 1/7 of a bucket, which isn't a multiple of 1/81000. */
+    private static final FluidAmount SEVENTH = FluidAmount.of(1, 7);
+
+    /** {@link #SEVENTH}, rounded down to 1/81000. */
+    private static final long SEVENTH_UNITS = 81000 / 7;
+
+    @Test
+    public void testInsertInexact() {
+        PrimitiveFixedFluidInv inv = new PrimitiveFixedFluidInv(2, FluidAmount.BUCKET);
+
+        FluidVolume simulated = inv.insertFluid(0, FluidKeys.LAVA.withAmount(SEVENTH), Simulation.SIMULATE);
+        Assert.assertEquals(0, inv.getTankAmount(0));
+        Assert.assertSame(FluidKeys.EMPTY, inv.getTankKey(0));
+
+        FluidVolume excess = inv.insertFluid(0, FluidKeys.LAVA.withAmount(SEVENTH), Simulation.ACTION);
+        Assert.assertEquals(SEVENTH_UNITS, inv.getTankAmount(0));
+        Assert.assertSame(FluidKeys.LAVA, inv.getTankKey(0));
+
+        // The remainder that can't be stored is handed back, rather than being lost
+        FluidAmount expected = SEVENTH.sub(FluidAmount.of(SEVENTH_UNITS, 81000));
+        Assert.assertEquals(FluidKeys.LAVA, excess.fluidKey);
+        Assert.assertEquals(expected, excess.amount());
+        Assert.assertEquals(expected, simulated.amount());
+        Assert.assertEquals(SEVENTH, inv.getInvFluid(0).amount().add(excess.amount()));
+
+        // Exact amounts can't be set if they don't fit into the denominator
+        Assert.assertFalse(inv.setInvFluid(1, FluidKeys.LAVA.withAmount(SEVENTH), Simulation.ACTION));
+        Assert.assertTrue(inv.getInvFluid(1).isEmpty());
+        Assert.assertTrue(inv.setInvFluid(1, FluidKeys.LAVA.withAmount(FluidAmount.BOTTLE), Simulation.ACTION));
+        Assert.assertEquals(FluidAmount.BOTTLE, inv.getInvFluid(1).amount());
+    }
+
+    @Test
+    public void testExtractInexact() {
+        PrimitiveFixedFluidInv inv = new PrimitiveFixedFluidInv(1, FluidAmount.BUCKET);
+        Assert.assertTrue(inv.setInvFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.BUCKET), Simulation.ACTION));
+
+        FluidVolume simulated = inv.extractFluid(0, null, FluidVolumeUtil.EMPTY, SEVENTH, Simulation.SIMULATE);
+        Assert.assertEquals(81000, inv.getTankAmount(0));
+
+        // Extraction never takes more than was asked for
+        FluidVolume extracted = inv.extractFluid(0, null, FluidVolumeUtil.EMPTY, SEVENTH, Simulation.ACTION);
+        Assert.assertEquals(FluidAmount.of(SEVENTH_UNITS, 81000), extracted.amount());
+        Assert.assertEquals(extracted.amount(), simulated.amount());
+        Assert.assertTrue(extracted.amount().isLessThan(SEVENTH));
+        Assert.assertEquals(81000 - SEVENTH_UNITS, inv.getTankAmount(0));
+
+        // Merging an inexact amount keeps the amount already in the volume exactly
+        FluidVolume merged = inv.extractFluid(0, null, FluidKeys.LAVA.withAmount(SEVENTH), SEVENTH, Simulation.ACTION);
+        Assert.assertEquals(SEVENTH.add(FluidAmount.of(SEVENTH_UNITS, 81000)), merged.amount());
+
+        // Less than a single unit can't be extracted
+        FluidVolume tiny
+            = inv.extractFluid(0, null, FluidVolumeUtil.EMPTY, FluidAmount.of(1, 100000), Simulation.ACTION);
+        Assert.assertTrue(tiny.isEmpty());
+        Assert.assertEquals(81000 - 2 * SEVENTH_UNITS, inv.getTankAmount(0));
+
+        FluidVolume rest = inv.extractFluid(0, null, FluidVolumeUtil.EMPTY, FluidAmount.BUCKET, Simulation.ACTION);
+        Assert.assertEquals(FluidAmount.of(81000 - 2 * SEVENTH_UNITS, 81000), rest.amount());
+        Assert.assertEquals(0, inv.getTankAmount(0));
+        Assert.assertSame(FluidKeys.EMPTY, inv.getTankKey(0));
+    }
+
+    @Test
+    public void testNbtRoundTrip() {
+        PrimitiveFixedFluidInv inv = new PrimitiveFixedFluidInv(3, FluidAmount.ofWhole(4));
+        inv.insertFluid(0, FluidKeys.LAVA.withAmount(FluidAmount.of(12345, 81000)), Simulation.ACTION);
+        inv.insertFluid(2, FluidKeys.WATER.withAmount(FluidAmount.of(3, 1, 2)), Simulation.ACTION);
+        NbtCompound tag = inv.toTag();
+
+        PrimitiveFixedFluidInv read = new PrimitiveFixedFluidInv(3, FluidAmount.ofWhole(4));
+        read.insertFluid(1, FluidKeys.LAVA.withAmount(FluidAmount.BUCKET), Simulation.ACTION);
+        read.fromTag(tag);
+        for (int t = 0; t < 3; t++) {
+            Assert.assertSame(inv.getTankKey(t), read.getTankKey(t));
+            Assert.assertEquals(inv.getTankAmount(t), read.getTankAmount(t));
+            Assert.assertEquals(inv.getInvFluid(t).amount(), read.getInvFluid(t).amount());
+        }
+
+        // The format is the same as SimpleFixedFluidInv, so they can be swapped for each other
+        SimpleFixedFluidInv simple = new SimpleFixedFluidInv(3, FluidAmount.ofWhole(4));
+        simple.fromTag(tag);
+        for (int t = 0; t < 3; t++) {
+            Assert.assertEquals(inv.getInvFluid(t).fluidKey, simple.getInvFluid(t).fluidKey);
+            Assert.assertEquals(inv.getInvFluid(t).amount(), simple.getInvFluid(t).amount());
+        }
+        PrimitiveFixedFluidInv fromSimple = new PrimitiveFixedFluidInv(3, FluidAmount.ofWhole(4));
+        fromSimple.fromTag(simple.toTag());
+        for (int t = 0; t < 3; t++) {
+            Assert.assertSame(inv.getTankKey(t), fromSimple.getTankKey(t));
+            Assert.assertEquals(inv.getTankAmount(t), fromSimple.getTankAmount(t));
+        }
+
+        // Tanks missing from the tag are emptied
+        PrimitiveFixedFluidInv bigger = new PrimitiveFixedFluidInv(4, FluidAmount.ofWhole(4));
+        bigger.insertFluid(3, FluidKeys.LAVA.withAmount(FluidAmount.BUCKET), Simulation.ACTION);
+        bigger.fromTag(tag);
+        Assert.assertEquals(12345, bigger.getTankAmount(0));
+        Assert.assertTrue(bigger.getInvFluid(3).isEmpty());
+    }
+}
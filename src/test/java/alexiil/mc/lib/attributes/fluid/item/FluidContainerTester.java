@@ -7,15 +7,19 @@
  */
 package alexiil.mc.lib.attributes.fluid.item;
 
+import java.util.Set;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
 import net.minecraft.potion.Potions;
 
 import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
 import alexiil.mc.lib.attributes.fluid.FluidAttributes;
+import alexiil.mc.lib.attributes.fluid.FluidContainerRegistry;
 import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
@@ -32,4 +36,37 @@ public class FluidContainerTester extends VanillaSetupBaseTester {
         Assert.assertEquals(FluidVolumeUtil.EMPTY, excess);
         Assert.assertEquals(Items.POTION, ref.get().getItem());
     }
+
+    @Test
+    public void testLookups() {
+        Set<Item> water = FluidContainerRegistry.getFullContainersFor(FluidKeys.WATER);
+        Assert.assertTrue(water.contains(Items.WATER_BUCKET));
+        Assert.assertFalse(water.contains(Items.LAVA_BUCKET));
+        Assert.assertSame(water, FluidContainerRegistry.getFullContainersFor(FluidKeys.WATER));
+        try {
+            water.add(Items.STONE);
+            Assert.fail("The returned set should be immutable!");
+        } catch (UnsupportedOperationException expected) {
+            // Expected
+        }
+
+        Assert.assertTrue(FluidContainerRegistry.getFullContainersFor(FluidKeys.EMPTY).isEmpty());
+
+        Set<Item> empty = FluidContainerRegistry.getEmptyContainers();
+        Assert.assertTrue(empty.contains(Items.BUCKET));
+        Assert.assertTrue(empty.contains(Items.GLASS_BOTTLE));
+        Assert.assertTrue(FluidContainerRegistry.getFullContainers().contains(Items.LAVA_BUCKET));
+    }
+
+    @Test
+    public void testFillingRepeatedly() {
+        // The second fill uses the cached handler
+        for (int i = 0; i < 2; i++) {
+            Ref<ItemStack> ref = new Ref<>(new ItemStack(Items.BUCKET));
+            FluidVolume toInsert = FluidKeys.LAVA.withAmount(FluidAmount.BUCKET);
+            FluidVolume excess = FluidAttributes.INSERTABLE.get(ref).insert(toInsert);
+            Assert.assertEquals(FluidVolumeUtil.EMPTY, excess);
+            Assert.assertEquals(Items.LAVA_BUCKET, ref.get().getItem());
+        }
+    }
 }
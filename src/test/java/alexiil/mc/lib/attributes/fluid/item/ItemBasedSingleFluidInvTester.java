@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.item;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.misc.LimitedConsumer;
+import alexiil.mc.lib.attributes.misc.Ref;
+
+public class ItemBasedSingleFluidInvTester extends VanillaSetupBaseTester {
+
+    @Test
+    public void testInfoCache() {
+        Ref<ItemStack> ref = new Ref<>(new ItemStack(Items.STICK));
+        TagTank tank = new TagTank(ref);
+
+        // A simulation followed by the action only reads the stack once
+        FluidVolume lava = FluidKeys.LAVA.withAmount(FluidAmount.of(1, 2));
+        Assert.assertTrue(tank.attemptInsertion(lava, Simulation.SIMULATE).isEmpty());
+        Assert.assertNull(ref.get().getNbt());
+        Assert.assertTrue(tank.attemptInsertion(lava, Simulation.ACTION).isEmpty());
+        Assert.assertEquals(1, tank.infoReads);
+        Assert.assertEquals(FluidAmount.of(1, 2), TagTank.read(ref.get()).amount());
+
+        // The written stack is new, so it has to be read again
+        Assert.assertEquals(FluidAmount.of(1, 2), tank.getAmount_F(FluidKeys.LAVA));
+        Assert.assertEquals(2, tank.infoReads);
+        Assert.assertEquals(FluidAmount.of(1, 2), tank.getAmount_F(FluidKeys.LAVA));
+        Assert.assertEquals(2, tank.infoReads);
+
+        FluidVolume simulated
+            = tank.attemptExtraction(FluidKeys.LAVA.exactFilter, FluidAmount.of(1, 4), Simulation.SIMULATE);
+        Assert.assertEquals(FluidAmount.of(1, 4), simulated.amount());
+        Assert.assertEquals(FluidAmount.of(1, 2), TagTank.read(ref.get()).amount());
+        FluidVolume extracted = tank.attemptAnyExtraction(FluidAmount.of(1, 4), Simulation.ACTION);
+        Assert.assertEquals(FluidAmount.of(1, 4), extracted.amount());
+        Assert.assertEquals(2, tank.infoReads);
+
+        Assert.assertEquals(FluidAmount.of(1, 4), tank.getAmount_F(FluidKeys.LAVA));
+        Assert.assertEquals(3, tank.infoReads);
+
+        // Changing the stack from outside is noticed as well
+        ref.set(new ItemStack(Items.STICK));
+        Assert.assertEquals(FluidAmount.ZERO, tank.getAmount_F(FluidKeys.LAVA));
+        Assert.assertEquals(4, tank.infoReads);
+
+        // So is modifying the tag in-place
+        ref.get().getOrCreateNbt().put("fluid", FluidKeys.WATER.withAmount(FluidAmount.BUCKET).toTag());
+        Assert.assertEquals(FluidAmount.BUCKET, tank.getAmount_F(FluidKeys.WATER));
+        Assert.assertEquals(5, tank.infoReads);
+        ref.get().getNbt().getCompound("fluid").put("AmountF", FluidAmount.of(1, 3).toCompactNbt());
+        Assert.assertEquals(FluidAmount.of(1, 3), tank.getAmount_F(FluidKeys.WATER));
+        Assert.assertEquals(6, tank.infoReads);
+        Assert.assertEquals(FluidAmount.of(1, 3), tank.getAmount_F(FluidKeys.WATER));
+        Assert.assertEquals(6, tank.infoReads);
+    }
+
+    /** Stores up to a bucket of any fluid in the tag of any stick. */
+    static final class TagTank extends ItemBasedSingleFluidInv {
+        int infoReads;
+
+        TagTank(Ref<ItemStack> ref) {
+            super(ref, LimitedConsumer.rejecting());
+        }
+
+        static FluidVolume read(ItemStack stack) {
+            NbtCompound tag = stack.getNbt();
+            return tag == null ? FluidVolume.fromTag(new NbtCompound()) : FluidVolume.fromTag(tag.getCompound("fluid"));
+        }
+
+        @Override
+        protected boolean isInvalid(ItemStack stack) {
+            return stack.getItem() != Items.STICK;
+        }
+
+        @Override
+        protected HeldFluidInfo getInfo(ItemStack stack) {
+            infoReads++;
+            return new HeldFluidInfo(read(stack), FluidAmount.BUCKET);
+        }
+
+        @Override
+        protected ItemStack writeToStack(ItemStack stack, FluidVolume fluid) {
+            stack.getOrCreateNbt().put("fluid", fluid.toTag());
+            return stack;
+        }
+    }
+}
@@ -7,12 +7,22 @@
  */
 package alexiil.mc.lib.attributes.fluid.render;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import net.minecraft.util.math.Direction;
+
+import alexiil.mc.lib.attributes.fluid.render.FluidVolumeRenderer.ComponentRenderFaces;
+
 public class FluidFaceSplitterTester {
 
+    private static final double EPSILON = 1e-9;
+
     @Test
     public void printFace() {
         double l = 0.25;
@@ -26,4 +36,194 @@ public class FluidFaceSplitterTester {
             System.out.println(f);
         }
     }
+
+    @Test
+    public void testNoSplitFastPath() {
+        List<FluidRenderFace> faces = new ArrayList<>();
+        faces.add(FluidRenderFace.createFlatFaceZ(0.25, 0.25, 0, 0.75, 0.75, 0, 1, true));
+        faces.add(FluidRenderFace.createFlatFaceZ(0, 0, 0, 1, 1, 0, 1, false));
+        faces.add(FluidRenderFace.createFlatFaceY(1, 0, 1, 2, 1, 2, 1, true));
+        faces.add(FluidRenderFace.createFlatFaceX(0, 2.5, 0.125, 1, 3, 0.875, 1, false));
+        faces.add(FluidRenderFace.createFlatFaceY(0, 0.5, 0, 0.5, 0.5, 0.5, 2, true, true));
+
+        for (FluidRenderFace face : faces) {
+            ComponentRenderFaces fast = FluidFaceSplitter.splitFacesComponent(Collections.singletonList(face), true);
+            ComponentRenderFaces full = FluidFaceSplitter.splitFacesComponent(Collections.singletonList(face), false);
+
+            Assert.assertEquals(1, fast.split.size());
+            Assert.assertSame(face, fast.splitExceptTextures.get(0));
+            assertSameSurface(face, full, fast);
+        }
+    }
+
+    @Test
+    public void testSplitSameSurface() {
+        List<FluidRenderFace> faces = new ArrayList<>();
+        faces.add(FluidRenderFace.createFlatFaceZ(0.25, 0.25, 0, 1.75, 0.75, 0, 1, true));
+        faces.add(FluidRenderFace.createFlatFaceY(0, 0, 0, 3, 1, 2.5, 1, false));
+        faces.add(FluidRenderFace.createFlatFaceX(0, 0.5, 0.5, 1, 2.5, 2.5, 2, true));
+        faces.add(FluidRenderFace.createFlatFaceZ(-0.5, 0, 1, 0.5, 1, 1, 1, true, true));
+
+        for (FluidRenderFace face : faces) {
+            ComponentRenderFaces fast = FluidFaceSplitter.splitFacesComponent(Collections.singletonList(face), true);
+            ComponentRenderFaces full = FluidFaceSplitter.splitFacesComponent(Collections.singletonList(face), false);
+
+            // The pieces from the first split can still use the fast path for the other axis
+            Assert.assertTrue(fast.split.size() > 1);
+            Assert.assertTrue(fast.split.size() <= full.split.size());
+            assertSameSurface(face, full, fast);
+        }
+
+        // And splitting a list must be the same as splitting each face separately
+        ComponentRenderFaces all = FluidFaceSplitter.splitFacesComponent(faces, true);
+        int index = 0;
+        for (FluidRenderFace face : faces) {
+            for (FluidRenderFace split : FluidFaceSplitter.splitFaces(Collections.singletonList(face))) {
+                assertFaceEquals(split, all.split.get(index++));
+            }
+        }
+        Assert.assertEquals(index, all.split.size());
+    }
+
+    @Test
+    public void testBufferSplit() {
+        List<FluidRenderFace> faces = new ArrayList<>();
+        FluidRenderFaceBuffer buffer = new FluidRenderFaceBuffer(1);
+        for (Direction dir : Direction.values()) {
+            faces.add(FluidRenderFace.createFlatFace(0.25, 0.5, 0, 1.75, 1, 2.5, 1, dir, dir == Direction.UP));
+            buffer.addFlatFace(0.25, 0.5, 0, 1.75, 1, 2.5, 1, dir, dir == Direction.UP);
+        }
+        FluidRenderFace.appendCuboid(0, 0, 0, 0.5, 0.5, 0.5, 2, EnumSet.allOf(Direction.class), faces);
+        buffer.appendCuboid(0, 0, 0, 0.5, 0.5, 0.5, 2, EnumSet.allOf(Direction.class));
+
+        Assert.assertEquals(faces.size(), buffer.size());
+        for (int i = 0; i < faces.size(); i++) {
+            assertFaceEquals(faces.get(i), buffer.get(i), 1e-6);
+        }
+
+        ComponentRenderFaces list = FluidFaceSplitter.splitFacesComponent(faces);
+        FluidRenderFaceBuffer split = new FluidRenderFaceBuffer();
+        FluidRenderFaceBuffer splitTex = new FluidRenderFaceBuffer();
+        buffer.splitComponent(split, splitTex);
+
+        Assert.assertEquals(list.split.size(), split.size());
+        Assert.assertEquals(list.splitExceptTextures.size(), splitTex.size());
+        for (int i = 0; i < split.size(); i++) {
+            assertFaceEquals(list.split.get(i), split.get(i), 1e-6);
+            assertFaceEquals(list.splitExceptTextures.get(i), splitTex.get(i), 1e-6);
+        }
+
+        // Clearing must allow the buffer to be re-used
+        split.clear();
+        buffer.splitComponent(split, null);
+        Assert.assertEquals(list.split.size(), split.size());
+    }
+
+    /** Checks that both splits are valid, and cover the same area of the original face with the same texture. */
+    private static void assertSameSurface(FluidRenderFace original, ComponentRenderFaces a, ComponentRenderFaces b) {
+        assertValidSplit(original, a);
+        assertValidSplit(original, b);
+        Assert.assertEquals(area(a.split), area(b.split), EPSILON);
+        Assert.assertEquals(area(Collections.singletonList(original)), area(b.split), EPSILON);
+    }
+
+    private static void assertValidSplit(FluidRenderFace original, ComponentRenderFaces faces) {
+        Assert.assertEquals(faces.split.size(), faces.splitExceptTextures.size());
+        for (int i = 0; i < faces.split.size(); i++) {
+            FluidRenderFace split = faces.split.get(i);
+            FluidRenderFace tex = faces.splitExceptTextures.get(i);
+
+            double du = tex.u0 - split.u0;
+            double dv = tex.v0 - split.v0;
+            Assert.assertEquals(Math.rint(du), du, EPSILON);
+            Assert.assertEquals(Math.rint(dv), dv, EPSILON);
+
+            for (int v = 0; v < 4; v++) {
+                double[] s = vertex(split, v);
+                double[] t = vertex(tex, v);
+                Assert.assertArrayEquals(new double[] { s[0], s[1], s[2] }, new double[] { t[0], t[1], t[2] }, 0);
+
+                // Every split face must only use a single copy of the texture...
+                Assert.assertTrue(s[3] >= -EPSILON && s[3] <= 1 + EPSILON);
+                Assert.assertTrue(s[4] >= -EPSILON && s[4] <= 1 + EPSILON);
+                Assert.assertEquals(du, t[3] - s[3], EPSILON);
+                Assert.assertEquals(dv, t[4] - s[4], EPSILON);
+
+                // ...and must map every position to the same texture co-ord as the original face
+                double[] expected = expectedUv(original, t[0], t[1], t[2]);
+                Assert.assertEquals(expected[0], t[3], EPSILON);
+                Assert.assertEquals(expected[1], t[4], EPSILON);
+            }
+        }
+    }
+
+    private static void assertFaceEquals(FluidRenderFace expected, FluidRenderFace actual) {
+        assertFaceEquals(expected, actual, 0);
+    }
+
+    private static void assertFaceEquals(FluidRenderFace expected, FluidRenderFace actual, double delta) {
+        for (int v = 0; v < 4; v++) {
+            Assert.assertArrayEquals(vertex(expected, v), vertex(actual, v), delta);
+        }
+        Assert.assertEquals(expected.light, actual.light);
+        Assert.assertEquals(expected.nx, actual.nx, delta);
+        Assert.assertEquals(expected.ny, actual.ny, delta);
+        Assert.assertEquals(expected.nz, actual.nz, delta);
+        Assert.assertEquals(expected.flowing, actual.flowing);
+    }
+
+    private static double[] vertex(FluidRenderFace f, int i) {
+        switch (i) {
+            case 0:
+                return new double[] { f.x0, f.y0, f.z0, f.u0, f.v0 };
+            case 1:
+                return new double[] { f.x1, f.y1, f.z1, f.u1, f.v1 };
+            case 2:
+                return new double[] { f.x2, f.y2, f.z2, f.u2, f.v2 };
+            default:
+                return new double[] { f.x3, f.y3, f.z3, f.u3, f.v3 };
+        }
+    }
+
+    /** @return The area of every face, assuming they are all planar. */
+    private static double area(List<FluidRenderFace> faces) {
+        double total = 0;
+        for (FluidRenderFace f : faces) {
+            double[] a = sub(vertex(f, 2), vertex(f, 0));
+            double[] b = sub(vertex(f, 3), vertex(f, 1));
+            double cx = a[1] * b[2] - a[2] * b[1];
+            double cy = a[2] * b[0] - a[0] * b[2];
+            double cz = a[0] * b[1] - a[1] * b[0];
+            total += Math.sqrt(cx * cx + cy * cy + cz * cz) / 2;
+        }
+        return total;
+    }
+
+    /** @return The {u, v} that the given (parallelogram) face maps the given position to. */
+    private static double[] expectedUv(FluidRenderFace f, double x, double y, double z) {
+        double[] o = vertex(f, 0);
+        double[] a = sub(vertex(f, 1), o);
+        double[] b = sub(vertex(f, 3), o);
+        double[] p = sub(new double[] { x, y, z, 0, 0 }, o);
+
+        // Solve p = s * a + t * b with the normal equations
+        double aa = dot(a, a), ab = dot(a, b), bb = dot(b, b);
+        double pa = dot(p, a), pb = dot(p, b);
+        double det = aa * bb - ab * ab;
+        double s = (pa * bb - pb * ab) / det;
+        double t = (pb * aa - pa * ab) / det;
+        return new double[] { o[3] + s * a[3] + t * b[3], o[4] + s * a[4] + t * b[4] };
+    }
+
+    private static double[] sub(double[] a, double[] b) {
+        double[] r = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            r[i] = a[i] - b[i];
+        }
+        return r;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.volume;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey.FluidKeyBuilder;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeyCollections.FluidKeyMap;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeyCollections.FluidKeySet;
+
+public class FluidKeyCollectionsTester extends VanillaSetupBaseTester {
+
+    private static FluidKey[] createKeys() {
+        FluidKey[] keys = new FluidKey[8];
+        keys[0] = FluidKeys.LAVA;
+        keys[1] = FluidKeys.WATER;
+        for (int i = 2; i < keys.length; i++) {
+            // Never registered, so these only get an id when they are first added
+            keys[i] = new SimpleFluidKey(
+                new FluidKeyBuilder(new Identifier("lba_test:collection_" + i)).setName(Text.literal("Test " + i))
+            );
+        }
+        return keys;
+    }
+
+    @Test
+    public void testRuntimeIds() {
+        FluidKey[] keys = createKeys();
+        Set<Integer> ids = new HashSet<>();
+        for (FluidKey key : keys) {
+            int id = key.getRuntimeId();
+            Assert.assertTrue(id >= 0);
+            Assert.assertTrue(id < FluidKey.getRuntimeIdCount());
+            Assert.assertEquals(id, key.getRuntimeId());
+            Assert.assertTrue("Duplicate id " + id, ids.add(id));
+        }
+    }
+
+    @Test
+    public void testGrownLength() {
+        Assert.assertEquals(1, FluidKeyCollections.grownLength(0, 0));
+        Assert.assertEquals(8, FluidKeyCollections.grownLength(0, 7));
+        Assert.assertEquals(16, FluidKeyCollections.grownLength(8, 8));
+        Assert.assertEquals(101, FluidKeyCollections.grownLength(8, 100));
+    }
+
+    @Test
+    public void testSet() {
+        FluidKey[] keys = createKeys();
+        FluidKeySet set = FluidKeyCollections.set();
+        Set<FluidKey> expected = new HashSet<>();
+        Random rand = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            FluidKey key = keys[rand.nextInt(keys.length)];
+            int op = rand.nextInt(5);
+            if (op < 2) {
+                Assert.assertEquals(expected.add(key), set.add(key));
+            } else if (op < 4) {
+                Assert.assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                // Removal through the iterator
+                Iterator<FluidKey> iter = set.iterator();
+                while (iter.hasNext()) {
+                    if (iter.next() == key) {
+                        iter.remove();
+                        expected.remove(key);
+                    }
+                }
+            }
+            assertSetEquals(expected, set);
+        }
+
+        FluidKeySet other = FluidKeyCollections.set();
+        other.add(keys[3]);
+        other.add(keys[6]);
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        set.add(keys[1]);
+        Assert.assertTrue(set.addAll(other));
+        Assert.assertFalse(set.addAll(other));
+        expected.clear();
+        expected.add(keys[1]);
+        expected.add(keys[3]);
+        expected.add(keys[6]);
+        assertSetEquals(expected, set);
+        Assert.assertFalse(set.contains("not a fluid key"));
+    }
+
+    @Test
+    public void testMap() {
+        FluidKey[] keys = createKeys();
+        FluidKeyMap<String> map = FluidKeyCollections.map();
+        Map<FluidKey, String> expected = new HashMap<>();
+        Random rand = new Random(1234);
+
+        for (int i = 0; i < 2000; i++) {
+            FluidKey key = keys[rand.nextInt(keys.length)];
+            int op = rand.nextInt(6);
+            if (op < 2) {
+                String value = rand.nextInt(4) == 0 ? null : "v" + i;
+                Assert.assertEquals(expected.put(key, value), map.put(key, value));
+            } else if (op < 4) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            } else if (op < 5) {
+                map.keySet().remove(key);
+                expected.remove(key);
+            } else {
+                Iterator<Map.Entry<FluidKey, String>> iter = map.entrySet().iterator();
+                while (iter.hasNext()) {
+                    Map.Entry<FluidKey, String> entry = iter.next();
+                    if (entry.getKey() == key) {
+                        iter.remove();
+                        expected.remove(key);
+                    } else {
+                        entry.setValue("e" + i);
+                        expected.put(entry.getKey(), "e" + i);
+                    }
+                }
+            }
+
+            Assert.assertEquals(expected.size(), map.size());
+            for (FluidKey k : keys) {
+                Assert.assertEquals(expected.containsKey(k), map.containsKey(k));
+                Assert.assertEquals(expected.get(k), map.get(k));
+            }
+            Assert.assertEquals(expected, map);
+            Assert.assertEquals(expected.keySet(), map.keySet());
+        }
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        for (FluidKey k : keys) {
+            Assert.assertNull(map.get(k));
+        }
+    }
+
+    private static void assertSetEquals(Set<FluidKey> expected, FluidKeySet actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected, actual);
+        int count = 0;
+        int lastId = -1;
+        for (FluidKey key : actual) {
+            Assert.assertTrue(expected.contains(key));
+            // Iteration is in id order
+            Assert.assertTrue(key.getRuntimeId() > lastId);
+            lastId = key.getRuntimeId();
+            count++;
+        }
+        Assert.assertEquals(expected.size(), count);
+    }
+}
@@ -19,6 +19,7 @@ import net.minecraft.text.LiteralTextContent;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
+import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey.FluidKeyBuilder;
@@ -61,6 +62,44 @@ public class FluidPropertyTester extends VanillaSetupBaseTester {
         }
     }
 
+    @Test
+    public void testCopyOnWriteProperties() {
+        FluidKey mana = new SimpleFluidKey(
+            new FluidKeyBuilder(new Identifier("lba_test:shared_mana"))//
+                .setName(Text.literal("Shared Mana"))//
+                .setUnit(FluidUnit.BOTTLE)//
+        );
+        mana.register();
+        mana.forceRegisterProperty(PurityProp.INSTANCE);
+
+        Purity pure = new Purity(1, 1, 0);
+        Purity impure = new Purity(0.2, 0.5, 0);
+
+        FluidVolume original = mana.withAmount(FluidAmount.BUCKET);
+        original.setProperty(PurityProp.INSTANCE, pure);
+
+        // Changing a copy mustn't change the original, and vice versa
+        FluidVolume copy = original.copy();
+        Assert.assertSame(pure, copy.getProperty(PurityProp.INSTANCE));
+        copy.setProperty(PurityProp.INSTANCE, impure);
+        Assert.assertSame(pure, original.getProperty(PurityProp.INSTANCE));
+        Assert.assertSame(impure, copy.getProperty(PurityProp.INSTANCE));
+
+        FluidVolume split = original.split(FluidAmount.BOTTLE);
+        original.setProperty(PurityProp.INSTANCE, Purity.NONE);
+        Assert.assertSame(pure, split.getProperty(PurityProp.INSTANCE));
+        Assert.assertSame(Purity.NONE, original.getProperty(PurityProp.INSTANCE));
+
+        // Merging a split back in shouldn't change anything
+        FluidVolume tank = mana.withAmount(FluidAmount.BUCKET);
+        tank.setProperty(PurityProp.INSTANCE, impure);
+        FluidVolume taken = tank.split(FluidAmount.BOTTLE);
+        Assert.assertTrue(tank.merge(taken, Simulation.ACTION));
+        Assert.assertSame(impure, tank.getProperty(PurityProp.INSTANCE));
+        Assert.assertEquals(FluidAmount.BUCKET, tank.getAmount_F());
+        Assert.assertSame(impure, taken.getProperty(PurityProp.INSTANCE));
+    }
+
     public static class PurityProp extends FluidProperty<Purity> {
 
         public static final PurityProp INSTANCE = new PurityProp();
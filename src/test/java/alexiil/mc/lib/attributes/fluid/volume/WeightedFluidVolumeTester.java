@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.volume;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount.FluidMergeRounding;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey.FluidKeyBuilder;
+
+public class WeightedFluidVolumeTester extends VanillaSetupBaseTester {
+
+    private static final int MAX_VALUES = 4;
+
+    private static final SourceKey KEY = new SourceKey();
+
+    static {
+        KEY.register();
+    }
+
+    @Test
+    public void testMergeIsBounded() {
+        SourceVolume tank = KEY.withAmount("source_0", FluidAmount.BUCKET);
+        for (int i = 1; i < 100; i++) {
+            FluidVolume added = KEY.withAmount("source_" + i, FluidAmount.of(1, 2 + i % 7));
+            Assert.assertNotNull(FluidVolume.merge(tank, added));
+            Assert.assertTrue(tank.getValues().size() <= MAX_VALUES);
+            assertWeightsSumToOne(tank);
+        }
+    }
+
+    @Test
+    public void testSmallestAreFolded() {
+        SourceVolume tank = KEY.withAmount("big", FluidAmount.ofWhole(8));
+        tank.addAmount("medium", FluidAmount.ofWhole(4));
+        tank.addAmount("small", FluidAmount.ofWhole(2));
+        tank.addAmount("tiny", FluidAmount.ONE);
+        Assert.assertEquals(4, tank.getValues().size());
+
+        // Adding a fifth value has to fold the two smallest together
+        tank.addAmount("smallest", FluidAmount.of(1, 2));
+        Map<String, FluidAmount> values = tank.getValues();
+        Assert.assertEquals(MAX_VALUES, values.size());
+        Assert.assertTrue(values.containsKey("big"));
+        Assert.assertTrue(values.containsKey("medium"));
+        Assert.assertTrue(values.containsKey("small"));
+        Assert.assertTrue(values.containsKey("tiny"));
+        Assert.assertFalse(values.containsKey("smallest"));
+        Assert.assertEquals(FluidAmount.of(3, 31), values.get("tiny"));
+        assertWeightsSumToOne(tank);
+    }
+
+    @Test
+    public void testPartialMerge() {
+        // Two large primes, so the exact sum of both fractions would overflow a long denominator
+        long p = 4294967311L;
+        long q = 4294967357L;
+        SourceVolume tank = KEY.withAmount("first", FluidAmount.of(1, p));
+
+        // Only the whole bucket can be merged in, which leaves 1/q out
+        tank.addAmount("second", FluidAmount.of(1, 1, q), FluidMergeRounding.MAXIMUM_POSSIBLE);
+        Assert.assertEquals(FluidAmount.of(1, 1, p), tank.getAmount_F());
+
+        Map<String, FluidAmount> values = tank.getValues();
+        Assert.assertEquals(FluidAmount.of(1, p + 1), values.get("first"));
+        Assert.assertEquals(FluidAmount.of(p, p + 1), values.get("second"));
+    }
+
+    private static void assertWeightsSumToOne(SourceVolume volume) {
+        FluidAmount total = FluidAmount.ZERO;
+        for (FluidAmount weight : volume.getValues().values()) {
+            Assert.assertTrue(weight.isPositive());
+            total = total.add(weight);
+        }
+        Assert.assertEquals(FluidAmount.ONE.asInexactDouble(), total.asInexactDouble(), 1e-9);
+    }
+
+    static final class SourceKey extends WeightedFluidKey<String> {
+        SourceKey() {
+            super(
+                new FluidKeyBuilder(new Identifier("lba_test:sourced")).setName(Text.literal("Sourced")), String.class,
+                "unknown"
+            );
+        }
+
+        @Override
+        public SourceVolume withAmount(FluidAmount amount) {
+            return withAmount(defaultValue, amount);
+        }
+
+        @Override
+        public SourceVolume withAmount(String value, FluidAmount amount) {
+            return new SourceVolume(this, value, amount);
+        }
+
+        @Override
+        public FluidVolume readVolume(NbtCompound tag) {
+            return new SourceVolume(this, tag);
+        }
+    }
+
+    static final class SourceVolume extends WeightedFluidVolume<String> {
+        SourceVolume(SourceKey key, String value, FluidAmount amount) {
+            super(key, value, amount);
+        }
+
+        SourceVolume(SourceKey key, NbtCompound tag) {
+            super(key, tag);
+        }
+
+        @Override
+        protected int getMaxValueCount() {
+            return MAX_VALUES;
+        }
+
+        @Override
+        protected String saveName() {
+            return "sources";
+        }
+
+        @Override
+        protected String readValue(NbtCompound holder) {
+            return holder.getString("source");
+        }
+
+        @Override
+        protected void writeValue(NbtCompound holder, String value) {
+            holder.putString("source", value);
+        }
+
+        @Override
+        protected boolean areJsonValuesCompact() {
+            return true;
+        }
+
+        @Override
+        protected JsonElement toJson(String value) {
+            return new JsonPrimitive(value);
+        }
+    }
+}
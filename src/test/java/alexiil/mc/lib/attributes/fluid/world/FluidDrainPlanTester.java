@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.world;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.fluid.FluidState;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.HeightLimitView;
+
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+public class FluidDrainPlanTester extends VanillaSetupBaseTester {
+
+    private static final HeightLimitView HEIGHTS = new HeightLimitView() {
+        @Override
+        public int getHeight() {
+            return 16;
+        }
+
+        @Override
+        public int getBottomY() {
+            return 0;
+        }
+    };
+
+    private static final BlockPos ORIGIN = new BlockPos(2, 0, 2);
+
+    /** A 5x5 pool of water at y = 0, with a 3x3 layer on top of the middle. A flowing stream leads east from the pool
+     * to one more source, and there is a lava source right next to the pool. */
+    private static Long2ObjectOpenHashMap<FluidState> createPool() {
+        Long2ObjectOpenHashMap<FluidState> fluids = new Long2ObjectOpenHashMap<>();
+        FluidState water = Fluids.WATER.getStill(false);
+        for (int x = 0; x < 5; x++) {
+            for (int z = 0; z < 5; z++) {
+                fluids.put(BlockPos.asLong(x, 0, z), water);
+            }
+        }
+        for (int x = 1; x < 4; x++) {
+            for (int z = 1; z < 4; z++) {
+                fluids.put(BlockPos.asLong(x, 1, z), water);
+            }
+        }
+        fluids.put(BlockPos.asLong(5, 0, 2), Fluids.FLOWING_WATER.getFlowing(7, false));
+        fluids.put(BlockPos.asLong(6, 0, 2), Fluids.FLOWING_WATER.getFlowing(6, false));
+        fluids.put(BlockPos.asLong(7, 0, 2), water);
+        fluids.put(BlockPos.asLong(2, 0, -1), Fluids.LAVA.getStill(false));
+        return fluids;
+    }
+
+    private static FluidDrainPlan scan(
+        Long2ObjectOpenHashMap<FluidState> fluids, BlockPos origin, int maxBlocks, int maxDistance
+    ) {
+        return FluidDrainPlan.scan(null, HEIGHTS, pos -> {
+            Assert.assertFalse("Scanned outside of the world: " + pos, HEIGHTS.isOutOfHeightLimit(pos.getY()));
+            FluidState state = fluids.get(pos.asLong());
+            return state == null ? Fluids.EMPTY.getDefaultState() : state;
+        }, origin, maxBlocks, maxDistance);
+    }
+
+    @Test
+    public void testScan() {
+        FluidDrainPlan plan = scan(createPool(), ORIGIN, 100, 100);
+        Assert.assertEquals(Fluids.WATER, plan.fluid);
+        // Every water source, including the one behind the stream, but not the lava
+        Assert.assertEquals(25 + 9 + 1, plan.size());
+        Assert.assertEquals(plan.size(), plan.remaining());
+        Assert.assertEquals(2, plan.flowingCount);
+
+        // The first block to drain is one of the top corners, as they are the furthest away on the top layer
+        BlockPos first = plan.peek();
+        Assert.assertEquals(1, first.getY());
+        Assert.assertTrue(first.toString(), first.getX() != 2 && first.getZ() != 2);
+    }
+
+    @Test
+    public void testScanFromFlowing() {
+        FluidDrainPlan plan = scan(createPool(), new BlockPos(6, 0, 2), 100, 100);
+        Assert.assertEquals(Fluids.WATER, plan.fluid);
+        Assert.assertEquals(25 + 9 + 1, plan.size());
+    }
+
+    @Test
+    public void testScanEmpty() {
+        FluidDrainPlan plan = scan(createPool(), new BlockPos(2, 2, 2), 100, 100);
+        Assert.assertEquals(Fluids.EMPTY, plan.fluid);
+        Assert.assertTrue(plan.isEmpty());
+        Assert.assertEquals(0, plan.size());
+        Assert.assertNull(plan.peek());
+
+        Assert.assertTrue(scan(createPool(), ORIGIN, 0, 100).isEmpty());
+    }
+
+    @Test
+    public void testScanLimits() {
+        Long2ObjectOpenHashMap<FluidState> pool = createPool();
+
+        // Only the origin itself
+        FluidDrainPlan plan = scan(pool, ORIGIN, 100, 0);
+        Assert.assertEquals(1, plan.size());
+        Assert.assertEquals(ORIGIN, plan.peek());
+
+        // The origin, the block above, and the four blocks around it
+        plan = scan(pool, ORIGIN, 100, 1);
+        Assert.assertEquals(6, plan.size());
+        Assert.assertEquals(ORIGIN.up(), plan.peek());
+
+        // The stream starts 3 blocks away from the origin, so the source at the end of it is 5 blocks away
+        plan = scan(pool, ORIGIN, 100, 4);
+        Assert.assertEquals(25 + 9, plan.size());
+        Assert.assertEquals(2, plan.flowingCount);
+        plan = scan(pool, ORIGIN, 100, 5);
+        Assert.assertEquals(25 + 9 + 1, plan.size());
+        Assert.assertEquals(2, plan.flowingCount);
+
+        for (int max = 1; max < 40; max++) {
+            plan = scan(pool, ORIGIN, max, 100);
+            Assert.assertEquals("maxBlocks = " + max, Math.min(max, 25 + 9 + 1 + 2), plan.size() + plan.flowingCount);
+        }
+    }
+
+    @Test
+    public void testOrderSources() {
+        long[] found = {
+            BlockPos.asLong(0, 0, 0),
+            BlockPos.asLong(1, 0, 0),
+            BlockPos.asLong(0, 1, 0),
+            BlockPos.asLong(2, 0, 0),
+            BlockPos.asLong(0, 1, 1),
+            BlockPos.asLong(3, 0, 0),
+            BlockPos.asLong(0, 2, 0),
+        };
+        int[] distances = { 0, 1, 1, 2, 2, 2, 2 };
+        long[] expected = {
+            BlockPos.asLong(0, 2, 0),
+            BlockPos.asLong(0, 1, 1),
+            BlockPos.asLong(0, 1, 0),
+            // Equal distances stay in the order they were found in
+            BlockPos.asLong(2, 0, 0),
+            BlockPos.asLong(3, 0, 0),
+            BlockPos.asLong(1, 0, 0),
+            BlockPos.asLong(0, 0, 0),
+        };
+        long[] actual = FluidDrainPlan.orderSources(found, distances);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals("index " + i, BlockPos.fromLong(expected[i]), BlockPos.fromLong(actual[i]));
+        }
+        Assert.assertEquals(expected.length, actual.length);
+        // The input isn't modified
+        Assert.assertEquals(BlockPos.asLong(0, 0, 0), found[0]);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.filter;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.BlockItem;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+
+import alexiil.mc.lib.attributes.AggregateFilterType;
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+
+public class ItemFilterCompilerTester extends VanillaSetupBaseTester {
+
+    private static final Item[] ITEMS = { Items.STONE, Items.DIRT, Items.STICK, Items.DIAMOND, Items.APPLE };
+
+    private static ItemStack[] createStacks() {
+        ItemStack[] stacks = new ItemStack[ITEMS.length * 2 + 1];
+        for (int i = 0; i < ITEMS.length; i++) {
+            stacks[i * 2] = new ItemStack(ITEMS[i]);
+            stacks[i * 2 + 1] = new ItemStack(ITEMS[i], 5);
+        }
+        stacks[stacks.length - 1] = ItemStack.EMPTY;
+        return stacks;
+    }
+
+    @Test
+    public void testCompile() {
+        ItemStack[] stacks = createStacks();
+        Random rand = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            ItemFilter filter = randomFilter(rand, 3);
+            assertSameMatches(filter.toString(), stacks, filter, ItemFilterCompiler.compile(filter));
+        }
+    }
+
+    @Test
+    public void testAndOr() {
+        ItemStack[] stacks = createStacks();
+        Random rand = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            ItemFilter a = randomFilter(rand, 2);
+            ItemFilter b = randomFilter(rand, 2);
+            String desc = a + ", " + b;
+
+            ItemFilter and = ItemFilterCompiler.and(a, b);
+            ItemFilter or = ItemFilterCompiler.compile(new AggregateItemFilter(AggregateFilterType.ANY, a, b));
+            for (ItemStack stack : stacks) {
+                Assert.assertEquals(desc + " and " + stack, a.matches(stack) && b.matches(stack), and.matches(stack));
+                Assert.assertEquals(desc + " or " + stack, a.matches(stack) || b.matches(stack), or.matches(stack));
+            }
+
+            // The cached result has to match as well
+            assertSameMatches(desc, stacks, and, ItemFilterCompiler.and(a, b));
+        }
+        ItemFilter a = new ExactItemFilter(Items.STONE);
+        Assert.assertSame(a, ItemFilterCompiler.and(a, null));
+        Assert.assertSame(a, ItemFilterCompiler.and(a, ConstantItemFilter.ANYTHING));
+        Assert.assertSame(ConstantItemFilter.NOTHING, ItemFilterCompiler.and(a, ConstantItemFilter.NOTHING));
+    }
+
+    @Test
+    public void testCaching() {
+        ItemFilter insertion = new ItemClassFilter(BlockItem.class);
+        ItemFilter stateless = new InvertedItemFilter(new ExactItemFilter(Items.STONE));
+        ItemFilter stateful = stack -> stack.getCount() > 1;
+
+        Assert.assertTrue(ItemFilterCompiler.isStateless(stateless));
+        Assert.assertFalse(ItemFilterCompiler.isStateless(stateful));
+        Assert.assertFalse(
+            ItemFilterCompiler.isStateless(new AggregateItemFilter(AggregateFilterType.ANY, stateless, stateful))
+        );
+
+        Assert.assertSame(ItemFilterCompiler.and(insertion, stateless), ItemFilterCompiler.and(insertion, stateless));
+        // Filters that might reference a world are never cached
+        Assert.assertNotSame(ItemFilterCompiler.and(insertion, stateful), ItemFilterCompiler.and(insertion, stateful));
+        Assert.assertNotSame(ItemFilterCompiler.and(stateful, stateless), ItemFilterCompiler.and(stateful, stateless));
+    }
+
+    private static ItemFilter randomFilter(Random rand, int depth) {
+        int op = rand.nextInt(depth > 0 ? 9 : 7);
+        switch (op) {
+            case 0:
+                return ConstantItemFilter.ANYTHING;
+            case 1:
+                return ConstantItemFilter.NOTHING;
+            case 2:
+            case 3:
+                return new ExactItemFilter(ITEMS[rand.nextInt(ITEMS.length)]);
+            case 4: {
+                Set<Item> items = new ReferenceOpenHashSet<>();
+                items.add(ITEMS[rand.nextInt(ITEMS.length)]);
+                items.add(ITEMS[rand.nextInt(ITEMS.length)]);
+                return new ExactItemSetFilter(items);
+            }
+            case 5:
+                return new ItemClassFilter(BlockItem.class);
+            case 6:
+                // Not readable, so the compiler can't look inside it
+                return stack -> stack.getCount() > 1;
+            case 7:
+                return new InvertedItemFilter(randomFilter(rand, depth - 1));
+            default: {
+                ItemFilter[] filters = new ItemFilter[2 + rand.nextInt(3)];
+                for (int i = 0; i < filters.length; i++) {
+                    filters[i] = randomFilter(rand, depth - 1);
+                }
+                AggregateFilterType type = rand.nextBoolean() ? AggregateFilterType.ALL : AggregateFilterType.ANY;
+                return new AggregateItemFilter(type, filters);
+            }
+        }
+    }
+
+    private static void assertSameMatches(String desc, ItemStack[] stacks, ItemFilter expected, ItemFilter actual) {
+        for (ItemStack stack : stacks) {
+            Assert.assertEquals(desc + " " + stack, expected.matches(stack), actual.matches(stack));
+        }
+    }
+}